@@ -1,6 +1,8 @@
 package eu.arrowhead.core.api;
 
 import eu.arrowhead.common.DatabaseManager;
+import eu.arrowhead.common.JsonArrayStreamingOutput;
+import eu.arrowhead.common.Utility;
 import eu.arrowhead.common.database.ArrowheadCloud;
 import eu.arrowhead.common.database.ArrowheadService;
 import eu.arrowhead.common.database.ArrowheadSystem;
@@ -15,22 +17,28 @@ import eu.arrowhead.common.messages.IntraCloudAuthEntry;
 import eu.arrowhead.common.messages.IntraCloudAuthRequest;
 import eu.arrowhead.common.messages.IntraCloudAuthResponse;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.Providers;
 import org.apache.log4j.Logger;
 
 @Path("auth")
@@ -49,13 +57,34 @@ public class AuthorizationApi {
   }
 
   /**
-   * Returns all the IntraCloud authorization rights from the database.
+   * Returns all the IntraCloud authorization rights from the database. Big tables can be listed with bounded memory use either page by page
+   * (<tt>?limit=N&amp;after=token</tt>, the token of the next page is in the <i>X-Next-Page-Token</i> response header) or streamed
+   * (<tt>?stream=true</tt>). Both of these are ordered by id.
    *
    * @return List<IntraCloudAuthorization>
    */
   @GET
   @Path("/intracloud")
-  public List<IntraCloudAuthorization> getIntraCloudAuthRights() {
+  public Response getIntraCloudAuthRights(@QueryParam("limit") Integer limit, @QueryParam("after") @DefaultValue("0") int after,
+                                          @QueryParam("stream") boolean stream, @Context Providers providers) {
+    if (stream) {
+      log.info("getIntraCloudAuthRights streams the entries.");
+      return Response.ok(new JsonArrayStreamingOutput<>(IntraCloudAuthorization.class, providers,
+                                                        consumer -> dm.scroll(IntraCloudAuthorization.class, restrictionMap, consumer))).build();
+    }
+    if (limit != null) {
+      if (limit <= 0) {
+        throw new BadPayloadException("Bad request: the limit query parameter has to be positive.");
+      }
+      List<IntraCloudAuthorization> page = dm.getPage(IntraCloudAuthorization.class, restrictionMap, after, limit);
+      Response.ResponseBuilder builder = Response.ok(new GenericEntity<List<IntraCloudAuthorization>>(page) {
+      });
+      if (page.size() == limit) {
+        builder.header(Utility.NEXT_PAGE_TOKEN_HEADER, page.get(page.size() - 1).getId());
+      }
+      log.info("getIntraCloudAuthRights returns a page of " + page.size() + " entries.");
+      return builder.build();
+    }
 
     List<IntraCloudAuthorization> authRights = dm.getAll(IntraCloudAuthorization.class, restrictionMap);
     if (authRights.isEmpty()) {
@@ -64,7 +93,8 @@ public class AuthorizationApi {
     }
 
     log.info("getIntraCloudAuthRights successfully returns " + authRights.size() + " entries.");
-    return authRights;
+    return Response.ok(new GenericEntity<List<IntraCloudAuthorization>>(authRights) {
+    }).build();
   }
 
   /**
@@ -85,9 +115,8 @@ public class AuthorizationApi {
     }
 
     IntraCloudAuthResponse response = new IntraCloudAuthResponse();
-    restrictionMap.put("systemGroup", request.getConsumer().getSystemGroup());
-    restrictionMap.put("systemName", request.getConsumer().getSystemName());
-    ArrowheadSystem consumer = dm.get(ArrowheadSystem.class, restrictionMap);
+    ArrowheadSystem consumer = dm.getNamed(ArrowheadSystem.class, ArrowheadSystem.FIND_BY_GROUP_AND_NAME, request.getConsumer().getSystemGroup(),
+                                           request.getConsumer().getSystemName());
     if (consumer == null) {
       log.info("Consumer is not in the authorization database. " + "(AuthorizationApi:isSystemAuthorized DataNotFoundException)");
       throw new DataNotFoundException("Consumer System is not in the database. " + request.getConsumer().toString());
@@ -96,10 +125,8 @@ public class AuthorizationApi {
     HashMap<ArrowheadSystem, Boolean> authorizationState = new HashMap<>();
     log.info("authorizationState hashmap created");
 
-    restrictionMap.clear();
-    restrictionMap.put("serviceGroup", request.getService().getServiceGroup());
-    restrictionMap.put("serviceDefinition", request.getService().getServiceDefinition());
-    ArrowheadService service = dm.get(ArrowheadService.class, restrictionMap);
+    ArrowheadService service = dm.getNamed(ArrowheadService.class, ArrowheadService.FIND_BY_GROUP_AND_DEFINITION,
+                                           request.getService().getServiceGroup(), request.getService().getServiceDefinition());
     if (service == null) {
       log.info("Service is not in the database. Returning NOT AUTHORIZED state.");
       for (ArrowheadSystem provider : request.getProviders()) {
@@ -109,21 +136,29 @@ public class AuthorizationApi {
       return Response.status(Status.OK).entity(response).build();
     }
 
-    IntraCloudAuthorization authRight;
+    // Resolving the providers and their authorization rights with 2 queries, instead of 2 queries per provider
+    List<List<Object>> providerKeys = new ArrayList<>();
+    for (ArrowheadSystem provider : request.getProviders()) {
+      providerKeys.add(Arrays.asList(provider.getSystemGroup(), provider.getSystemName()));
+    }
+    Map<List<Object>, ArrowheadSystem> retrievedProviders = dm
+        .getByNaturalKeys(ArrowheadSystem.class, Arrays.asList("systemGroup", "systemName"), providerKeys);
+
+    Set<Integer> providerIds = new HashSet<>();
+    for (ArrowheadSystem retrievedSystem : retrievedProviders.values()) {
+      providerIds.add(retrievedSystem.getId());
+    }
+    // Only the provider ids are needed, so the authorization rights (and their eagerly fetched Systems and Service) are not loaded
+    Set<Integer> authorizedProviderIds = new HashSet<>();
+    if (!providerIds.isEmpty()) {
+      authorizedProviderIds.addAll(
+          dm.getAllNamed(Integer.class, IntraCloudAuthorization.FIND_AUTHORIZED_PROVIDER_IDS, consumer, service, providerIds));
+    }
+    log.info("Authorization rights requested for System: " + request.getConsumer().toString());
+
     for (ArrowheadSystem provider : request.getProviders()) {
-      restrictionMap.clear();
-      restrictionMap.put("systemGroup", provider.getSystemGroup());
-      restrictionMap.put("systemName", provider.getSystemName());
-      ArrowheadSystem retrievedSystem = dm.get(ArrowheadSystem.class, restrictionMap);
-
-      restrictionMap.clear();
-      restrictionMap.put("consumer", consumer);
-      restrictionMap.put("provider", retrievedSystem);
-      restrictionMap.put("service", service);
-      authRight = dm.get(IntraCloudAuthorization.class, restrictionMap);
-      log.info("Authorization rights requested for System: " + request.getConsumer().toString());
-
-      if (authRight == null) {
+      ArrowheadSystem retrievedSystem = retrievedProviders.get(Arrays.asList(provider.getSystemGroup(), provider.getSystemName()));
+      if (retrievedSystem == null || !authorizedProviderIds.contains(retrievedSystem.getId())) {
         authorizationState.put(provider, false);
         log.info("This (consumer/provider/service) request is NOT AUTHORIZED.");
       } else {
@@ -161,36 +196,20 @@ public class AuthorizationApi {
       consumer = dm.save(entry.getConsumer());
     }
 
-    ArrowheadSystem retrievedSystem = null;
-    ArrowheadService retrievedService = null;
-    IntraCloudAuthorization authRight = new IntraCloudAuthorization();
-    List<IntraCloudAuthorization> savedAuthRights = new ArrayList<>();
-
+    // Resolving (or saving) the providers and services with 2 queries, then saving the authorization rights in one batch
+    Map<List<Object>, ArrowheadSystem> retrievedSystems = EntityResolver.resolveSystems(entry.getProviderList());
+    Map<List<Object>, ArrowheadService> retrievedServices = EntityResolver.resolveServices(entry.getServiceList());
+    List<IntraCloudAuthorization> authRights = new ArrayList<>();
     for (ArrowheadSystem providerSystem : entry.getProviderList()) {
-      restrictionMap.clear();
-      restrictionMap.put("systemGroup", providerSystem.getSystemGroup());
-      restrictionMap.put("systemName", providerSystem.getSystemName());
-      retrievedSystem = dm.get(ArrowheadSystem.class, restrictionMap);
-      if (retrievedSystem == null) {
-        log.info("Provider System " + providerSystem.toString() + " was not in the database, saving it now.");
-        retrievedSystem = dm.save(providerSystem);
-      }
+      ArrowheadSystem retrievedSystem = retrievedSystems.get(EntityResolver.systemKey(providerSystem));
       for (ArrowheadService service : entry.getServiceList()) {
-        restrictionMap.clear();
-        restrictionMap.put("serviceGroup", service.getServiceGroup());
-        restrictionMap.put("serviceDefinition", service.getServiceDefinition());
-        retrievedService = dm.get(ArrowheadService.class, restrictionMap);
-        if (retrievedService == null) {
-          log.info("Service " + service.toString() + " was not in the database, saving it now.");
-          retrievedService = dm.save(service);
-        }
-        authRight.setConsumer(consumer);
-        authRight.setProvider(retrievedSystem);
-        authRight.setService(retrievedService);
-        authRight = dm.merge(authRight);
-        savedAuthRights.add(authRight);
+        ArrowheadService retrievedService = retrievedServices.get(EntityResolver.serviceKey(service));
+        authRights.add(new IntraCloudAuthorization(consumer, retrievedSystem, retrievedService));
       }
     }
+    List<IntraCloudAuthorization> savedAuthRights = dm.mergeAll(authRights);
+    Utility.reloadAuthorizationRules(consumer);
+    Utility.invalidateOrchestrationCache(null);
 
     log.info(savedAuthRights.size() + " authorization rights created.");
     GenericEntity<List<IntraCloudAuthorization>> entity = new GenericEntity<List<IntraCloudAuthorization>>(savedAuthRights) {
@@ -213,6 +232,8 @@ public class AuthorizationApi {
       return Response.noContent().build();
     } else {
       dm.delete(entry);
+      Utility.reloadAuthorizationRules(entry.getConsumer());
+      Utility.invalidateOrchestrationCache(entry.getService());
       log.info("deleteIntraEntry successfully returns.");
       return Response.ok().build();
     }
@@ -241,9 +262,9 @@ public class AuthorizationApi {
     restrictionMap.put("consumer", consumer);
     authRightsList = dm.getAll(IntraCloudAuthorization.class, restrictionMap);
     if (!authRightsList.isEmpty()) {
-      for (IntraCloudAuthorization authRight : authRightsList) {
-        dm.delete(authRight);
-      }
+      dm.deleteAll(authRightsList);
+      Utility.reloadAuthorizationRules(consumer);
+      Utility.invalidateOrchestrationCache(null);
 
       log.info("deleteSystemRelations successfully returns.");
       return Response.ok().build();
@@ -320,29 +341,22 @@ public class AuthorizationApi {
       throw new BadPayloadException("Bad payload: Missing/incomplete cloud or service in the request payload.");
     }
 
-    restrictionMap.put("operator", request.getCloud().getOperator());
-    restrictionMap.put("cloudName", request.getCloud().getCloudName());
-    ArrowheadCloud cloud = dm.get(ArrowheadCloud.class, restrictionMap);
+    ArrowheadCloud cloud = dm.getNamed(ArrowheadCloud.class, ArrowheadCloud.FIND_BY_OPERATOR_AND_NAME, request.getCloud().getOperator(),
+                                       request.getCloud().getCloudName());
     if (cloud == null) {
       log.info("Consumer Cloud is not in the authorization database. " + "(AuthorizationApi:isCloudAuthorized DataNotFoundException)");
       throw new DataNotFoundException("Consumer Cloud is not in the authorization database. " + request.getCloud().toString());
     }
 
     Boolean isAuthorized = false;
-    restrictionMap.clear();
-    restrictionMap.put("serviceGroup", request.getService().getServiceGroup());
-    restrictionMap.put("serviceDefinition", request.getService().getServiceDefinition());
-    ArrowheadService service = dm.get(ArrowheadService.class, restrictionMap);
+    ArrowheadService service = dm.getNamed(ArrowheadService.class, ArrowheadService.FIND_BY_GROUP_AND_DEFINITION,
+                                           request.getService().getServiceGroup(), request.getService().getServiceDefinition());
     if (service == null) {
       log.info("Service is not in the database. Returning NOT AUTHORIZED state. " + request.getService().toString());
       return Response.status(Status.OK).entity(isAuthorized).build();
     }
 
-    InterCloudAuthorization authRight = new InterCloudAuthorization();
-    restrictionMap.clear();
-    restrictionMap.put("cloud", cloud);
-    restrictionMap.put("service", service);
-    authRight = dm.get(InterCloudAuthorization.class, restrictionMap);
+    InterCloudAuthorization authRight = dm.getNamed(InterCloudAuthorization.class, InterCloudAuthorization.FIND_BY_CLOUD_AND_SERVICE, cloud, service);
 
     if (authRight != null) {
       isAuthorized = true;
@@ -376,24 +390,13 @@ public class AuthorizationApi {
       cloud = dm.save(entry.getCloud());
     }
 
-    ArrowheadService retrievedService = null;
-    InterCloudAuthorization authRight = new InterCloudAuthorization();
-    List<InterCloudAuthorization> savedAuthRights = new ArrayList<>();
-
+    Map<List<Object>, ArrowheadService> retrievedServices = EntityResolver.resolveServices(entry.getServiceList());
+    List<InterCloudAuthorization> authRights = new ArrayList<>();
     for (ArrowheadService service : entry.getServiceList()) {
-      restrictionMap.clear();
-      restrictionMap.put("serviceGroup", service.getServiceGroup());
-      restrictionMap.put("serviceDefinition", service.getServiceDefinition());
-      retrievedService = dm.get(ArrowheadService.class, restrictionMap);
-      if (retrievedService == null) {
-        log.info("Service was not in the database, saving it now." + service.toString());
-        retrievedService = dm.save(service);
-      }
-      authRight.setCloud(cloud);
-      authRight.setService(retrievedService);
-      authRight = dm.merge(authRight);
-      savedAuthRights.add(authRight);
+      authRights.add(new InterCloudAuthorization(cloud, retrievedServices.get(EntityResolver.serviceKey(service))));
     }
+    List<InterCloudAuthorization> savedAuthRights = dm.mergeAll(authRights);
+    Utility.reloadAuthorizationRules(cloud);
 
     log.info(savedAuthRights.size() + " authorization rights created.");
     GenericEntity<List<InterCloudAuthorization>> entity = new GenericEntity<List<InterCloudAuthorization>>(savedAuthRights) {
@@ -416,6 +419,7 @@ public class AuthorizationApi {
       return Response.noContent().build();
     } else {
       dm.delete(entry);
+      Utility.reloadAuthorizationRules(entry.getCloud());
       log.info("deleteInterEntry successfully returns.");
       return Response.ok().build();
     }
@@ -444,9 +448,8 @@ public class AuthorizationApi {
     restrictionMap.put("cloud", cloud);
     authRightsList = dm.getAll(InterCloudAuthorization.class, restrictionMap);
     if (!authRightsList.isEmpty()) {
-      for (InterCloudAuthorization authRight : authRightsList) {
-        dm.delete(authRight);
-      }
+      dm.deleteAll(authRightsList);
+      Utility.reloadAuthorizationRules(cloud);
 
       log.info("deleteCloudRelations successfully returns.");
       return Response.ok().build();
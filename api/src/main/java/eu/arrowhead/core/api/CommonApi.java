@@ -1,14 +1,18 @@
 package eu.arrowhead.core.api;
 
 import eu.arrowhead.common.DatabaseManager;
+import eu.arrowhead.common.Utility;
 import eu.arrowhead.common.database.ArrowheadCloud;
 import eu.arrowhead.common.database.ArrowheadService;
 import eu.arrowhead.common.database.ArrowheadSystem;
 import eu.arrowhead.common.exception.BadPayloadException;
 import eu.arrowhead.common.exception.DataNotFoundException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -104,19 +108,23 @@ public class CommonApi {
   @Path("/services")
   public List<ArrowheadService> addServices(List<ArrowheadService> serviceList) {
 
-    List<ArrowheadService> savedServices = new ArrayList<>();
+    List<List<Object>> keys = new ArrayList<>();
     for (ArrowheadService service : serviceList) {
       if (service.isValidForDatabase()) {
-        restrictionMap.clear();
-        restrictionMap.put("serviceGroup", service.getServiceGroup());
-        restrictionMap.put("serviceDefinition", service.getServiceDefinition());
-        ArrowheadService retrievedService = dm.get(ArrowheadService.class, restrictionMap);
-        if (retrievedService == null) {
-          dm.save(service);
-          savedServices.add(service);
-        }
+        keys.add(EntityResolver.serviceKey(service));
       }
     }
+    Map<List<Object>, ArrowheadService> retrieved = dm
+        .getByNaturalKeys(ArrowheadService.class, Arrays.asList("serviceGroup", "serviceDefinition"), keys);
+
+    // The keys are lower-cased, so the elements differing from a stored (or an earlier) element only in case are skipped as duplicates
+    List<ArrowheadService> newServices = new ArrayList<>();
+    for (ArrowheadService service : serviceList) {
+      if (service.isValidForDatabase() && retrieved.putIfAbsent(EntityResolver.serviceKey(service), service) == null) {
+        newServices.add(service);
+      }
+    }
+    List<ArrowheadService> savedServices = dm.saveAll(newServices);
 
     return savedServices;
   }
@@ -232,20 +240,22 @@ public class CommonApi {
   @Path("/systems")
   public List<ArrowheadSystem> addSystems(List<ArrowheadSystem> systemList) {
 
-    List<ArrowheadSystem> savedSystems = new ArrayList<>();
+    List<List<Object>> keys = new ArrayList<>();
     for (ArrowheadSystem system : systemList) {
       if (system.isValid()) {
-        restrictionMap.clear();
-        restrictionMap.put("systemGroup", system.getSystemGroup());
-        restrictionMap.put("systemName", system.getSystemName());
-        ArrowheadSystem retrievedSystem = dm.get(ArrowheadSystem.class, restrictionMap);
-        restrictionMap.clear();
-        if (retrievedSystem == null) {
-          dm.save(system);
-          savedSystems.add(system);
-        }
+        keys.add(EntityResolver.systemKey(system));
       }
     }
+    Map<List<Object>, ArrowheadSystem> retrieved = dm.getByNaturalKeys(ArrowheadSystem.class, Arrays.asList("systemGroup", "systemName"), keys);
+
+    // The keys are lower-cased, so the elements differing from a stored (or an earlier) element only in case are skipped as duplicates
+    List<ArrowheadSystem> newSystems = new ArrayList<>();
+    for (ArrowheadSystem system : systemList) {
+      if (system.isValid() && retrieved.putIfAbsent(EntityResolver.systemKey(system), system) == null) {
+        newSystems.add(system);
+      }
+    }
+    List<ArrowheadSystem> savedSystems = dm.saveAll(newSystems);
 
     return savedSystems;
   }
@@ -268,9 +278,13 @@ public class CommonApi {
     if (retrievedSystem != null) {
       retrievedSystem.setAddress(system.getAddress());
       retrievedSystem.setPort(system.getPort());
+      boolean keyChanged = !Objects.equals(retrievedSystem.getAuthenticationInfo(), system.getAuthenticationInfo());
       retrievedSystem.setAuthenticationInfo(system.getAuthenticationInfo());
 
       retrievedSystem = dm.merge(retrievedSystem);
+      if (keyChanged) {
+        Utility.invalidatePublicKey(retrievedSystem);
+      }
       return Response.status(Status.ACCEPTED).entity(retrievedSystem).build();
     } else {
       return Response.noContent().build();
@@ -292,6 +306,7 @@ public class CommonApi {
       return Response.noContent().build();
     } else {
       dm.delete(system);
+      Utility.invalidatePublicKey(system);
       return Response.ok().build();
     }
   }
@@ -363,20 +378,22 @@ public class CommonApi {
   @Path("/clouds")
   public List<ArrowheadCloud> addClouds(List<ArrowheadCloud> cloudList) {
 
-    List<ArrowheadCloud> savedClouds = new ArrayList<>();
+    List<List<Object>> keys = new ArrayList<>();
     for (ArrowheadCloud cloud : cloudList) {
       if (cloud.isValid()) {
-        restrictionMap.clear();
-        restrictionMap.put("operator", cloud.getOperator());
-        restrictionMap.put("cloudName", cloud.getCloudName());
-        ArrowheadCloud retrievedCloud = dm.get(ArrowheadCloud.class, restrictionMap);
-        restrictionMap.clear();
-        if (retrievedCloud == null) {
-          dm.save(cloud);
-          savedClouds.add(cloud);
-        }
+        keys.add(EntityResolver.cloudKey(cloud));
+      }
+    }
+    Map<List<Object>, ArrowheadCloud> retrieved = dm.getByNaturalKeys(ArrowheadCloud.class, Arrays.asList("operator", "cloudName"), keys);
+
+    // The keys are lower-cased, so the elements differing from a stored (or an earlier) element only in case are skipped as duplicates
+    List<ArrowheadCloud> newClouds = new ArrayList<>();
+    for (ArrowheadCloud cloud : cloudList) {
+      if (cloud.isValid() && retrieved.putIfAbsent(EntityResolver.cloudKey(cloud), cloud) == null) {
+        newClouds.add(cloud);
       }
     }
+    List<ArrowheadCloud> savedClouds = dm.saveAll(newClouds);
 
     return savedClouds;
   }
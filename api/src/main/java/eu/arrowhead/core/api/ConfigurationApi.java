@@ -1,6 +1,7 @@
 package eu.arrowhead.core.api;
 
 import eu.arrowhead.common.DatabaseManager;
+import eu.arrowhead.common.Utility;
 import eu.arrowhead.common.database.ArrowheadCloud;
 import eu.arrowhead.common.database.CoreSystem;
 import eu.arrowhead.common.database.NeighborCloud;
@@ -9,7 +10,10 @@ import eu.arrowhead.common.exception.BadPayloadException;
 import eu.arrowhead.common.exception.DataNotFoundException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -152,19 +156,19 @@ public class ConfigurationApi {
   @Path("/coresystems")
   public List<CoreSystem> addCoreSystems(List<CoreSystem> coreSystemList) {
 
-    List<CoreSystem> savedCoreSystems = new ArrayList<>();
+    Set<String> systemNames = new HashSet<>();
+    for (CoreSystem cs : dm.getAll(CoreSystem.class, null)) {
+      systemNames.add(cs.getSystemName());
+    }
+    List<CoreSystem> newCoreSystems = new ArrayList<>();
     for (CoreSystem cs : coreSystemList) {
-      if (cs.isValid()) {
-        restrictionMap.clear();
-        restrictionMap.put("systemName", cs.getSystemName());
-        CoreSystem retrievedCoreSystem = dm.get(CoreSystem.class, restrictionMap);
-        if (retrievedCoreSystem == null) {
-          dm.save(cs);
-          savedCoreSystems.add(cs);
-        }
+      if (cs.isValid() && systemNames.add(cs.getSystemName())) {
+        newCoreSystems.add(cs);
       }
     }
+    List<CoreSystem> savedCoreSystems = dm.saveAll(newCoreSystems);
 
+    Utility.notifyEndpointChange();
     return savedCoreSystems;
   }
 
@@ -178,29 +182,30 @@ public class ConfigurationApi {
   @Path("/neighborhood")
   public List<NeighborCloud> addNeighborClouds(List<NeighborCloud> neighborCloudList) {
 
-    List<NeighborCloud> savedNeighborClouds = new ArrayList<>();
+    List<NeighborCloud> validNeighborClouds = new ArrayList<>();
+    List<ArrowheadCloud> clouds = new ArrayList<>();
     for (NeighborCloud nc : neighborCloudList) {
       if (nc.isValid()) {
-        restrictionMap.clear();
-        restrictionMap.put("operator", nc.getCloud().getOperator());
-        restrictionMap.put("cloudName", nc.getCloud().getCloudName());
-        ArrowheadCloud cloud = dm.get(ArrowheadCloud.class, restrictionMap);
-        if (cloud == null) {
-          dm.save(nc.getCloud());
-        } else {
-          nc.setCloud(cloud);
-        }
-
-        restrictionMap.clear();
-        restrictionMap.put("cloud", cloud);
-        NeighborCloud neighborCloud = dm.get(NeighborCloud.class, restrictionMap);
-        if (neighborCloud == null) {
-          dm.merge(nc);
-          savedNeighborClouds.add(nc);
-        }
+        validNeighborClouds.add(nc);
+        clouds.add(nc.getCloud());
       }
     }
+    Map<List<Object>, ArrowheadCloud> retrievedClouds = EntityResolver.resolveClouds(clouds);
 
+    Set<Integer> neighborCloudIds = new HashSet<>();
+    for (NeighborCloud neighborCloud : dm.getAll(NeighborCloud.class, null)) {
+      neighborCloudIds.add(neighborCloud.getCloud().getId());
+    }
+    List<NeighborCloud> newNeighborClouds = new ArrayList<>();
+    for (NeighborCloud nc : validNeighborClouds) {
+      nc.setCloud(retrievedClouds.get(EntityResolver.cloudKey(nc.getCloud())));
+      if (neighborCloudIds.add(nc.getCloud().getId())) {
+        newNeighborClouds.add(nc);
+      }
+    }
+    List<NeighborCloud> savedNeighborClouds = dm.mergeAll(newNeighborClouds);
+
+    Utility.notifyEndpointChange();
     return savedNeighborClouds;
   }
 
@@ -221,13 +226,10 @@ public class ConfigurationApi {
 
     List<OwnCloud> ownClouds = new ArrayList<>();
     ownClouds = dm.getAll(OwnCloud.class, restrictionMap);
-    if (!ownClouds.isEmpty()) {
-      for (OwnCloud cloud : ownClouds) {
-        dm.delete(cloud);
-      }
-    }
+    dm.deleteAll(ownClouds);
 
     ownCloud = dm.save(ownCloud);
+    Utility.notifyEndpointChange();
     return ownCloud;
   }
 
@@ -252,6 +254,7 @@ public class ConfigurationApi {
       coreSystem.setServiceURI(cs.getServiceURI());
 
       coreSystem = dm.merge(coreSystem);
+      Utility.notifyEndpointChange();
       return Response.status(Status.ACCEPTED).entity(coreSystem).build();
     } else {
       return Response.noContent().build();
@@ -285,6 +288,7 @@ public class ConfigurationApi {
       neighborCloud.getCloud().setGatekeeperServiceURI(nc.getCloud().getGatekeeperServiceURI());
 
       neighborCloud = dm.merge(neighborCloud);
+      Utility.notifyEndpointChange();
       return Response.status(Status.ACCEPTED).entity(neighborCloud).build();
     } else {
       return Response.noContent().build();
@@ -306,6 +310,7 @@ public class ConfigurationApi {
       return Response.noContent().build();
     } else {
       dm.delete(retrievedSystem);
+      Utility.notifyEndpointChange();
       return Response.ok().build();
     }
   }
@@ -332,6 +337,7 @@ public class ConfigurationApi {
       return Response.noContent().build();
     } else {
       dm.delete(neighborCloud);
+      Utility.notifyEndpointChange();
       return Response.ok().build();
     }
   }
@@ -0,0 +1,113 @@
+package eu.arrowhead.core.api;
+
+import eu.arrowhead.common.DatabaseManager;
+import eu.arrowhead.common.database.ArrowheadCloud;
+import eu.arrowhead.common.database.ArrowheadService;
+import eu.arrowhead.common.database.ArrowheadSystem;
+import eu.arrowhead.common.exception.DuplicateEntryException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Function;
+import org.apache.log4j.Logger;
+
+/**
+ * Helper for the bulk API endpoints: resolves the Systems, Services and Clouds of a payload against the database with one query per entity type,
+ * and saves the missing ones in one batch. The returned maps are keyed by the lower-cased natural key of the entities (see the <tt>*Key</tt>
+ * methods), because the database matches the names case-insensitively. Every returned entity is persistent.
+ */
+final class EntityResolver {
+
+  private static Logger log = Logger.getLogger(EntityResolver.class.getName());
+  private static DatabaseManager dm = DatabaseManager.getInstance();
+
+  private EntityResolver() throws AssertionError {
+    throw new AssertionError("EntityResolver is a non-instantiable class");
+  }
+
+  static List<Object> systemKey(ArrowheadSystem system) {
+    return naturalKey(system.getSystemGroup(), system.getSystemName());
+  }
+
+  static List<Object> serviceKey(ArrowheadService service) {
+    return naturalKey(service.getServiceGroup(), service.getServiceDefinition());
+  }
+
+  static List<Object> cloudKey(ArrowheadCloud cloud) {
+    return naturalKey(cloud.getOperator(), cloud.getCloudName());
+  }
+
+  // The database matches the names case-insensitively, so the keys are lower-cased to match the same way
+  private static List<Object> naturalKey(String first, String second) {
+    return Arrays.asList(first == null ? null : first.toLowerCase(Locale.ROOT), second == null ? null : second.toLowerCase(Locale.ROOT));
+  }
+
+  static Map<List<Object>, ArrowheadSystem> resolveSystems(Collection<ArrowheadSystem> systems) {
+    return resolve(ArrowheadSystem.class, Arrays.asList("systemGroup", "systemName"), systems, EntityResolver::systemKey);
+  }
+
+  static Map<List<Object>, ArrowheadService> resolveServices(Collection<ArrowheadService> services) {
+    return resolve(ArrowheadService.class, Arrays.asList("serviceGroup", "serviceDefinition"), services, EntityResolver::serviceKey);
+  }
+
+  static Map<List<Object>, ArrowheadCloud> resolveClouds(Collection<ArrowheadCloud> clouds) {
+    return resolve(ArrowheadCloud.class, Arrays.asList("operator", "cloudName"), clouds, EntityResolver::cloudKey);
+  }
+
+  private static <T> Map<List<Object>, T> resolve(Class<T> entityClass, List<String> keyProperties, Collection<T> entities,
+                                                  Function<T, List<Object>> keyExtractor) {
+    // One entity per natural key, so the entities differing only in case are looked up and saved once
+    Map<List<Object>, T> payloadEntities = new LinkedHashMap<>();
+    for (T entity : entities) {
+      payloadEntities.putIfAbsent(keyExtractor.apply(entity), entity);
+    }
+    Map<List<Object>, T> resolvedEntities = new HashMap<>();
+    for (T entity : dm.getByNaturalKeys(entityClass, keyProperties, payloadEntities.keySet()).values()) {
+      resolvedEntities.put(keyExtractor.apply(entity), entity);
+    }
+
+    List<T> missingEntities = new ArrayList<>();
+    for (Entry<List<Object>, T> entry : payloadEntities.entrySet()) {
+      if (!resolvedEntities.containsKey(entry.getKey())) {
+        missingEntities.add(entry.getValue());
+      }
+    }
+    if (missingEntities.isEmpty()) {
+      return resolvedEntities;
+    }
+
+    log.info(missingEntities.size() + " " + entityClass.getSimpleName() + " entities were not in the database, saving them now.");
+    for (T savedEntity : dm.saveAll(missingEntities)) {
+      resolvedEntities.put(keyExtractor.apply(savedEntity), savedEntity);
+    }
+    // The entities skipped by saveAll were saved by someone else in the meantime (or could not be saved at all), so they are queried again
+    List<List<Object>> skippedKeys = new ArrayList<>();
+    for (T entity : missingEntities) {
+      List<Object> key = keyExtractor.apply(entity);
+      if (!resolvedEntities.containsKey(key)) {
+        skippedKeys.add(key);
+      }
+    }
+    if (!skippedKeys.isEmpty()) {
+      for (T entity : dm.getByNaturalKeys(entityClass, keyProperties, skippedKeys).values()) {
+        resolvedEntities.put(keyExtractor.apply(entity), entity);
+      }
+      for (List<Object> key : skippedKeys) {
+        if (!resolvedEntities.containsKey(key)) {
+          log.error("EntityResolver: " + entityClass.getSimpleName() + " " + key + " could not be saved");
+          throw new DuplicateEntryException(
+              entityClass.getSimpleName() + " " + key + " could not be saved to the database, because it conflicts with an existing entry.");
+        }
+      }
+    }
+
+    return resolvedEntities;
+  }
+
+}
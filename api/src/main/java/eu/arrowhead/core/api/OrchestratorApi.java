@@ -1,6 +1,8 @@
 package eu.arrowhead.core.api;
 
 import eu.arrowhead.common.DatabaseManager;
+import eu.arrowhead.common.JsonArrayStreamingOutput;
+import eu.arrowhead.common.Utility;
 import eu.arrowhead.common.database.ArrowheadCloud;
 import eu.arrowhead.common.database.ArrowheadService;
 import eu.arrowhead.common.database.ArrowheadSystem;
@@ -12,16 +14,22 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Providers;
 import org.apache.log4j.Logger;
 
 @Path("orchestrator/store")
@@ -60,13 +68,37 @@ public class OrchestratorApi {
   }
 
   /**
-   * Returns all the entries of the Orchestration Store.
+   * Returns all the entries of the Orchestration Store, sorted by priority. Big stores can be listed with bounded memory use in two ways:
+   * <ul>
+   * <li><tt>?limit=N&amp;after=token</tt> returns one page of at most N entries (ordered by id, not by priority). The token of the next page is in
+   * the <i>X-Next-Page-Token</i> response header, which is missing on the last page.</li>
+   * <li><tt>?stream=true</tt> writes the entries (ordered by id) to the response as they are read from the database.</li>
+   * </ul>
    *
    * @return List<OrchestrationStore>
    */
   @GET
   @Path("all")
-  public List<OrchestrationStore> getAllStoreEntries() {
+  public Response getAllStoreEntries(@QueryParam("limit") Integer limit, @QueryParam("after") @DefaultValue("0") int after,
+                                     @QueryParam("stream") boolean stream, @Context Providers providers) {
+    if (stream) {
+      log.info("getAllStoreEntries streams the entries.");
+      return Response.ok(new JsonArrayStreamingOutput<>(OrchestrationStore.class, providers,
+                                                        consumer -> dm.scroll(OrchestrationStore.class, restrictionMap, consumer))).build();
+    }
+    if (limit != null) {
+      if (limit <= 0) {
+        throw new BadPayloadException("Bad request: the limit query parameter has to be positive.");
+      }
+      List<OrchestrationStore> page = dm.getPage(OrchestrationStore.class, restrictionMap, after, limit);
+      Response.ResponseBuilder builder = Response.ok(new GenericEntity<List<OrchestrationStore>>(page) {
+      });
+      if (page.size() == limit) {
+        builder.header(Utility.NEXT_PAGE_TOKEN_HEADER, page.get(page.size() - 1).getId());
+      }
+      log.info("getAllStoreEntries returns a page of " + page.size() + " entries.");
+      return builder.build();
+    }
 
     List<OrchestrationStore> store = new ArrayList<>();
     store = dm.getAll(OrchestrationStore.class, restrictionMap);
@@ -77,7 +109,8 @@ public class OrchestratorApi {
 
     Collections.sort(store);
     log.info("getAllStoreEntries successfully returns.");
-    return store;
+    return Response.ok(new GenericEntity<List<OrchestrationStore>>(store) {
+    }).build();
   }
 
   /**
@@ -149,64 +182,55 @@ public class OrchestratorApi {
   }*/
 
   /**
-   * Adds a list of Orchestration Store entries to the database. Elements which would throw BadPayloadException are being skipped. The returned list
-   * only contains the elements which was saved in the process.
+   * Adds a list of Orchestration Store entries to the database. Elements which would throw BadPayloadException or DuplicateEntryException are being
+   * skipped. The returned list only contains the elements which was saved in the process.
    *
    * @return List<OrchestrationStore>
    */
   @POST
   public List<OrchestrationStore> addStoreEntries(List<OrchestrationStore> storeEntries) {
 
-    List<OrchestrationStore> store = new ArrayList<>();
+    List<OrchestrationStore> validEntries = new ArrayList<>();
+    List<ArrowheadSystem> systems = new ArrayList<>();
+    List<ArrowheadService> services = new ArrayList<>();
+    List<ArrowheadCloud> clouds = new ArrayList<>();
     for (OrchestrationStore entry : storeEntries) {
       if (entry.isValid()) {
-        restrictionMap.clear();
-        restrictionMap.put("systemGroup", entry.getConsumer().getSystemGroup());
-        restrictionMap.put("systemName", entry.getConsumer().getSystemName());
-        ArrowheadSystem consumer = dm.get(ArrowheadSystem.class, restrictionMap);
-        if (consumer == null) {
-          consumer = dm.save(entry.getConsumer());
-        }
-
-        restrictionMap.clear();
-        restrictionMap.put("serviceGroup", entry.getService().getServiceGroup());
-        restrictionMap.put("serviceDefinition", entry.getService().getServiceDefinition());
-        ArrowheadService service = dm.get(ArrowheadService.class, restrictionMap);
-        if (service == null) {
-          service = dm.save(entry.getService());
+        validEntries.add(entry);
+        systems.add(entry.getConsumer());
+        services.add(entry.getService());
+        if (entry.getProviderSystem() != null && entry.getProviderSystem().isValid()) {
+          systems.add(entry.getProviderSystem());
         }
-
-        ArrowheadCloud providerCloud = null;
         if (entry.getProviderCloud() != null && entry.getProviderCloud().isValid()) {
-          restrictionMap.clear();
-          restrictionMap.put("operator", entry.getProviderCloud().getOperator());
-          restrictionMap.put("cloudName", entry.getProviderCloud().getCloudName());
-          providerCloud = dm.get(ArrowheadCloud.class, restrictionMap);
-          if (providerCloud == null) {
-            providerCloud = dm.save(entry.getProviderCloud());
-          }
+          clouds.add(entry.getProviderCloud());
         }
+      }
+    }
 
-        ArrowheadSystem providerSystem = null;
-        if (entry.getProviderSystem() != null && entry.getProviderSystem().isValid()) {
-          restrictionMap.clear();
-          restrictionMap.put("systemGroup", entry.getProviderSystem().getSystemGroup());
-          restrictionMap.put("systemName", entry.getProviderSystem().getSystemName());
-          providerSystem = dm.get(ArrowheadSystem.class, restrictionMap);
-          if (providerSystem == null) {
-            providerSystem = dm.save(entry.getProviderSystem());
-          }
-        }
+    // Resolving (or saving) the referenced entities with one query per entity type, instead of 4 queries per store entry
+    Map<List<Object>, ArrowheadSystem> retrievedSystems = EntityResolver.resolveSystems(systems);
+    Map<List<Object>, ArrowheadService> retrievedServices = EntityResolver.resolveServices(services);
+    Map<List<Object>, ArrowheadCloud> retrievedClouds = EntityResolver.resolveClouds(clouds);
 
-        entry.setConsumer(consumer);
-        entry.setService(service);
-        entry.setProviderSystem(providerSystem);
-        entry.setProviderCloud(providerCloud);
-        entry.setLastUpdated(new Date());
-        dm.merge(entry);
-        store.add(entry);
+    for (OrchestrationStore entry : validEntries) {
+      ArrowheadCloud providerCloud = null;
+      if (entry.getProviderCloud() != null && entry.getProviderCloud().isValid()) {
+        providerCloud = retrievedClouds.get(EntityResolver.cloudKey(entry.getProviderCloud()));
+      }
+      ArrowheadSystem providerSystem = null;
+      if (entry.getProviderSystem() != null && entry.getProviderSystem().isValid()) {
+        providerSystem = retrievedSystems.get(EntityResolver.systemKey(entry.getProviderSystem()));
       }
+
+      entry.setConsumer(retrievedSystems.get(EntityResolver.systemKey(entry.getConsumer())));
+      entry.setService(retrievedServices.get(EntityResolver.serviceKey(entry.getService())));
+      entry.setProviderSystem(providerSystem);
+      entry.setProviderCloud(providerCloud);
+      entry.setLastUpdated(new Date());
     }
+    List<OrchestrationStore> store = dm.mergeAll(validEntries);
+    Utility.invalidateOrchestrationCache(null);
 
     log.info("addStoreEntries successfully returns. Arraylist size: " + store.size());
     return store;
@@ -294,6 +318,7 @@ public class OrchestratorApi {
       return Response.noContent().build();
     } else {
       dm.delete(entry);
+      Utility.invalidateOrchestrationCache(null);
       log.info("deleteEntry successfully returns.");
       return Response.ok().build();
     }
@@ -319,9 +344,8 @@ public class OrchestratorApi {
       log.info("deleteEntries had no effect.");
       return Response.noContent().build();
     } else {
-      for (OrchestrationStore entry : store) {
-        dm.delete(entry);
-      }
+      dm.deleteAll(store);
+      Utility.invalidateOrchestrationCache(null);
 
       log.info("deleteEntries successfully returns.");
       return Response.ok().build();
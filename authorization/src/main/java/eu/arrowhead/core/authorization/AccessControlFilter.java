@@ -28,7 +28,7 @@ public class AccessControlFilter implements ContainerRequestFilter {
     boolean isGetItCalled = requestContext.getMethod().equals("GET") && requestTarget.endsWith("authorization");
     if (sc.isSecure() && !isGetItCalled) {
       String subjectName = sc.getUserPrincipal().getName();
-      if (isClientAuthorized(subjectName)) {
+      if (isClientAuthorized(subjectName, requestContext.getUriInfo().getPath())) {
         log.info("SSL identification is successful! Cert: " + subjectName);
       } else {
         log.error(SecurityUtils.getCertCNFromSubject(subjectName) + " is unauthorized to access " + requestTarget);
@@ -37,7 +37,7 @@ public class AccessControlFilter implements ContainerRequestFilter {
     }
   }
 
-  private boolean isClientAuthorized(String subjectName) {
+  private boolean isClientAuthorized(String subjectName, String requestPath) {
     String clientCN = SecurityUtils.getCertCNFromSubject(subjectName);
     String serverCN = (String) configuration.getProperty("server_common_name");
 
@@ -53,10 +53,23 @@ public class AccessControlFilter implements ContainerRequestFilter {
       // serverFields contains: systemName, systemGroup, cloudName.operator.arrowhead.eu
       return serverFields[2].equalsIgnoreCase(clientFields[2]);
     }
-    // If it is not true, only the Orchestrator and Gatekeeper can use it
+    // If it is not true, only the Orchestrator and Gatekeeper can use it (and the management API and the Service Registry can notify it about the
+    // changes of the authorization rules, the System public keys and the Core System endpoints)
     else {
       String[] serverFields = serverCN.split("\\.", 2);
       // serverFields contains: coreSystemName, coresystems.cloudName.operator.arrowhead.eu
+      String path = Utility.stripEndSlash(requestPath);
+      if (path.endsWith("authorization/signingcert")) {
+        // Every provider of the local cloud can download the token signing certificate, to verify the version 2 tokens
+        return serverCN.split("\\.", 3)[2].equalsIgnoreCase(clientCN.split("\\.", 3)[2]);
+      }
+      if ((path.endsWith("authorization/rules") || path.endsWith("authorization/keys")) && (clientCN.equalsIgnoreCase("api." + serverFields[1])
+          || clientCN.equalsIgnoreCase("serviceregistry." + serverFields[1]))) {
+        return true;
+      }
+      if (path.endsWith("authorization/endpoints") && clientCN.equalsIgnoreCase("api." + serverFields[1])) {
+        return true;
+      }
       return clientCN.equalsIgnoreCase("orchestrator." + serverFields[1]) || clientCN.equalsIgnoreCase("gatekeeper." + serverFields[1]);
     }
   }
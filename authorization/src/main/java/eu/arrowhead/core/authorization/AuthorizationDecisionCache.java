@@ -0,0 +1,186 @@
+package eu.arrowhead.core.authorization;
+
+import eu.arrowhead.common.ExpiringCache;
+import eu.arrowhead.common.database.ArrowheadSystem;
+import eu.arrowhead.common.exception.DataNotFoundException;
+import eu.arrowhead.common.messages.InterCloudAuthRequest;
+import eu.arrowhead.common.messages.IntraCloudAuthRequest;
+import eu.arrowhead.common.messages.IntraCloudAuthResponse;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.apache.log4j.Logger;
+
+/**
+ * Caches the authorization decisions for a short time, since the consumers retry their orchestrations frequently with the same (consumer, service,
+ * providers) and (cloud, service) tuples. The negative decisions are cached too: unknown consumer or cloud (which is answered with a
+ * <tt>DataNotFoundException</tt>), unknown service and not authorized providers, so repeated denials do not cost any database query either.
+ * <p>
+ * Entries expire after <i>decision_cache_ttl</i> milliseconds, and the least recently used entry is evicted above <i>decision_cache_max_size</i>
+ * entries. When the management API changes the rights of a consumer System or a Cloud, the decisions about that consumer (or Cloud) are dropped,
+ * both right away and when the rule index finished its rebuild. The changes made directly in the database show up after the TTL.
+ */
+final class AuthorizationDecisionCache {
+
+  private static Logger log = Logger.getLogger(AuthorizationDecisionCache.class.getName());
+  private static final long TTL = Long.valueOf(AuthorizationMain.getProp().getProperty("decision_cache_ttl", "10000"));
+  private static final int MAX_SIZE = Integer.valueOf(AuthorizationMain.getProp().getProperty("decision_cache_max_size", "10000"));
+  private static final ExpiringCache<Key, Decision> cache = new ExpiringCache<>(TTL, MAX_SIZE);
+  // The inter-cloud decisions have no providers, a positive decision is marked with this placeholder
+  private static final Set<List<String>> INTER_CLOUD_AUTHORIZED = Collections.singleton(Collections.emptyList());
+
+  private AuthorizationDecisionCache() throws AssertionError {
+    throw new AssertionError("AuthorizationDecisionCache is a non-instantiable class");
+  }
+
+  /**
+   * Returns the cached intra-cloud decision of the request, or makes (and caches) it with the given function.
+   *
+   * @throws DataNotFoundException if the consumer System is unknown (also when this was cached)
+   */
+  static IntraCloudAuthResponse getIntraCloud(IntraCloudAuthRequest request, Supplier<IntraCloudAuthResponse> decision) {
+    // The decision only depends on the group and name of the providers, so the key does not contain their address and port
+    Set<List<String>> providerKeys = new HashSet<>();
+    for (ArrowheadSystem provider : request.getProviders()) {
+      providerKeys.add(providerKey(provider));
+    }
+    Key key = new Key(true, request.getConsumer().getSystemGroup(), request.getConsumer().getSystemName(), request.getService().getServiceGroup(),
+                      request.getService().getServiceDefinition(), providerKeys);
+
+    Decision cached = lookup(key);
+    if (cached == null) {
+      long currentGeneration = cache.getGeneration();
+      IntraCloudAuthResponse response;
+      try {
+        response = decision.get();
+      } catch (DataNotFoundException e) {
+        put(key, new Decision(e.getMessage(), null), currentGeneration);
+        throw e;
+      }
+      Set<List<String>> authorizedProviders = new HashSet<>();
+      for (Map.Entry<ArrowheadSystem, Boolean> state : response.getAuthorizationMap().entrySet()) {
+        if (Boolean.TRUE.equals(state.getValue())) {
+          authorizedProviders.add(providerKey(state.getKey()));
+        }
+      }
+      put(key, new Decision(null, authorizedProviders), currentGeneration);
+      return response;
+    }
+
+    HashMap<ArrowheadSystem, Boolean> authorizationState = new HashMap<>();
+    for (ArrowheadSystem provider : request.getProviders()) {
+      authorizationState.put(provider, cached.authorizedProviders.contains(providerKey(provider)));
+    }
+    return new IntraCloudAuthResponse(authorizationState);
+  }
+
+  /**
+   * Returns the cached inter-cloud decision of the request, or makes (and caches) it with the given function.
+   *
+   * @throws DataNotFoundException if the Cloud is unknown (also when this was cached)
+   */
+  static boolean getInterCloud(InterCloudAuthRequest request, Supplier<Boolean> decision) {
+    Key key = new Key(false, request.getCloud().getOperator(), request.getCloud().getCloudName(), request.getService().getServiceGroup(),
+                      request.getService().getServiceDefinition(), null);
+
+    Decision cached = lookup(key);
+    if (cached == null) {
+      long currentGeneration = cache.getGeneration();
+      boolean isAuthorized;
+      try {
+        isAuthorized = decision.get();
+      } catch (DataNotFoundException e) {
+        put(key, new Decision(e.getMessage(), null), currentGeneration);
+        throw e;
+      }
+      put(key, new Decision(null, isAuthorized ? INTER_CLOUD_AUTHORIZED : Collections.emptySet()), currentGeneration);
+      return isAuthorized;
+    }
+    return !cached.authorizedProviders.isEmpty();
+  }
+
+  /**
+   * Drops the cached decisions about the given consumer System (<tt>systemGroup</tt>, <tt>systemName</tt>) or Cloud (<tt>operator</tt>,
+   * <tt>cloudName</tt>). If every parameter is <tt>null</tt>, every cached decision is dropped.
+   */
+  static void invalidate(String systemGroup, String systemName, String operator, String cloudName) {
+    if (systemGroup == null && systemName == null && operator == null && cloudName == null) {
+      cache.invalidateAll();
+      log.info("Every cached authorization decision is invalidated.");
+      return;
+    }
+    List<String> system = AuthorizationRuleIndex.naturalKey(systemGroup, systemName);
+    List<String> cloud = AuthorizationRuleIndex.naturalKey(operator, cloudName);
+    cache.invalidateIf(key -> (key.intraCloud && systemName != null && key.requester.equals(system)) || (!key.intraCloud && cloudName != null && key
+        .requester.equals(cloud)));
+    log.info("Cached authorization decisions of " + (systemName != null ? systemGroup + "/" + systemName : operator + "/" + cloudName)
+                 + " are invalidated.");
+  }
+
+  /**
+   * Returns the size and the hit/miss counters of the cache, in a human readable form.
+   */
+  static String getStatistics() {
+    return "Authorization decision cache: " + cache.size() + " entries, " + cache.getHitCount() + " hits, " + cache.getMissCount() + " misses";
+  }
+
+  private static List<String> providerKey(ArrowheadSystem provider) {
+    return AuthorizationRuleIndex.naturalKey(provider.getSystemGroup(), provider.getSystemName());
+  }
+
+  private static Decision lookup(Key key) {
+    Decision cached = cache.getIfPresent(key);
+    if (cached != null && cached.notFoundMessage != null) {
+      throw new DataNotFoundException(cached.notFoundMessage);
+    }
+    return cached;
+  }
+
+  // A decision which was made during an invalidation does not get in the cache
+  private static void put(Key key, Decision decision, long decisionGeneration) {
+    cache.put(key, decision, decisionGeneration);
+  }
+
+  private static final class Key {
+
+    private final boolean intraCloud;
+    // Consumer System group and name, or Cloud operator and name, matched case-insensitively like in the rule index
+    private final List<String> requester;
+    private final List<Object> values;
+
+    private Key(boolean intraCloud, String requesterFirst, String requesterSecond, String serviceGroup, String serviceDefinition,
+                Set<List<String>> providers) {
+      this.intraCloud = intraCloud;
+      requester = AuthorizationRuleIndex.naturalKey(requesterFirst, requesterSecond);
+      values = Arrays.asList(intraCloud, requester, AuthorizationRuleIndex.naturalKey(serviceGroup, serviceDefinition), providers);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return this == o || (o instanceof Key && values.equals(((Key) o).values));
+    }
+
+    @Override
+    public int hashCode() {
+      return values.hashCode();
+    }
+  }
+
+  // Either the message of the DataNotFoundException, or the group and name of the authorized providers
+  private static final class Decision {
+
+    private final String notFoundMessage;
+    private final Set<List<String>> authorizedProviders;
+
+    private Decision(String notFoundMessage, Set<List<String>> authorizedProviders) {
+      this.notFoundMessage = notFoundMessage;
+      this.authorizedProviders = authorizedProviders;
+    }
+  }
+
+}
@@ -7,18 +7,21 @@ import eu.arrowhead.common.database.ArrowheadSystem;
 import eu.arrowhead.common.database.ServiceRegistryEntry;
 import eu.arrowhead.common.exception.AuthenticationException;
 import eu.arrowhead.common.security.SecurityUtils;
+import eu.arrowhead.common.security.TokenFormatV2;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URI;
+import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.Properties;
+import java.util.ServiceConfigurationError;
 import javax.net.ssl.SSLContext;
 import javax.ws.rs.core.UriBuilder;
 import org.apache.log4j.Logger;
@@ -32,6 +35,9 @@ import org.glassfish.jersey.server.ResourceConfig;
 class AuthorizationMain {
 
   static PrivateKey privateKey = null;
+  // Signs the version 2 tokens, see TokenGenerationService
+  static PrivateKey tokenSigningKey = null;
+  static X509Certificate tokenSigningCert = null;
   private static HttpServer server = null;
   private static HttpServer secureServer = null;
   private static Logger log = Logger.getLogger(AuthorizationMain.class.getName());
@@ -45,6 +51,9 @@ class AuthorizationMain {
     PropertyConfigurator.configure("config" + File.separator + "log4j.properties");
     KeyStore keyStore = SecurityUtils.loadKeyStore(getProp().getProperty("keystore"), getProp().getProperty("keystorepass"));
     privateKey = SecurityUtils.getPrivateKey(keyStore, getProp().getProperty("keystorepass"));
+    if (TokenGenerationService.TOKEN_FORMAT_V2) {
+      loadTokenSigningKey();
+    }
 
     boolean daemon = false;
     boolean serverModeSet = false;
@@ -84,6 +93,12 @@ class AuthorizationMain {
 
     //This is here to initialize the database connection before the REST resources are initiated
     DatabaseManager dm = DatabaseManager.getInstance();
+    AuthorizationRuleIndex.start(Long.valueOf(getProp().getProperty("rule_index_reload_interval", "300000")));
+    try {
+      PublicKeyCache.warmUp();
+    } catch (RuntimeException e) {
+      log.error("Loading the public keys failed, they are loaded on demand: " + e.getMessage());
+    }
     if (daemon) {
       System.out.println("In daemon mode, process will terminate for TERM signal...");
       Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -102,6 +117,40 @@ class AuthorizationMain {
     }
   }
 
+  /*
+    The version 2 tokens are signed with the EC key of the token signing keystore. Its certificate has to be issued by the cloud certificate, so the
+    providers can check it with their truststore after downloading it from authorization/signingcert (see TokenFormatV2).
+   */
+  private static void loadTokenSigningKey() {
+    String keystorePath = getProp().getProperty("token_signing_keystore");
+    if (keystorePath == null) {
+      log.fatal("The v2 token format needs the token_signing_keystore and token_signing_keystorepass properties.");
+      throw new ServiceConfigurationError("The v2 token format needs the token_signing_keystore and token_signing_keystorepass properties.");
+    }
+    String keystorePass = getProp().getProperty("token_signing_keystorepass");
+    KeyStore signingKeyStore = SecurityUtils.loadKeyStore(keystorePath, keystorePass);
+    PrivateKey signingKey = SecurityUtils.getPrivateKey(signingKeyStore, keystorePass);
+    X509Certificate signingCert = SecurityUtils.getFirstCertFromKeyStore(signingKeyStore);
+    if (!"EC".equals(signingKey.getAlgorithm())) {
+      log.fatal("The key of the token_signing_keystore is not an EC key.");
+      throw new ServiceConfigurationError("The key of the token_signing_keystore (" + signingKey.getAlgorithm() + ") is not an EC key.");
+    }
+
+    String truststorePath = getProp().getProperty("truststore");
+    if (truststorePath != null) {
+      try {
+        TokenFormatV2.getVerificationKey(signingCert, SecurityUtils.loadKeyStore(truststorePath, getProp().getProperty("truststorepass")));
+      } catch (GeneralSecurityException e) {
+        log.fatal("The providers would not accept the token signing certificate: " + e.getMessage());
+        throw new ServiceConfigurationError("The providers would not accept the token signing certificate: " + e.getMessage(), e);
+      }
+    }
+    tokenSigningKey = signingKey;
+    tokenSigningCert = signingCert;
+    log.info("Version 2 tokens are signed with " + TokenFormatV2.getSignatureAlgorithm(signingKey.getAlgorithm()) + ", certificate: " + signingCert
+        .getSubjectDN().getName());
+  }
+
   private static HttpServer startServer() throws IOException {
     log.info("Starting server at: " + BASE_URI);
     System.out.println("Starting insecure server at: " + BASE_URI);
@@ -213,6 +262,7 @@ class AuthorizationMain {
   }
 
   private static void shutdown() {
+    AuthorizationRuleIndex.shutdown();
     if (server != null) {
       log.info("Stopping server at: " + BASE_URI);
       server.shutdownNow();
@@ -1,11 +1,9 @@
 package eu.arrowhead.core.authorization;
 
 import eu.arrowhead.common.DatabaseManager;
+import eu.arrowhead.common.Utility;
 import eu.arrowhead.common.database.ArrowheadCloud;
-import eu.arrowhead.common.database.ArrowheadService;
 import eu.arrowhead.common.database.ArrowheadSystem;
-import eu.arrowhead.common.database.InterCloudAuthorization;
-import eu.arrowhead.common.database.IntraCloudAuthorization;
 import eu.arrowhead.common.exception.BadPayloadException;
 import eu.arrowhead.common.exception.DataNotFoundException;
 import eu.arrowhead.common.messages.ArrowheadToken;
@@ -16,14 +14,19 @@ import eu.arrowhead.common.messages.IntraCloudAuthResponse;
 import eu.arrowhead.common.messages.TokenData;
 import eu.arrowhead.common.messages.TokenGenerationRequest;
 import eu.arrowhead.common.messages.TokenGenerationResponse;
+import java.security.cert.CertificateEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
@@ -38,8 +41,8 @@ import org.apache.log4j.Logger;
 public class AuthorizationResource {
 
   private static Logger log = Logger.getLogger(AuthorizationResource.class.getName());
-  private HashMap<String, Object> restrictionMap = new HashMap<>();
   static DatabaseManager dm = DatabaseManager.getInstance();
+  static final List<String> SYSTEM_NATURAL_KEY = Arrays.asList("systemGroup", "systemName");
 
   @GET
   @Produces(MediaType.TEXT_PLAIN)
@@ -63,44 +66,31 @@ public class AuthorizationResource {
       throw new BadPayloadException("IntraCloudAuthRequest bad payload: missing/incomplete consumer, service or providerList in the request.");
     }
 
-    restrictionMap.put("systemGroup", request.getConsumer().getSystemGroup());
-    restrictionMap.put("systemName", request.getConsumer().getSystemName());
-    ArrowheadSystem consumer = dm.get(ArrowheadSystem.class, restrictionMap);
-    if (consumer == null) {
+    IntraCloudAuthResponse response = AuthorizationDecisionCache.getIntraCloud(request, () -> decideIntraCloud(request));
+    return Response.status(Status.OK).entity(response).build();
+  }
+
+  private static IntraCloudAuthResponse decideIntraCloud(IntraCloudAuthRequest request) {
+    // The decision is made from the in-memory rule index, the database is only queried for consumers without any authorization rule
+    Integer consumerId = AuthorizationRuleIndex.getSystemId(request.getConsumer().getSystemGroup(), request.getConsumer().getSystemName());
+    if (consumerId == null && dm.getNamed(ArrowheadSystem.class, ArrowheadSystem.FIND_BY_GROUP_AND_NAME, request.getConsumer().getSystemGroup(),
+                                          request.getConsumer().getSystemName()) == null) {
       log.error("Consumer is not in the database. isSystemAuthorized DataNotFoundException");
       throw new DataNotFoundException("Consumer System is not in the authorization database. " + request.getConsumer().toString());
     }
 
-    IntraCloudAuthResponse response = new IntraCloudAuthResponse();
     HashMap<ArrowheadSystem, Boolean> authorizationState = new HashMap<>();
-    restrictionMap.clear();
-    restrictionMap.put("serviceGroup", request.getService().getServiceGroup());
-    restrictionMap.put("serviceDefinition", request.getService().getServiceDefinition());
-    ArrowheadService service = dm.get(ArrowheadService.class, restrictionMap);
-    if (service == null) {
-      log.info("Service " + request.getService().toString() + " is not in the database. Returning NOT AUTHORIZED state for the consumer.");
-      for (ArrowheadSystem provider : request.getProviders()) {
-        authorizationState.put(provider, false);
-      }
-      response.setAuthorizationMap(authorizationState);
-      return Response.status(Status.OK).entity(response).build();
-    }
+    Integer serviceId = AuthorizationRuleIndex.getServiceId(request.getService().getServiceGroup(), request.getService().getServiceDefinition());
+    int[] authorizedProviderIds = consumerId == null || serviceId == null ? new int[0]
+                                                                          : AuthorizationRuleIndex.getAuthorizedProviderIds(consumerId, serviceId);
 
-    IntraCloudAuthorization authRight;
     int authorizedCount = 0;
     for (ArrowheadSystem provider : request.getProviders()) {
-      restrictionMap.clear();
-      restrictionMap.put("systemGroup", provider.getSystemGroup());
-      restrictionMap.put("systemName", provider.getSystemName());
-      ArrowheadSystem retrievedSystem = dm.get(ArrowheadSystem.class, restrictionMap);
-
-      restrictionMap.clear();
-      restrictionMap.put("consumer", consumer);
-      restrictionMap.put("provider", retrievedSystem);
-      restrictionMap.put("service", service);
-      authRight = dm.get(IntraCloudAuthorization.class, restrictionMap);
-
-      if (authRight == null) {
+      Integer providerId = null;
+      if (authorizedProviderIds.length > 0) {
+        providerId = AuthorizationRuleIndex.getSystemId(provider.getSystemGroup(), provider.getSystemName());
+      }
+      if (providerId == null || Arrays.binarySearch(authorizedProviderIds, providerId) < 0) {
         authorizationState.put(provider, false);
       } else {
         authorizationState.put(provider, true);
@@ -109,8 +99,7 @@ public class AuthorizationResource {
     }
 
     log.info("IntraCloud auth check for consumer " + request.getConsumer().toString() + " returns with " + authorizedCount + " possible provider");
-    response.setAuthorizationMap(authorizationState);
-    return Response.status(Status.OK).entity(response).build();
+    return new IntraCloudAuthResponse(authorizationState);
   }
 
   /**
@@ -128,36 +117,85 @@ public class AuthorizationResource {
       throw new BadPayloadException("InterCloudAuthRequest bad payload: missing/incomplete cloud or service in the request payload.");
     }
 
-    restrictionMap.put("operator", request.getCloud().getOperator());
-    restrictionMap.put("cloudName", request.getCloud().getCloudName());
-    ArrowheadCloud cloud = dm.get(ArrowheadCloud.class, restrictionMap);
-    if (cloud == null) {
+    boolean isAuthorized = AuthorizationDecisionCache.getInterCloud(request, () -> decideInterCloud(request));
+    log.info("Consumer Cloud is authorized: " + isAuthorized);
+    return Response.status(Status.OK).entity(new InterCloudAuthResponse(isAuthorized)).build();
+  }
+
+  private static boolean decideInterCloud(InterCloudAuthRequest request) {
+    Integer cloudId = AuthorizationRuleIndex.getCloudId(request.getCloud().getOperator(), request.getCloud().getCloudName());
+    if (cloudId == null && dm.getNamed(ArrowheadCloud.class, ArrowheadCloud.FIND_BY_OPERATOR_AND_NAME, request.getCloud().getOperator(),
+                                       request.getCloud().getCloudName()) == null) {
       log.error("Requester cloud is not in the database. (isCloudAuthorized DataNotFoundException)");
       throw new DataNotFoundException("Consumer Cloud is not in the authorization database. " + request.getCloud().toString());
     }
 
-    restrictionMap.clear();
-    restrictionMap.put("serviceGroup", request.getService().getServiceGroup());
-    restrictionMap.put("serviceDefinition", request.getService().getServiceDefinition());
-    ArrowheadService service = dm.get(ArrowheadService.class, restrictionMap);
-    if (service == null) {
-      log.info("Service " + request.getService().toString() + " is not in the database. Returning NOT AUTHORIZED state for the consumer.");
-      return Response.status(Status.OK).entity(new InterCloudAuthResponse(false)).build();
-    }
+    Integer serviceId = AuthorizationRuleIndex.getServiceId(request.getService().getServiceGroup(), request.getService().getServiceDefinition());
+    return cloudId != null && serviceId != null && AuthorizationRuleIndex.isCloudAuthorized(cloudId, serviceId);
+  }
 
-    InterCloudAuthorization authRight;
-    restrictionMap.clear();
-    restrictionMap.put("cloud", cloud);
-    restrictionMap.put("service", service);
-    authRight = dm.get(InterCloudAuthorization.class, restrictionMap);
+  /**
+   * Rebuilds the in-memory authorization rule index in the background, and drops the cached decisions about the given consumer System or Cloud
+   * (every cached decision, if neither is given). Called by the management API after it changed the authorization rules.
+   */
+  @DELETE
+  @Path("rules")
+  public Response reloadRules(@QueryParam("systemGroup") String systemGroup, @QueryParam("systemName") String systemName,
+                              @QueryParam("operator") String operator, @QueryParam("cloudName") String cloudName) {
+    AuthorizationDecisionCache.invalidate(systemGroup, systemName, operator, cloudName);
+    AuthorizationRuleIndex.requestReload(() -> AuthorizationDecisionCache.invalidate(systemGroup, systemName, operator, cloudName));
+    return Response.status(Status.OK).build();
+  }
 
-    boolean isAuthorized = false;
-    if (authRight != null) {
-      isAuthorized = true;
+  /**
+   * Drops the cached public key of the given System. Called by the management API and the Service Registry when the <i>authenticationInfo</i> of
+   * the System changed.
+   */
+  @DELETE
+  @Path("keys")
+  public Response invalidatePublicKey(@QueryParam("systemGroup") String systemGroup, @QueryParam("systemName") String systemName) {
+    if (systemGroup == null || systemName == null) {
+      log.error("invalidatePublicKey BadPayloadException");
+      throw new BadPayloadException("Bad request: the systemGroup and systemName query parameters are mandatory.");
     }
+    PublicKeyCache.invalidate(systemGroup, systemName);
+    return Response.status(Status.OK).build();
+  }
 
-    log.info("Consumer Cloud is authorized: " + isAuthorized);
-    return Response.status(Status.OK).entity(new InterCloudAuthResponse(isAuthorized)).build();
+  /**
+   * Drops the cached Core System, Neighbor Cloud and Own Cloud entries of this Core System. Called by the management API after it changed these
+   * tables.
+   */
+  @DELETE
+  @Path("endpoints")
+  public Response invalidateEndpointCache() {
+    Utility.invalidateEndpointCache();
+    return Response.status(Status.OK).build();
+  }
+
+  /**
+   * Returns the size and the hit/miss counters of the authorization decision cache.
+   */
+  @GET
+  @Path("cache")
+  @Produces(MediaType.TEXT_PLAIN)
+  public String getCacheStatistics() {
+    return AuthorizationDecisionCache.getStatistics();
+  }
+
+  /**
+   * Returns the Base64 encoded (DER) certificate of the key signing the version 2 tokens. The providers check it with their truststore, and verify
+   * the token signatures with its public key (see {@link eu.arrowhead.common.security.TokenFormatV2#getVerificationKey}).
+   */
+  @GET
+  @Path("signingcert")
+  @Produces(MediaType.TEXT_PLAIN)
+  public String getTokenSigningCertificate() throws CertificateEncodingException {
+    if (AuthorizationMain.tokenSigningCert == null) {
+      log.info("getTokenSigningCertificate DataNotFoundException");
+      throw new DataNotFoundException("The version 2 token format is not enabled, the tokens are signed with the key of the server certificate.");
+    }
+    return Base64.getEncoder().encodeToString(AuthorizationMain.tokenSigningCert.getEncoded());
   }
 
   /**
@@ -0,0 +1,219 @@
+package eu.arrowhead.core.authorization;
+
+import eu.arrowhead.common.DatabaseManager;
+import eu.arrowhead.common.database.ArrowheadCloud;
+import eu.arrowhead.common.database.ArrowheadService;
+import eu.arrowhead.common.database.ArrowheadSystem;
+import eu.arrowhead.common.database.InterCloudAuthorization;
+import eu.arrowhead.common.database.IntraCloudAuthorization;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.log4j.Logger;
+
+/**
+ * In-memory index of the <tt>IntraCloudAuthorization</tt> and <tt>InterCloudAuthorization</tt> rules, so the authorization checks do not need any
+ * database query. The intra-cloud rules are indexed by the (consumer id, service id) pair, pointing to the sorted ids of the authorized providers,
+ * the inter-cloud rules by the (cloud id, service id) pair. The Systems, Services and Clouds appearing in the rules are indexed by their natural
+ * keys, to resolve the request payloads to ids. The natural keys are matched case-insensitively, the same way as the default collation of the
+ * database matches them.
+ * <p>
+ * The index is rebuilt from the database as a whole and swapped atomically, so the lookups never lock. A rebuild is requested by the management
+ * API after every change of the authorization rules (see {@link eu.arrowhead.common.Utility#reloadAuthorizationRules(ArrowheadSystem)}), and it
+ * also runs every <i>rule_index_reload_interval</i> milliseconds, to pick up the changes made directly in the database.
+ */
+final class AuthorizationRuleIndex {
+
+  private static Logger log = Logger.getLogger(AuthorizationRuleIndex.class.getName());
+  private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "authorization-rule-index");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private static final AtomicBoolean reloadPending = new AtomicBoolean();
+  private static final Queue<Runnable> afterReloadCallbacks = new ConcurrentLinkedQueue<>();
+
+  // Null until the first successful load
+  private static volatile Rules rules;
+
+  private AuthorizationRuleIndex() throws AssertionError {
+    throw new AssertionError("AuthorizationRuleIndex is a non-instantiable class");
+  }
+
+  /**
+   * Loads the index, and schedules the periodic reload.
+   */
+  static void start(long reloadInterval) {
+    try {
+      reload();
+    } catch (RuntimeException e) {
+      log.error("Loading the authorization rules failed, retrying at the next query: " + e.getMessage());
+    }
+    if (reloadInterval > 0) {
+      scheduler.scheduleWithFixedDelay(AuthorizationRuleIndex::reloadQuietly, reloadInterval, reloadInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  static void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  /**
+   * Rebuilds the index in the background, then runs the given callback. The requests arriving while a rebuild is waiting to start are served by
+   * that single rebuild.
+   */
+  static void requestReload(Runnable afterReload) {
+    afterReloadCallbacks.add(afterReload);
+    if (reloadPending.compareAndSet(false, true)) {
+      try {
+        scheduler.execute(() -> {
+          reloadPending.set(false);
+          // Only the callbacks of the requests which arrived before the rebuild started are sure to see their changes in the rebuilt index
+          List<Runnable> callbacks = new ArrayList<>();
+          Runnable callback;
+          while ((callback = afterReloadCallbacks.poll()) != null) {
+            callbacks.add(callback);
+          }
+          reloadQuietly();
+          callbacks.forEach(Runnable::run);
+        });
+      } catch (RejectedExecutionException e) {
+        reloadPending.set(false);
+      }
+    }
+  }
+
+  /**
+   * Rebuilds the index from the database, and swaps it in.
+   */
+  static synchronized void reload() {
+    DatabaseManager dm = DatabaseManager.getInstance();
+    Rules freshRules = new Rules();
+    Map<Long, Set<Integer>> providerIds = new HashMap<>();
+    int intraCount = dm.scroll(IntraCloudAuthorization.class, null, authRight -> {
+      int consumerId = freshRules.addSystem(authRight.getConsumer());
+      int providerId = freshRules.addSystem(authRight.getProvider());
+      int serviceId = freshRules.addService(authRight.getService());
+      providerIds.computeIfAbsent(key(consumerId, serviceId), k -> new HashSet<>()).add(providerId);
+    });
+    for (Map.Entry<Long, Set<Integer>> entry : providerIds.entrySet()) {
+      int[] ids = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+      Arrays.sort(ids);
+      freshRules.intraCloud.put(entry.getKey(), ids);
+    }
+    int interCount = dm.scroll(InterCloudAuthorization.class, null, authRight -> {
+      int cloudId = freshRules.addCloud(authRight.getCloud());
+      int serviceId = freshRules.addService(authRight.getService());
+      freshRules.interCloud.add(key(cloudId, serviceId));
+    });
+
+    rules = freshRules;
+    log.debug("Authorization rule index reloaded: " + intraCount + " intra-cloud and " + interCount + " inter-cloud rules");
+  }
+
+  /**
+   * Returns the id of the System, or null if it is not part of any intra-cloud authorization rule.
+   */
+  static Integer getSystemId(String systemGroup, String systemName) {
+    return getRules().systemIds.get(naturalKey(systemGroup, systemName));
+  }
+
+  /**
+   * Returns the id of the Service, or null if it is not part of any authorization rule.
+   */
+  static Integer getServiceId(String serviceGroup, String serviceDefinition) {
+    return getRules().serviceIds.get(naturalKey(serviceGroup, serviceDefinition));
+  }
+
+  /**
+   * Returns the id of the Cloud, or null if it is not part of any inter-cloud authorization rule.
+   */
+  static Integer getCloudId(String operator, String cloudName) {
+    return getRules().cloudIds.get(naturalKey(operator, cloudName));
+  }
+
+  /**
+   * Returns the sorted ids of the providers the consumer is authorized to use the Service from (empty if there are none). The returned array must
+   * not be modified.
+   */
+  static int[] getAuthorizedProviderIds(int consumerId, int serviceId) {
+    int[] ids = getRules().intraCloud.get(key(consumerId, serviceId));
+    return ids == null ? Rules.NO_IDS : ids;
+  }
+
+  static boolean isCloudAuthorized(int cloudId, int serviceId) {
+    return getRules().interCloud.contains(key(cloudId, serviceId));
+  }
+
+  /**
+   * Returns the case-insensitive natural key of a System (group, name), Service (group, definition) or Cloud (operator, name).
+   */
+  static List<String> naturalKey(String first, String second) {
+    return Arrays.asList(first == null ? null : first.toLowerCase(Locale.ROOT), second == null ? null : second.toLowerCase(Locale.ROOT));
+  }
+
+  private static Rules getRules() {
+    Rules current = rules;
+    if (current == null) {
+      // The first load failed (or is still running), the query waits for a synchronous one, which throws if the database is still not available
+      synchronized (AuthorizationRuleIndex.class) {
+        if (rules == null) {
+          reload();
+        }
+        current = rules;
+      }
+    }
+    return current;
+  }
+
+  private static void reloadQuietly() {
+    try {
+      reload();
+    } catch (RuntimeException e) {
+      log.error("Reloading the authorization rules failed: " + e.getMessage());
+    }
+  }
+
+  private static long key(int firstId, int secondId) {
+    return ((long) firstId << 32) | (secondId & 0xffffffffL);
+  }
+
+  private static final class Rules {
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final Map<List<String>, Integer> systemIds = new HashMap<>();
+    private final Map<List<String>, Integer> serviceIds = new HashMap<>();
+    private final Map<List<String>, Integer> cloudIds = new HashMap<>();
+    private final Map<Long, int[]> intraCloud = new HashMap<>();
+    private final Set<Long> interCloud = new HashSet<>();
+
+    private int addSystem(ArrowheadSystem system) {
+      systemIds.put(naturalKey(system.getSystemGroup(), system.getSystemName()), system.getId());
+      return system.getId();
+    }
+
+    private int addService(ArrowheadService service) {
+      serviceIds.put(naturalKey(service.getServiceGroup(), service.getServiceDefinition()), service.getId());
+      return service.getId();
+    }
+
+    private int addCloud(ArrowheadCloud cloud) {
+      cloudIds.put(naturalKey(cloud.getOperator(), cloud.getCloudName()), cloud.getId());
+      return cloud.getId();
+    }
+  }
+
+}
@@ -0,0 +1,118 @@
+package eu.arrowhead.core.authorization;
+
+import eu.arrowhead.common.ExpiringCache;
+import eu.arrowhead.common.database.ArrowheadSystem;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import org.apache.log4j.Logger;
+
+/**
+ * Caches the parsed RSA public keys of the <tt>ArrowheadSystem</tt>s (decoded from their Base64 X.509 <i>authenticationInfo</i>) by the system group
+ * and name (matched case-insensitively, like the database does), so the token generation does not query the database and parse the keys for every
+ * request. The keys of every System are loaded at start-up, the ones missing from the cache are loaded together with one query.
+ * <p>
+ * When the <i>authenticationInfo</i> of a System changes (or the System is deleted) through the management API or the Service Registry, they call
+ * {@link eu.arrowhead.common.Utility#invalidatePublicKey(ArrowheadSystem)}, which drops the cached key. Entries also expire after
+ * <i>public_key_cache_ttl</i> milliseconds, to pick up the changes made directly in the database. The Systems without a (valid) key are not
+ * cached, so they are looked up again on every request.
+ */
+final class PublicKeyCache {
+
+  private static Logger log = Logger.getLogger(PublicKeyCache.class.getName());
+  private static final long TTL = Long.valueOf(AuthorizationMain.getProp().getProperty("public_key_cache_ttl", "3600000"));
+  private static final int MAX_SIZE = Integer.valueOf(AuthorizationMain.getProp().getProperty("public_key_cache_max_size", "100000"));
+  private static final ExpiringCache<List<String>, PublicKey> cache = new ExpiringCache<>(TTL, MAX_SIZE);
+
+  private PublicKeyCache() throws AssertionError {
+    throw new AssertionError("PublicKeyCache is a non-instantiable class");
+  }
+
+  /**
+   * Parses and caches the public key of every System in the database.
+   */
+  static void warmUp() {
+    if (TTL <= 0) {
+      return;
+    }
+    int[] loaded = new int[1];
+    AuthorizationResource.dm.scroll(ArrowheadSystem.class, null, system -> {
+      PublicKey key = parse(system);
+      if (key != null) {
+        cache.put(systemKey(system), key);
+        loaded[0]++;
+      }
+    });
+    log.info(loaded[0] + " public keys are loaded into the cache.");
+  }
+
+  /**
+   * Returns the public key of every given System (in the same order), or <tt>null</tt> for the Systems which are not in the database or do not
+   * have a valid public key.
+   */
+  static List<PublicKey> getPublicKeys(List<ArrowheadSystem> systems) {
+    List<PublicKey> keys = new ArrayList<>(systems.size());
+    List<List<String>> missingKeys = new ArrayList<>();
+    for (ArrowheadSystem system : systems) {
+      PublicKey key = cache.getIfPresent(systemKey(system));
+      if (key == null) {
+        missingKeys.add(Arrays.asList(system.getSystemGroup(), system.getSystemName()));
+      }
+      keys.add(key);
+    }
+    if (missingKeys.isEmpty()) {
+      return keys;
+    }
+
+    // Loading the missing Systems with one query (the names are matched case-insensitively)
+    long loadGeneration = cache.getGeneration();
+    Map<List<Object>, ArrowheadSystem> retrievedSystems = AuthorizationResource.dm
+        .getByNaturalKeys(ArrowheadSystem.class, AuthorizationResource.SYSTEM_NATURAL_KEY, missingKeys);
+    for (int i = 0; i < systems.size(); i++) {
+      if (keys.get(i) != null) {
+        continue;
+      }
+      ArrowheadSystem system = systems.get(i);
+      ArrowheadSystem retrievedSystem = retrievedSystems.get(Arrays.asList(system.getSystemGroup(), system.getSystemName()));
+      // In theory the System is always found, since the Orchestrator filters out the Systems which are not in the database
+      PublicKey key = retrievedSystem == null ? null : parse(retrievedSystem);
+      cache.put(systemKey(system), key, loadGeneration);
+      keys.set(i, key);
+    }
+    return keys;
+  }
+
+  static void invalidate(String systemGroup, String systemName) {
+    cache.invalidate(AuthorizationRuleIndex.naturalKey(systemGroup, systemName));
+    log.info("Cached public key of " + systemGroup + "/" + systemName + " is invalidated.");
+  }
+
+  private static List<String> systemKey(ArrowheadSystem system) {
+    return AuthorizationRuleIndex.naturalKey(system.getSystemGroup(), system.getSystemName());
+  }
+
+  private static PublicKey parse(ArrowheadSystem system) {
+    if (system.getAuthenticationInfo() == null) {
+      return null;
+    }
+    try {
+      byte[] byteKey = Base64.getDecoder().decode(system.getAuthenticationInfo());
+      return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(byteKey));
+    } catch (InvalidKeySpecException | IllegalArgumentException e) {
+      log.error("The stored auth info for the ArrowheadSystem " + system.toString()
+                    + " is not a proper RSA public key spec, or it is incorrectly encoded. The public key can not be generated from it.");
+      return null;
+    } catch (NoSuchAlgorithmException e) {
+      log.fatal("KeyFactory.getInstance(String) throws NoSuchAlgorithmException, code needs to be changed!");
+      return null;
+    }
+  }
+
+}
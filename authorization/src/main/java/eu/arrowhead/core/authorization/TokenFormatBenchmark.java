@@ -0,0 +1,139 @@
+package eu.arrowhead.core.authorization;
+
+import com.google.gson.Gson;
+import eu.arrowhead.common.messages.ArrowheadToken;
+import eu.arrowhead.common.messages.RawTokenInfo;
+import eu.arrowhead.common.security.TokenFormatV2;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import javax.crypto.Cipher;
+
+/**
+ * Compares the signing and verification throughput (operations per second, on one thread) of the version 1 and version 2 token formats:
+ * <ul>
+ * <li>the bare signatures: <tt>SHA1withRSA</tt> (version 1) and <tt>SHA256withECDSA</tt> (version 2) with a 2048 bit RSA and a P-256 EC key,</li>
+ * <li>the complete tokens: encryption and signing on the Authorization side, signature verification and decryption on the provider side.</li>
+ * </ul>
+ * Usage (from the authorization directory): <tt>mvn exec:java -Dexec.mainClass=eu.arrowhead.core.authorization.TokenFormatBenchmark</tt>, the
+ * optional argument is the measurement time of one operation in milliseconds (default: 5000).
+ */
+final class TokenFormatBenchmark {
+
+  private static final long WARMUP_MILLIS = 2000;
+
+  private TokenFormatBenchmark() throws AssertionError {
+    throw new AssertionError("TokenFormatBenchmark is a non-instantiable class");
+  }
+
+  public static void main(String[] args) throws Exception {
+    long measurementMillis = args.length > 0 ? Long.parseLong(args[0]) : 5000;
+
+    KeyPairGenerator rsaGenerator = KeyPairGenerator.getInstance("RSA");
+    rsaGenerator.initialize(2048);
+    KeyPair authorizationRsaKeys = rsaGenerator.generateKeyPair();
+    KeyPair providerKeys = rsaGenerator.generateKeyPair();
+    KeyPairGenerator ecGenerator = KeyPairGenerator.getInstance("EC");
+    ecGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+    KeyPair authorizationEcKeys = ecGenerator.generateKeyPair();
+
+    RawTokenInfo rawTokenInfo = new RawTokenInfo();
+    rawTokenInfo.setC("client1.testgroup.testcloud1.bme");
+    rawTokenInfo.setS("JSON.temperature.testgroup");
+    rawTokenInfo.setE(System.currentTimeMillis() + 3600000L);
+    byte[] tokenInfo = new Gson().toJson(rawTokenInfo).getBytes(StandardCharsets.UTF_8);
+
+    Signature rsaSignature = Signature.getInstance("SHA1withRSA");
+    Signature ecSignature = Signature.getInstance("SHA256withECDSA");
+    rsaSignature.initSign(authorizationRsaKeys.getPrivate());
+    rsaSignature.update(tokenInfo);
+    byte[] rsaSignatureBytes = rsaSignature.sign();
+    ecSignature.initSign(authorizationEcKeys.getPrivate());
+    ecSignature.update(tokenInfo);
+    byte[] ecSignatureBytes = ecSignature.sign();
+
+    Cipher v1Cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+    ArrowheadToken v1Token = encodeV1(tokenInfo, v1Cipher, rsaSignature, providerKeys, authorizationRsaKeys);
+    ArrowheadToken v2Token = TokenFormatV2.encode(tokenInfo, providerKeys.getPublic(), authorizationEcKeys.getPrivate());
+
+    System.out.println("operation\tops/sec");
+    measure("SHA1withRSA sign", measurementMillis, () -> {
+      rsaSignature.initSign(authorizationRsaKeys.getPrivate());
+      rsaSignature.update(tokenInfo);
+      rsaSignature.sign();
+    });
+    measure("SHA1withRSA verify", measurementMillis, () -> {
+      rsaSignature.initVerify(authorizationRsaKeys.getPublic());
+      rsaSignature.update(tokenInfo);
+      check(rsaSignature.verify(rsaSignatureBytes));
+    });
+    measure("SHA256withECDSA sign", measurementMillis, () -> {
+      ecSignature.initSign(authorizationEcKeys.getPrivate());
+      ecSignature.update(tokenInfo);
+      ecSignature.sign();
+    });
+    measure("SHA256withECDSA verify", measurementMillis, () -> {
+      ecSignature.initVerify(authorizationEcKeys.getPublic());
+      ecSignature.update(tokenInfo);
+      check(ecSignature.verify(ecSignatureBytes));
+    });
+    measure("v1 token generation", measurementMillis,
+            () -> encodeV1(tokenInfo, v1Cipher, rsaSignature, providerKeys, authorizationRsaKeys));
+    measure("v1 token verification", measurementMillis, () -> {
+      byte[] tokenBytes = Base64.getDecoder().decode(v1Token.getToken());
+      rsaSignature.initVerify(authorizationRsaKeys.getPublic());
+      rsaSignature.update(tokenBytes);
+      check(rsaSignature.verify(Base64.getDecoder().decode(v1Token.getSignature())));
+      v1Cipher.init(Cipher.DECRYPT_MODE, providerKeys.getPrivate());
+      v1Cipher.doFinal(tokenBytes);
+    });
+    measure("v2 token generation", measurementMillis,
+            () -> TokenFormatV2.encode(tokenInfo, providerKeys.getPublic(), authorizationEcKeys.getPrivate()));
+    measure("v2 token verification", measurementMillis,
+            () -> TokenFormatV2.decode(v2Token, providerKeys.getPrivate(), authorizationEcKeys.getPublic()));
+  }
+
+  // The same steps as the version 1 token generation of TokenGenerationService
+  private static ArrowheadToken encodeV1(byte[] tokenInfo, Cipher cipher, Signature signature, KeyPair providerKeys, KeyPair authorizationKeys)
+      throws GeneralSecurityException {
+    cipher.init(Cipher.ENCRYPT_MODE, providerKeys.getPublic());
+    byte[] tokenBytes = cipher.doFinal(tokenInfo);
+    signature.initSign(authorizationKeys.getPrivate());
+    signature.update(tokenBytes);
+    return new ArrowheadToken(Base64.getEncoder().encodeToString(tokenBytes), Base64.getEncoder().encodeToString(signature.sign()));
+  }
+
+  private static void check(boolean valid) {
+    if (!valid) {
+      throw new IllegalStateException("Signature verification failed.");
+    }
+  }
+
+  private static void measure(String operation, long measurementMillis, Operation body) throws GeneralSecurityException {
+    run(body, WARMUP_MILLIS);
+    long start = System.nanoTime();
+    long count = run(body, measurementMillis);
+    System.out.printf("%s\t%.1f%n", operation, count / ((System.nanoTime() - start) / 1e9));
+  }
+
+  private static long run(Operation body, long millis) throws GeneralSecurityException {
+    long end = System.currentTimeMillis() + millis;
+    long count = 0;
+    do {
+      body.run();
+      count++;
+    } while (System.currentTimeMillis() < end);
+    return count;
+  }
+
+  @FunctionalInterface
+  private interface Operation {
+
+    void run() throws GeneralSecurityException;
+  }
+
+}
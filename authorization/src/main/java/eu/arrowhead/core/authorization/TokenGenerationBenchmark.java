@@ -0,0 +1,92 @@
+package eu.arrowhead.core.authorization;
+
+import com.google.gson.Gson;
+import eu.arrowhead.common.messages.ArrowheadToken;
+import eu.arrowhead.common.messages.RawTokenInfo;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the throughput of the token generation (tokens per second) for different numbers of providers in one request, without the database
+ * and the REST layer. The token format and the number of threads come from the usual <tt>config/app.properties</tt> (<i>token_format</i>,
+ * <i>token_generation_threads</i>), the server key and the provider keys are generated 2048 bit RSA keys, the version 2 token signing key is a
+ * generated P-256 EC key.
+ * <p>
+ * Usage (from the authorization directory): <tt>mvn exec:java -Dexec.mainClass=eu.arrowhead.core.authorization.TokenGenerationBenchmark
+ * -Dexec.args="1 4 16 64 256"</tt>, the arguments are the provider counts to measure.
+ */
+final class TokenGenerationBenchmark {
+
+  private static final int[] DEFAULT_PROVIDER_COUNTS = {1, 4, 16, 64, 256, 1024};
+  // Generating RSA keys is slow, so the providers share a few distinct keys (the cost of one token does not depend on the key)
+  private static final int DISTINCT_PROVIDER_KEYS = 16;
+  private static final long WARMUP_MILLIS = 3000;
+  private static final long MEASUREMENT_MILLIS = 5000;
+
+  private TokenGenerationBenchmark() throws AssertionError {
+    throw new AssertionError("TokenGenerationBenchmark is a non-instantiable class");
+  }
+
+  public static void main(String[] args) throws GeneralSecurityException {
+    int[] providerCounts = DEFAULT_PROVIDER_COUNTS;
+    if (args.length > 0) {
+      providerCounts = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        providerCounts[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    KeyPairGenerator rsaGenerator = KeyPairGenerator.getInstance("RSA");
+    rsaGenerator.initialize(2048);
+    AuthorizationMain.privateKey = rsaGenerator.generateKeyPair().getPrivate();
+    KeyPairGenerator ecGenerator = KeyPairGenerator.getInstance("EC");
+    ecGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+    AuthorizationMain.tokenSigningKey = ecGenerator.generateKeyPair().getPrivate();
+    List<PublicKey> distinctKeys = new ArrayList<>();
+    for (int i = 0; i < DISTINCT_PROVIDER_KEYS; i++) {
+      distinctKeys.add(rsaGenerator.generateKeyPair().getPublic());
+    }
+
+    RawTokenInfo rawTokenInfo = new RawTokenInfo();
+    rawTokenInfo.setC("client1.testgroup.testcloud1.bme");
+    rawTokenInfo.setS("JSON.temperature.testgroup");
+    rawTokenInfo.setE(System.currentTimeMillis() + 3600000L);
+    byte[] tokenInfo = new Gson().toJson(rawTokenInfo).getBytes(StandardCharsets.UTF_8);
+
+    String tokenFormat = TokenGenerationService.TOKEN_FORMAT_V2 ? "v2" : "v1";
+    System.out.println("Token format: " + tokenFormat + ", available processors: " + Runtime.getRuntime().availableProcessors());
+    System.out.println("providers\ttokens/sec\tms/request");
+    for (int providerCount : providerCounts) {
+      List<PublicKey> publicKeys = new ArrayList<>(providerCount);
+      for (int i = 0; i < providerCount; i++) {
+        publicKeys.add(distinctKeys.get(i % distinctKeys.size()));
+      }
+
+      run(tokenInfo, publicKeys, WARMUP_MILLIS);
+      long start = System.nanoTime();
+      long requests = run(tokenInfo, publicKeys, MEASUREMENT_MILLIS);
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.printf("%d\t%.1f\t%.3f%n", providerCount, requests * providerCount / seconds, seconds * 1000 / requests);
+    }
+  }
+
+  // Generates the tokens of the request repeatedly for (at least) the given time, and returns the number of requests
+  private static long run(byte[] tokenInfo, List<PublicKey> publicKeys, long millis) {
+    long end = System.currentTimeMillis() + millis;
+    long requests = 0;
+    do {
+      ArrowheadToken[] tokens = TokenGenerationService.generateTokens(tokenInfo, publicKeys);
+      if (tokens[tokens.length - 1] == null) {
+        throw new IllegalStateException("Token generation failed, see the log for details.");
+      }
+      requests++;
+    } while (System.currentTimeMillis() < end);
+    return requests;
+  }
+
+}
@@ -7,149 +7,249 @@ import eu.arrowhead.common.database.ArrowheadSystem;
 import eu.arrowhead.common.messages.ArrowheadToken;
 import eu.arrowhead.common.messages.RawTokenInfo;
 import eu.arrowhead.common.messages.TokenGenerationRequest;
+import eu.arrowhead.common.security.TokenFormatV2;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
-import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.Signature;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.X509EncodedKeySpec;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
 import org.apache.log4j.Logger;
 
+/**
+ * Generates the ArrowheadTokens of the providers: the token info is encrypted with the public key of each provider, and signed with the private key
+ * of the Authorization System. These RSA operations dominate the cost of the token generation, so for more than a few providers they are spread
+ * over the <i>token_generation_threads</i> (default: number of cores) threads. Every thread uses its own <tt>Cipher</tt> and <tt>Signature</tt>
+ * instances, since these are not thread-safe.
+ * <p>
+ * The tokens are generated in the original format by default. With <i>token_format=v2</i> they are generated in the {@link TokenFormatV2} format
+ * (AES-GCM encrypted token info with an RSA-OAEP wrapped key, signed with the EC key of <i>token_signing_keystore</i>), which removes the 244 byte
+ * limit of the token info. The providers have to support the new format before it is switched on. {@link TokenFormatBenchmark} compares the
+ * signing and verification throughput of the two formats.
+ */
 class TokenGenerationService {
 
   private static Logger log = Logger.getLogger(TokenGenerationService.class.getName());
+  private static final int THREADS = Integer.valueOf(
+      AuthorizationMain.getProp().getProperty("token_generation_threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+  // Below this many providers the tokens are generated on the request thread, since handing the work over costs more than it saves
+  private static final int MIN_PARALLEL_PROVIDERS = 4;
+  static final boolean TOKEN_FORMAT_V2 = "v2".equalsIgnoreCase(AuthorizationMain.getProp().getProperty("token_format", "v1"));
+  private static final ThreadLocal<Cipher> cipher = ThreadLocal.withInitial(TokenGenerationService::createCipher);
+  private static final ThreadLocal<Signature> signature = ThreadLocal.withInitial(TokenGenerationService::createSignature);
 
   static List<ArrowheadToken> generateTokens(TokenGenerationRequest request) {
     // First get the public key for each provider
     List<PublicKey> publicKeys = getProviderPublicKeys(request.getProviders());
 
-    // Then create the ArrowheadToken for each provider (starting with the variable initializations before the for loop)
+    // The Cipher and Signature instances can not be created if the JRE or the keystore is broken, no token can be generated then
+    if (!TOKEN_FORMAT_V2 && (cipher.get() == null || signature.get() == null)) {
+      return new ArrayList<>();
+    }
+
+    // Then create the token info, which is the same for every provider
     RawTokenInfo rawTokenInfo = new RawTokenInfo();
-    Gson gson = new Gson();
-    List<ArrowheadToken> tokens = new ArrayList<>();
-    Cipher cipher;
-    try {
-      cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
-    } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
-      log.fatal("Cipher.getInstance(String) throws exception, code needs to be changed!");
-      return tokens;
+
+    // Set consumer info string
+    String c = request.getConsumer().getSystemName() + "." + request.getConsumer().getSystemGroup();
+    if (request.getConsumerCloud() != null) {
+      c = c.concat(".").concat(request.getConsumerCloud().getCloudName()).concat(".").concat(request.getConsumerCloud().getOperator());
+    } else {
+      ArrowheadCloud ownCloud = Utility.getOwnCloud();
+      c = c.concat(".").concat(ownCloud.getCloudName()).concat(".").concat(ownCloud.getOperator());
     }
-    Signature signature;
-    try {
-      signature = Signature.getInstance("SHA1withRSA");
-      signature.initSign(AuthorizationMain.privateKey);
-    } catch (NoSuchAlgorithmException e) {
-      log.fatal("Signature.getInstance(String) throws exception, code needs to be changed!");
-      return tokens;
-    } catch (InvalidKeyException e) {
-      log.fatal("The private key of the Authorization module is invalid, keystore needs to be changed!");
-      return tokens;
+    rawTokenInfo.setC(c);
+
+    // Set service info string
+    String s = request.getService().getInterfaces().get(0) + "." + request.getService().getServiceDefinition() + "." + request.getService()
+        .getServiceGroup();
+    rawTokenInfo.setS(s);
+
+    // Set the token validity duration
+    if (request.getDuration() != 0) {
+      long endTime = System.currentTimeMillis() + request.getDuration();
+      rawTokenInfo.setE(endTime);
+    } else {
+      // duration = 0 means a token is valid without a time limitation
+      rawTokenInfo.setE(0L);
     }
 
-    for (PublicKey key : publicKeys) {
-      // Can not generate token without the provider public key
-      if (key == null) {
-        tokens.add(null);
-        continue;
+    // There is an upper limit for the size of the token info in the original token format
+    String json = new Gson().toJson(rawTokenInfo);
+    ArrowheadToken[] tokens;
+    if (!TOKEN_FORMAT_V2 && json.length() > 244) {
+      log.error("ArrowheadToken exceeded the size limit. Skipped providers.");
+      tokens = new ArrowheadToken[publicKeys.size()];
+    } else {
+      tokens = generateTokens(json.getBytes(StandardCharsets.UTF_8), publicKeys);
+    }
+
+    // Throw an exception if none of the token generation was successful
+    boolean nonNullTokenExists = false;
+    for (ArrowheadToken token : tokens) {
+      if (token != null) {
+        nonNullTokenExists = true;
+        break;
       }
+    }
+    if (!nonNullTokenExists) {
+      log.error("None of the provider ArrowheadSystems in this orchestration have a valid RSA public key spec stored in the database.");
+      throw new RuntimeException("Token generation failed for all the provider ArrowheadSystems.");
+    }
+
+    return Arrays.asList(tokens);
+  }
 
-      // Set consumer info string
-      String c = request.getConsumer().getSystemName() + "." + request.getConsumer().getSystemGroup();
-      if (request.getConsumerCloud() != null) {
-        c = c.concat(".").concat(request.getConsumerCloud().getCloudName()).concat(".").concat(request.getConsumerCloud().getOperator());
-      } else {
-        ArrowheadCloud ownCloud = Utility.getOwnCloud();
-        c = c.concat(".").concat(ownCloud.getCloudName()).concat(".").concat(ownCloud.getOperator());
+  /**
+   * Encrypts and signs the token info for every provider, in the configured token format. The tokens of many providers are generated on multiple
+   * threads (see <i>token_generation_threads</i>). The returned array has the order of <tt>publicKeys</tt>, the missing keys and the failures leave
+   * <tt>null</tt> in it.
+   */
+  static ArrowheadToken[] generateTokens(byte[] tokenInfo, List<PublicKey> publicKeys) {
+    ArrowheadToken[] tokens = new ArrowheadToken[publicKeys.size()];
+    int threads = Math.min(THREADS, publicKeys.size() / MIN_PARALLEL_PROVIDERS);
+    if (threads <= 1) {
+      generateTokens(tokenInfo, publicKeys, tokens, 0, publicKeys.size());
+    } else {
+      generateTokensInParallel(tokenInfo, publicKeys, tokens, threads);
+    }
+    return tokens;
+  }
+
+  /*
+    Splits the providers into contiguous ranges, the request thread works on the first range while the pool threads work on the others. The pool
+    threads write into their own array, and a range is only copied into the result when its task finished, so a task which is still running after
+    an interruption can not change the result any more (its providers are left without a token).
+   */
+  private static void generateTokensInParallel(byte[] tokenInfo, List<PublicKey> publicKeys, ArrowheadToken[] tokens, int threads) {
+    int rangeSize = (publicKeys.size() + threads - 1) / threads;
+    ArrowheadToken[] poolTokens = new ArrowheadToken[tokens.length];
+    Map<Future<?>, int[]> futures = new LinkedHashMap<>();
+    for (int from = rangeSize; from < publicKeys.size(); from += rangeSize) {
+      int rangeFrom = from;
+      int rangeTo = Math.min(from + rangeSize, publicKeys.size());
+      try {
+        Future<?> future = Executor.executor.submit(() -> generateTokens(tokenInfo, publicKeys, poolTokens, rangeFrom, rangeTo));
+        futures.put(future, new int[]{rangeFrom, rangeTo});
+      } catch (RejectedExecutionException e) {
+        generateTokens(tokenInfo, publicKeys, tokens, rangeFrom, rangeTo);
       }
-      rawTokenInfo.setC(c);
-
-      // Set service info string
-      String s = request.getService().getInterfaces().get(0) + "." + request.getService().getServiceDefinition() + "." + request.getService()
-          .getServiceGroup();
-      rawTokenInfo.setS(s);
-
-      // Set the token validity duration
-      if (request.getDuration() != 0) {
-        long endTime = System.currentTimeMillis() + request.getDuration();
-        rawTokenInfo.setE(endTime);
-      } else {
-        // duration = 0 means a token is valid without a time limitation
-        rawTokenInfo.setE(0L);
+    }
+    generateTokens(tokenInfo, publicKeys, tokens, 0, Math.min(rangeSize, publicKeys.size()));
+
+    boolean interrupted = false;
+    for (Map.Entry<Future<?>, int[]> future : futures.entrySet()) {
+      if (interrupted) {
+        future.getKey().cancel(true);
+        continue;
+      }
+      try {
+        future.getKey().get();
+        int[] range = future.getValue();
+        System.arraycopy(poolTokens, range[0], tokens, range[0], range[1] - range[0]);
+      } catch (InterruptedException e) {
+        log.error("Token generation was interrupted, the providers of the unfinished ranges get no token.");
+        interrupted = true;
+        future.getKey().cancel(true);
+      } catch (ExecutionException e) {
+        log.error("Token generation failed: " + e.getCause().getMessage());
       }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // Generates the tokens of the providers in the [from, to) range, the missing public keys and the failures leave null in the array
+  private static void generateTokens(byte[] tokenInfo, List<PublicKey> publicKeys, ArrowheadToken[] tokens, int from, int to) {
+    if (TOKEN_FORMAT_V2) {
+      generateV2Tokens(tokenInfo, publicKeys, tokens, from, to);
+      return;
+    }
+    Cipher threadCipher = cipher.get();
+    Signature threadSignature = signature.get();
+    if (threadCipher == null || threadSignature == null) {
+      return;
+    }
 
-      // There is an upper limit for the size of the token info, skip providers which exceeds this limit
-      String json = gson.toJson(rawTokenInfo);
-      if (json.length() > 244) {
-        tokens.add(null);
-        log.error("ArrowheadToken exceeded the size limit. Skipped provider.");
+    for (int i = from; i < to; i++) {
+      // Can not generate token without the provider public key
+      PublicKey key = publicKeys.get(i);
+      if (key == null) {
         continue;
       }
 
       // Finally, generate the token and signature strings
       try {
-        cipher.init(Cipher.ENCRYPT_MODE, key);
-        byte[] tokenBytes = cipher.doFinal(json.getBytes("UTF8"));
-        signature.update(tokenBytes);
-        byte[] sigBytes = signature.sign();
+        threadCipher.init(Cipher.ENCRYPT_MODE, key);
+        byte[] tokenBytes = threadCipher.doFinal(tokenInfo);
+        threadSignature.update(tokenBytes);
+        byte[] sigBytes = threadSignature.sign();
 
         String tokenString = Base64.getEncoder().encodeToString(tokenBytes);
         String signatureString = Base64.getEncoder().encodeToString(sigBytes);
-        tokens.add(new ArrowheadToken(tokenString, signatureString));
+        tokens[i] = new ArrowheadToken(tokenString, signatureString);
       } catch (Exception e) {
         e.printStackTrace();
         log.error("Cipher or Signature class throws public key specific exception: " + e.getMessage());
-        tokens.add(null);
       }
     }
+  }
 
-    // Throw an exception if none of the token generation was successful
-    boolean nonNullTokenExists = false;
-    for (ArrowheadToken token : tokens) {
-      if (token != null) {
-        nonNullTokenExists = true;
-        break;
+  private static void generateV2Tokens(byte[] tokenInfo, List<PublicKey> publicKeys, ArrowheadToken[] tokens, int from, int to) {
+    for (int i = from; i < to; i++) {
+      PublicKey key = publicKeys.get(i);
+      if (key == null) {
+        continue;
+      }
+      try {
+        tokens[i] = TokenFormatV2.encode(tokenInfo, key, AuthorizationMain.tokenSigningKey);
+      } catch (GeneralSecurityException | RuntimeException e) {
+        log.error("Version 2 token generation throws public key specific exception: " + e.getMessage());
       }
     }
-    if (!nonNullTokenExists) {
-      log.error("None of the provider ArrowheadSystems in this orchestration have a valid RSA public key spec stored in the database.");
-      throw new RuntimeException("Token generation failed for all the provider ArrowheadSystems.");
+  }
+
+  private static Cipher createCipher() {
+    try {
+      return Cipher.getInstance("RSA/ECB/PKCS1Padding");
+    } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+      log.fatal("Cipher.getInstance(String) throws exception, code needs to be changed!");
+      return null;
     }
+  }
 
-    return tokens;
+  private static Signature createSignature() {
+    try {
+      Signature signature = Signature.getInstance("SHA1withRSA");
+      signature.initSign(AuthorizationMain.privateKey);
+      return signature;
+    } catch (NoSuchAlgorithmException e) {
+      log.fatal("Signature.getInstance(String) throws exception, code needs to be changed!");
+      return null;
+    } catch (InvalidKeyException e) {
+      log.fatal("The private key of the Authorization module is invalid, keystore needs to be changed!");
+      return null;
+    }
   }
 
   private static List<PublicKey> getProviderPublicKeys(List<ArrowheadSystem> providers) {
-    HashMap<String, Object> restrictionMap = new HashMap<>();
-    List<PublicKey> keys = new ArrayList<>();
-
-    for (ArrowheadSystem provider : providers) {
-      // Get the provider from the database
-      restrictionMap.clear();
-      restrictionMap.put("systemGroup", provider.getSystemGroup());
-      restrictionMap.put("systemName", provider.getSystemName());
-      ArrowheadSystem retrievedProvider = AuthorizationResource.dm.get(ArrowheadSystem.class, restrictionMap);
-
-      if (retrievedProvider != null) {
-        try {
-          PublicKey key = getPublicKey(retrievedProvider.getAuthenticationInfo());
-          keys.add(key);
-        } catch (InvalidKeySpecException | NullPointerException e) {
-          log.error("The stored auth info for the ArrowheadSystem " + provider.toString()
-                        + " is not a proper RSA public key spec, or it is incorrectly encoded. The public key can not be generated from it.");
-          keys.add(null);
-        }
-      } else {
-        // In theory this branch will not get called, since the Orchestrator will filter out systems not in the database.
-        keys.add(null);
-      }
-    }
+    // The parsed keys are cached, only the providers missing from the cache are loaded from the database
+    List<PublicKey> keys = PublicKeyCache.getPublicKeys(providers);
 
     // Throw an exception if none of the public kezs could be acquired from the specs
     boolean nonNullKeyExists = false;
@@ -167,19 +267,15 @@ class TokenGenerationService {
     return keys;
   }
 
-  private static PublicKey getPublicKey(String stringKey) throws InvalidKeySpecException {
-    byte[] byteKey = Base64.getDecoder().decode(stringKey);
-    X509EncodedKeySpec X509publicKey = new X509EncodedKeySpec(byteKey);
-    KeyFactory kf = null;
-    try {
-      kf = KeyFactory.getInstance("RSA");
-    } catch (NoSuchAlgorithmException e) {
-      log.fatal("KeyFactory.getInstance(String) throws NoSuchAlgorithmException, code needs to be changed!");
-      e.printStackTrace();
-    }
+  // Lazy holder, so the threads are only created when a request has enough providers for the parallel token generation
+  private static final class Executor {
 
-    //noinspection ConstantConditions
-    return kf.generatePublic(X509publicKey);
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService executor = Executors.newFixedThreadPool(Math.max(THREADS - 1, 1), runnable -> {
+      Thread thread = new Thread(runnable, "token-generation-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
   }
 
-}
\ No newline at end of file
+}
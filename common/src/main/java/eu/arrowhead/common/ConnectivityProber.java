@@ -0,0 +1,181 @@
+package eu.arrowhead.common;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+
+/**
+ * Checks the TCP reachability of many <tt>host:port</tt> endpoints at the same time, with non-blocking connection attempts on a single NIO
+ * <tt>Selector</tt>. Every endpoint gets the full timeout, counted from its own connection attempt, so if at most <tt>maxConnections</tt>
+ * endpoints are given, the whole probe takes at most one timeout period, regardless of how many of them are unreachable.
+ */
+public final class ConnectivityProber {
+
+  /**
+   * The latency value of the endpoints which could not be connected to within the timeout.
+   */
+  public static final long UNREACHABLE = -1;
+
+  private static Logger log = Logger.getLogger(ConnectivityProber.class.getName());
+  private static final int START_BATCH_SIZE = 64;
+
+  private ConnectivityProber() throws AssertionError {
+    throw new AssertionError("ConnectivityProber is a non-instantiable class");
+  }
+
+  /**
+   * Returns whether a TCP connection can be opened to the given endpoint within the timeout (milliseconds).
+   */
+  public static boolean isReachable(String host, int port, int timeout) {
+    List<Object> endpoint = endpoint(host, port);
+    return probe(Collections.singletonList(endpoint), timeout, 1).get(endpoint) != UNREACHABLE;
+  }
+
+  /**
+   * Opens a TCP connection to every given endpoint (and closes it right away), and measures how long the connection establishment took.
+   *
+   * @param endpoints list of <tt>[host, port]</tt> lists, see {@link #endpoint(String, int)}
+   * @param timeout the connection timeout of one endpoint in milliseconds
+   * @param maxConnections the maximum number of connection attempts in progress at the same time, further endpoints wait for a free slot
+   *
+   * @return the connection latency of every endpoint in milliseconds, or {@link #UNREACHABLE}
+   */
+  public static Map<List<Object>, Long> probe(Collection<List<Object>> endpoints, int timeout, int maxConnections) {
+    Map<List<Object>, Long> latencies = new HashMap<>();
+    Deque<List<Object>> waiting = new ArrayDeque<>(new LinkedHashSet<>(endpoints));
+    if (waiting.isEmpty()) {
+      return latencies;
+    }
+
+    long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+    // The connection attempts in the order they were started, so the first one is always the next to time out
+    Deque<SelectionKey> inProgress = new ArrayDeque<>();
+    try (Selector selector = Selector.open()) {
+      while (!waiting.isEmpty() || !inProgress.isEmpty()) {
+        // Opening the connections in small batches, so the ones already established are measured without waiting for all the others to start
+        int started = 0;
+        while (!waiting.isEmpty() && inProgress.size() < maxConnections && started++ < START_BATCH_SIZE) {
+          startConnection(selector, waiting.poll(), latencies, inProgress);
+        }
+        if (inProgress.isEmpty()) {
+          continue;
+        }
+
+        long wait = ((Attempt) inProgress.peek().attachment()).startedAt + timeoutNanos - System.nanoTime();
+        boolean canStartMore = !waiting.isEmpty() && inProgress.size() < maxConnections;
+        if (wait > 0 && !canStartMore) {
+          selector.select(Math.max(TimeUnit.NANOSECONDS.toMillis(wait), 1));
+        } else {
+          selector.selectNow();
+        }
+
+        Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+        while (selectedKeys.hasNext()) {
+          SelectionKey key = selectedKeys.next();
+          selectedKeys.remove();
+          Attempt attempt = (Attempt) key.attachment();
+          SocketChannel channel = (SocketChannel) key.channel();
+          try {
+            if (channel.finishConnect()) {
+              latencies.put(attempt.endpoint, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - attempt.startedAt));
+              close(key);
+            }
+          } catch (IOException e) {
+            latencies.put(attempt.endpoint, UNREACHABLE);
+            close(key);
+          }
+        }
+
+        // Freeing up the slots of the finished attempts, then dropping the attempts which ran out of time
+        inProgress.removeIf(key -> !key.isValid());
+        long now = System.nanoTime();
+        while (!inProgress.isEmpty() && ((Attempt) inProgress.peek().attachment()).startedAt + timeoutNanos <= now) {
+          SelectionKey key = inProgress.poll();
+          latencies.put(((Attempt) key.attachment()).endpoint, UNREACHABLE);
+          close(key);
+        }
+      }
+    } catch (IOException e) {
+      log.error("Connectivity probe failed: " + e.getMessage());
+      for (SelectionKey key : inProgress) {
+        close(key);
+      }
+    }
+
+    for (List<Object> endpoint : endpoints) {
+      latencies.putIfAbsent(endpoint, UNREACHABLE);
+    }
+    return latencies;
+  }
+
+  /**
+   * Returns the <tt>[host, port]</tt> list identifying an endpoint in {@link #probe(Collection, int, int)}.
+   */
+  public static List<Object> endpoint(String host, int port) {
+    return Arrays.asList(host, port);
+  }
+
+  private static void startConnection(Selector selector, List<Object> endpoint, Map<List<Object>, Long> latencies,
+                                      Deque<SelectionKey> inProgress) {
+    Attempt attempt = new Attempt(endpoint);
+    SocketChannel channel = null;
+    try {
+      InetSocketAddress address = new InetSocketAddress((String) endpoint.get(0), (Integer) endpoint.get(1));
+      if (address.isUnresolved()) {
+        latencies.put(endpoint, UNREACHABLE);
+        return;
+      }
+      channel = SocketChannel.open();
+      channel.configureBlocking(false);
+      attempt.startedAt = System.nanoTime();
+      if (channel.connect(address)) {
+        latencies.put(endpoint, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - attempt.startedAt));
+        channel.close();
+      } else {
+        inProgress.add(channel.register(selector, SelectionKey.OP_CONNECT, attempt));
+      }
+    } catch (IOException | RuntimeException e) {
+      latencies.put(endpoint, UNREACHABLE);
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException ignored) {
+        }
+      }
+    }
+  }
+
+  private static void close(SelectionKey key) {
+    key.cancel();
+    try {
+      key.channel().close();
+    } catch (IOException e) {
+      log.debug("Closing a probe connection failed: " + e.getMessage());
+    }
+  }
+
+  private static final class Attempt {
+
+    private final List<Object> endpoint;
+    private long startedAt;
+
+    private Attempt(List<Object> endpoint) {
+      this.endpoint = endpoint;
+    }
+  }
+
+}
@@ -1,22 +1,45 @@
 package eu.arrowhead.common;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import eu.arrowhead.common.exception.DuplicateEntryException;
 import java.io.File;
 import java.io.FileInputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.apache.log4j.Logger;
 import org.hibernate.Criteria;
+import org.hibernate.FlushMode;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
+import org.hibernate.annotations.Cache;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.criterion.Conjunction;
 import org.hibernate.criterion.Disjunction;
+import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.metadata.ClassMetadata;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -29,12 +52,19 @@ public class DatabaseManager {
   private static final String dbAddress = getProp().getProperty("db_address", "jdbc:mysql://arrowhead.tmit.bme.hu:3306/arrowhead");
   private static final String dbUser = getProp().getProperty("db_user", "root");
   private static final String dbPassword = getProp().getProperty("db_password", "root");
+  // Keeps the IN lists (and the number of bound parameters) of the batch read methods at a reasonable size
+  private static final int IN_CLAUSE_CHUNK_SIZE = 500;
+  private static final int batchSize = Integer.valueOf(getProp().getProperty("db_batch_size", "50"));
+  private static final int scrollFetchSize = Integer.valueOf(getProp().getProperty("db_scroll_fetch_size", "100"));
+  private static final boolean secondLevelCacheEnabled = Boolean.valueOf(getProp().getProperty("db_second_level_cache", "false"));
+  private static HikariDataSource dataSource;
+  // Separate small pool for the scroll method, created on first use (see createScrollDataSource)
+  private static HikariDataSource scrollDataSource;
 
   static {
     try {
       if (sessionFactory == null) {
-        sessionFactory = new Configuration().configure().setProperty("hibernate.connection.url", dbAddress)
-            .setProperty("hibernate.connection.username", dbUser).setProperty("hibernate.connection.password", dbPassword).buildSessionFactory();
+        sessionFactory = buildSessionFactory();
       }
     } catch (Exception e) {
       log.fatal("Database connection failed, check the configuration!");
@@ -69,17 +99,9 @@ public class DatabaseManager {
 
   public <T> T get(Class<T> queryClass, int id) {
     T object;
-    Transaction transaction = null;
 
-    try (Session session = getSessionFactory().openSession()) {
-      transaction = session.beginTransaction();
+    try (Session session = openReadOnlySession()) {
       object = session.get(queryClass, id);
-      transaction.commit();
-    } catch (Exception e) {
-      if (transaction != null) {
-        transaction.rollback();
-      }
-      throw e;
     }
 
     return object;
@@ -87,34 +109,130 @@ public class DatabaseManager {
 
   private SessionFactory getSessionFactory() {
     if (sessionFactory == null) {
-      sessionFactory = new Configuration().configure().setProperty("hibernate.connection.url", dbAddress)
-          .setProperty("hibernate.connection.username", dbUser).setProperty("hibernate.connection.password", dbPassword).buildSessionFactory();
+      sessionFactory = buildSessionFactory();
     }
     return sessionFactory;
   }
 
+  /*
+    Hibernate gets its connections from a HikariCP pool instead of its built-in (non-production) connection pool. The pool can be configured
+    through the db_pool_* and db_*_timeout entries of the app.properties file. SQL logging is turned off, unless db_show_sql=true is set.
+   */
+  private static synchronized SessionFactory buildSessionFactory() {
+    if (dataSource == null) {
+      dataSource = createDataSource();
+    }
+
+    Configuration configuration = new Configuration().configure();
+    configuration.setProperty(AvailableSettings.SHOW_SQL, getProp().getProperty("db_show_sql", "false"));
+    // JDBC batching for the saveAll, mergeAll and deleteAll methods
+    configuration.setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, String.valueOf(batchSize));
+    configuration.setProperty(AvailableSettings.ORDER_INSERTS, "true");
+    configuration.setProperty(AvailableSettings.ORDER_UPDATES, "true");
+    configuration.getProperties().put(AvailableSettings.DATASOURCE, dataSource);
+    // Translated HQL/SQL of the (named) queries is kept in this cache, so a query string is only parsed once
+    configuration.setProperty(AvailableSettings.QUERY_PLAN_CACHE_MAX_SIZE, getProp().getProperty("db_query_plan_cache_size", "2048"));
+    // Opt-in entity and query cache for the read-mostly entities (the ones annotated with @Cache), regions are defined in arrowhead-ehcache.xml
+    configuration.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, String.valueOf(secondLevelCacheEnabled));
+    configuration.setProperty(AvailableSettings.USE_QUERY_CACHE, String.valueOf(secondLevelCacheEnabled));
+    if (secondLevelCacheEnabled) {
+      configuration.setProperty(AvailableSettings.CACHE_REGION_FACTORY, "org.hibernate.cache.ehcache.EhCacheRegionFactory");
+      configuration.setProperty("net.sf.ehcache.configurationResourceName", "/arrowhead-ehcache.xml");
+    }
+    return configuration.buildSessionFactory();
+  }
+
+  private static HikariDataSource createDataSource() {
+    HikariConfig config = createPoolConfig("arrowhead-db-pool");
+    config.setMaximumPoolSize(Integer.valueOf(getProp().getProperty("db_pool_max_size", "10")));
+    config.setMinimumIdle(Integer.valueOf(getProp().getProperty("db_pool_min_idle", "2")));
+    return new HikariDataSource(config);
+  }
+
+  /*
+    The MySQL driver only honours the fetch size with server side cursors (useCursorFetch), but that setting also turns every statement of the
+    connection into a server side prepared statement, which costs an extra round trip for the statements executed only once. So only the
+    connections of this pool (used by the scroll method) have it enabled, the pool size is set by db_scroll_pool_max_size.
+   */
+  private static synchronized HikariDataSource getScrollDataSource() {
+    if (scrollDataSource == null) {
+      HikariConfig config = createPoolConfig("arrowhead-db-scroll-pool");
+      config.setMaximumPoolSize(Integer.valueOf(getProp().getProperty("db_scroll_pool_max_size", "4")));
+      config.setMinimumIdle(0);
+      config.addDataSourceProperty("useCursorFetch", "true");
+      scrollDataSource = new HikariDataSource(config);
+    }
+    return scrollDataSource;
+  }
+
+  private static HikariConfig createPoolConfig(String poolName) {
+    HikariConfig config = new HikariConfig();
+    config.setPoolName(poolName);
+    config.setDriverClassName("com.mysql.jdbc.Driver");
+    config.setJdbcUrl(dbAddress);
+    config.setUsername(dbUser);
+    config.setPassword(dbPassword);
+    config.setConnectionTimeout(Long.valueOf(getProp().getProperty("db_connection_timeout", "30000")));
+    config.setIdleTimeout(Long.valueOf(getProp().getProperty("db_idle_timeout", "600000")));
+    config.setMaxLifetime(Long.valueOf(getProp().getProperty("db_max_lifetime", "1800000")));
+    // 0 disables the leak detection, otherwise a warning is logged for connections held longer than this (in milliseconds)
+    config.setLeakDetectionThreshold(Long.valueOf(getProp().getProperty("db_leak_detection_threshold", "0")));
+    config.setRegisterMbeans(true);
+    // Server side prepared statement caching of the MySQL driver, since the same few queries are issued over and over again
+    config.addDataSourceProperty("cachePrepStmts", "true");
+    config.addDataSourceProperty("prepStmtCacheSize", "250");
+    config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+    // Lets the driver send a JDBC batch as one multi-row statement
+    config.addDataSourceProperty("rewriteBatchedStatements", "true");
+    return config;
+  }
+
+  /**
+   * Returns the runtime statistics (active, idle, total connections and threads waiting for a connection) of the database connection pool. The same
+   * values are also published as a JMX MBean under the <i>com.zaxxer.hikari</i> domain.
+   */
+  @Nullable
+  public HikariPoolMXBean getPoolStatistics() {
+    return dataSource == null ? null : dataSource.getHikariPoolMXBean();
+  }
+
+  /**
+   * Evicts every entity and query result from the second-level cache. Useful when the database was modified by another process.
+   */
+  public void evictCaches() {
+    if (secondLevelCacheEnabled) {
+      getSessionFactory().getCache().evictAllRegions();
+    }
+  }
+
+  // Writes through this class are also applied to the cache by Hibernate, but the whole region is dropped to be on the safe side with bulk changes
+  private void evictCache(Class<?> entityClass) {
+    if (secondLevelCacheEnabled && entityClass.isAnnotationPresent(Cache.class)) {
+      getSessionFactory().getCache().evictEntityRegion(entityClass);
+      getSessionFactory().getCache().evictQueryRegions();
+    }
+  }
+
+  private static boolean isCacheable(Class<?> queryClass) {
+    return secondLevelCacheEnabled && queryClass.isAnnotationPresent(Cache.class);
+  }
+
   @Nullable
   @SuppressWarnings("unchecked")
   public <T> T get(Class<T> queryClass, Map<String, Object> restrictionMap) {
     T object;
-    Transaction transaction = null;
 
-    try (Session session = getSessionFactory().openSession()) {
-      transaction = session.beginTransaction();
-      Criteria criteria = session.createCriteria(queryClass);
+    try (Session session = openReadOnlySession()) {
+      Criteria criteria = createReadOnlyCriteria(session, queryClass);
       if (restrictionMap != null && !restrictionMap.isEmpty()) {
         for (Entry<String, Object> entry : restrictionMap.entrySet()) {
           criteria.add(Restrictions.eq(entry.getKey(), entry.getValue()));
         }
       }
       object = (T) criteria.uniqueResult();
-      transaction.commit();
     } catch (Exception e) {
       e.printStackTrace();
       log.error("get throws exception: " + e.getMessage());
-      if (transaction != null) {
-        transaction.rollback();
-      }
       throw e;
     }
 
@@ -127,24 +245,18 @@ public class DatabaseManager {
   @SuppressWarnings("unchecked")
   public <T> List<T> getAll(Class<T> queryClass, Map<String, Object> restrictionMap) {
     List<T> retrievedList;
-    Transaction transaction = null;
 
-    try (Session session = getSessionFactory().openSession()) {
-      transaction = session.beginTransaction();
-      Criteria criteria = session.createCriteria(queryClass);
+    try (Session session = openReadOnlySession()) {
+      Criteria criteria = createReadOnlyCriteria(session, queryClass);
       if (restrictionMap != null && !restrictionMap.isEmpty()) {
         for (Entry<String, Object> entry : restrictionMap.entrySet()) {
           criteria.add(Restrictions.eq(entry.getKey(), entry.getValue()));
         }
       }
       retrievedList = (List<T>) criteria.list();
-      transaction.commit();
     } catch (Exception e) {
       e.printStackTrace();
       log.error("getAll throws exception: " + e.getMessage());
-      if (transaction != null) {
-        transaction.rollback();
-      }
       throw e;
     }
 
@@ -154,11 +266,9 @@ public class DatabaseManager {
   @SuppressWarnings("unchecked")
   public <T> List<T> getAllOfEither(Class<T> queryClass, Map<String, Object> restrictionMap) {
     List<T> retrievedList;
-    Transaction transaction = null;
 
-    try (Session session = getSessionFactory().openSession()) {
-      transaction = session.beginTransaction();
-      Criteria criteria = session.createCriteria(queryClass);
+    try (Session session = openReadOnlySession()) {
+      Criteria criteria = createReadOnlyCriteria(session, queryClass);
       if (restrictionMap != null && !restrictionMap.isEmpty()) {
         Disjunction disjunction = Restrictions.disjunction();
         for (Entry<String, Object> entry : restrictionMap.entrySet()) {
@@ -167,17 +277,232 @@ public class DatabaseManager {
         criteria.add(disjunction);
       }
       retrievedList = (List<T>) criteria.list();
-      transaction.commit();
+    }
+
+    return retrievedList;
+  }
+
+  /**
+   * Runs a named query (declared with a <tt>@NamedQuery</tt> annotation on an entity class) and returns its single result. Named queries are
+   * parsed and validated once, when the session factory is built, so unlike the <tt>restrictionMap</tt> based methods no query has to be assembled
+   * on every call.
+   *
+   * @param resultClass the class of the result, also decides whether the query result can be cached (see <i>db_second_level_cache</i>)
+   * @param queryName the name of the query, use the constants of the entity classes
+   * @param parameters the values of the positional parameters (<tt>?1</tt>, <tt>?2</tt>, ...) of the query, in order. Collections are bound as
+   *     parameter lists (for <tt>IN</tt> clauses).
+   *
+   * @return the result, or <tt>null</tt> if there is none
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public <T> T getNamed(Class<T> resultClass, String queryName, Object... parameters) {
+    T object;
+
+    try (Session session = openReadOnlySession()) {
+      object = (T) createNamedQuery(session, resultClass, queryName, parameters).uniqueResult();
     } catch (Exception e) {
-      if (transaction != null) {
-        transaction.rollback();
+      e.printStackTrace();
+      log.error("getNamed(" + queryName + ") throws exception: " + e.getMessage());
+      throw e;
+    }
+
+    return object;
+  }
+
+  /**
+   * Runs a named query and returns all of its results. See {@link #getNamed(Class, String, Object...)} for the parameters.
+   */
+  @NotNull
+  @SuppressWarnings("unchecked")
+  public <T> List<T> getAllNamed(Class<T> resultClass, String queryName, Object... parameters) {
+    List<T> retrievedList;
+
+    try (Session session = openReadOnlySession()) {
+      retrievedList = (List<T>) createNamedQuery(session, resultClass, queryName, parameters).list();
+    } catch (Exception e) {
+      e.printStackTrace();
+      log.error("getAllNamed(" + queryName + ") throws exception: " + e.getMessage());
+      throw e;
+    }
+
+    return retrievedList;
+  }
+
+  private static Query createNamedQuery(Session session, Class<?> resultClass, String queryName, Object[] parameters) {
+    Query query = session.getNamedQuery(queryName).setReadOnly(true).setCacheable(isCacheable(resultClass));
+    for (int i = 0; i < parameters.length; i++) {
+      if (parameters[i] instanceof Collection) {
+        query.setParameterList(String.valueOf(i + 1), (Collection<?>) parameters[i]);
+      } else {
+        query.setParameter(String.valueOf(i + 1), parameters[i]);
       }
+    }
+    return query;
+  }
+
+  /**
+   * Looks up many entities by their natural key (a combination of unique properties, like <i>systemGroup</i> and <i>systemName</i> for
+   * <tt>ArrowheadSystem</tt>) with one query, instead of one query per entity. The String properties are matched case-insensitively, the same way
+   * the database compares them.
+   *
+   * @param queryClass the entity class
+   * @param keyProperties the property names making up the natural key
+   * @param keys the natural keys to look up, each of them containing the property values in the same order as <tt>keyProperties</tt>
+   *
+   * @return the found entities, keyed by the requested natural keys (as an <tt>Arrays.asList(...)</tt> compatible list), even if the stored values
+   *     differ from them in case. Keys not found in the database are missing from the map.
+   */
+  @NotNull
+  @SuppressWarnings("unchecked")
+  public <T> Map<List<Object>, T> getByNaturalKeys(Class<T> queryClass, List<String> keyProperties, Collection<? extends List<?>> keys) {
+    Map<List<Object>, T> retrievedMap = new HashMap<>();
+    if (keys == null || keys.isEmpty()) {
+      return retrievedMap;
+    }
+
+    // The requested keys grouped by their normalized form, so every spelling of the same natural key gets the entity
+    Map<List<Object>, List<List<Object>>> requestedKeys = new LinkedHashMap<>();
+    for (List<?> key : keys) {
+      requestedKeys.computeIfAbsent(normalizeNaturalKey(key), k -> new ArrayList<>()).add(new ArrayList<>(key));
+    }
+
+    List<List<Object>> keyList = new ArrayList<>(requestedKeys.keySet());
+    ClassMetadata metadata = getSessionFactory().getClassMetadata(queryClass);
+    try (Session session = openReadOnlySession()) {
+      for (int i = 0; i < keyList.size(); i += IN_CLAUSE_CHUNK_SIZE) {
+        Disjunction disjunction = Restrictions.disjunction();
+        for (List<Object> normalizedKey : keyList.subList(i, Math.min(i + IN_CLAUSE_CHUNK_SIZE, keyList.size()))) {
+          List<Object> key = requestedKeys.get(normalizedKey).get(0);
+          Conjunction conjunction = Restrictions.conjunction();
+          for (int j = 0; j < keyProperties.size(); j++) {
+            conjunction.add(Restrictions.eq(keyProperties.get(j), key.get(j)));
+          }
+          disjunction.add(conjunction);
+        }
+
+        Criteria criteria = createReadOnlyCriteria(session, queryClass).add(disjunction);
+        for (T entity : (List<T>) criteria.list()) {
+          List<Object> naturalKey = new ArrayList<>();
+          for (String property : keyProperties) {
+            naturalKey.add(metadata.getPropertyValue(entity, property));
+          }
+          for (List<Object> requestedKey : requestedKeys.getOrDefault(normalizeNaturalKey(naturalKey), Collections.emptyList())) {
+            retrievedMap.put(requestedKey, entity);
+          }
+        }
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      log.error("getByNaturalKeys throws exception: " + e.getMessage());
+      throw e;
+    }
+
+    return retrievedMap;
+  }
+
+  // Lower-cases the String parts of a natural key, because the database compares them case-insensitively
+  private static List<Object> normalizeNaturalKey(List<?> key) {
+    List<Object> normalizedKey = new ArrayList<>(key.size());
+    for (Object part : key) {
+      normalizedKey.add(part instanceof String ? ((String) part).toLowerCase(Locale.ROOT) : part);
+    }
+    return normalizedKey;
+  }
+
+  /**
+   * Returns one page of the matching entities, ordered by their id. This is keyset (and not offset) pagination: the next page starts after the id of
+   * the last entity on the current page, so every page is fetched with an index range scan, no matter how deep the client pages.
+   *
+   * @param afterId only entities with a greater id are returned, use 0 (or a negative value) for the first page
+   * @param limit the maximum number of entities on the page
+   */
+  @NotNull
+  @SuppressWarnings("unchecked")
+  public <T> List<T> getPage(Class<T> queryClass, Map<String, Object> restrictionMap, int afterId, int limit) {
+    List<T> retrievedList;
+
+    try (Session session = openReadOnlySession()) {
+      Criteria criteria = createReadOnlyCriteria(session, queryClass);
+      if (restrictionMap != null && !restrictionMap.isEmpty()) {
+        for (Entry<String, Object> entry : restrictionMap.entrySet()) {
+          criteria.add(Restrictions.eq(entry.getKey(), entry.getValue()));
+        }
+      }
+      criteria.add(Restrictions.gt("id", afterId)).addOrder(Order.asc("id")).setMaxResults(limit);
+      retrievedList = (List<T>) criteria.list();
+    } catch (Exception e) {
+      e.printStackTrace();
+      log.error("getPage throws exception: " + e.getMessage());
       throw e;
     }
 
     return retrievedList;
   }
 
+  /**
+   * Streams the matching entities (ordered by their id) to the consumer one by one, without materializing the whole result list. The rows are
+   * fetched from the database in chunks (see <i>db_scroll_fetch_size</i>), and the persistence context is cleared after every chunk, so the memory
+   * use does not grow with the size of the table. The consumer must not keep the entities for longer than the call, if memory use is a concern.
+   *
+   * @return the number of entities passed to the consumer
+   */
+  @SuppressWarnings("unchecked")
+  public <T> int scroll(Class<T> queryClass, Map<String, Object> restrictionMap, Consumer<? super T> consumer) {
+    int count = 0;
+
+    // The session runs on a connection of the scroll pool, Hibernate leaves closing the connection to the caller
+    try (Connection connection = getScrollDataSource().getConnection(); Session session = openReadOnlySession(connection)) {
+      Criteria criteria = session.createCriteria(queryClass).setReadOnly(true).setFetchSize(scrollFetchSize).addOrder(Order.asc("id"));
+      if (restrictionMap != null && !restrictionMap.isEmpty()) {
+        for (Entry<String, Object> entry : restrictionMap.entrySet()) {
+          criteria.add(Restrictions.eq(entry.getKey(), entry.getValue()));
+        }
+      }
+      ScrollableResults results = criteria.scroll(ScrollMode.FORWARD_ONLY);
+      try {
+        while (results.next()) {
+          consumer.accept((T) results.get(0));
+          if (++count % scrollFetchSize == 0) {
+            session.clear();
+          }
+        }
+      } finally {
+        results.close();
+      }
+    } catch (SQLException e) {
+      e.printStackTrace();
+      log.error("scroll throws exception: " + e.getMessage());
+      throw new RuntimeException("No database connection is available for the scroll query: " + e.getMessage(), e);
+    } catch (Exception e) {
+      e.printStackTrace();
+      log.error("scroll throws exception: " + e.getMessage());
+      throw e;
+    }
+
+    return count;
+  }
+
+  /*
+    Sessions for queries: the loaded entities are read-only, so Hibernate does not keep a snapshot of them for dirty checking, and the session is
+    never flushed. No transaction is started either, the single SELECT statements run in the auto-commit mode of the pooled connection, which saves
+    the extra round trips of setting the auto-commit flag, committing and resetting the flag on every query.
+   */
+  private Session openReadOnlySession() {
+    return openReadOnlySession(null);
+  }
+
+  private Session openReadOnlySession(@Nullable Connection connection) {
+    Session session = connection == null ? getSessionFactory().openSession() : getSessionFactory().withOptions().connection(connection).openSession();
+    session.setDefaultReadOnly(true);
+    session.setFlushMode(FlushMode.MANUAL);
+    return session;
+  }
+
+  private static Criteria createReadOnlyCriteria(Session session, Class<?> queryClass) {
+    return session.createCriteria(queryClass).setReadOnly(true).setCacheable(isCacheable(queryClass));
+  }
+
   public <T> T save(T object) {
     Transaction transaction = null;
 
@@ -185,6 +510,7 @@ public class DatabaseManager {
       transaction = session.beginTransaction();
       session.save(object);
       transaction.commit();
+      evictCache(object.getClass());
     } catch (ConstraintViolationException e) {
       if (transaction != null) {
         transaction.rollback();
@@ -210,6 +536,7 @@ public class DatabaseManager {
       transaction = session.beginTransaction();
       session.merge(object);
       transaction.commit();
+      evictCache(object.getClass());
     } catch (ConstraintViolationException e) {
       if (transaction != null) {
         transaction.rollback();
@@ -235,6 +562,7 @@ public class DatabaseManager {
       transaction = session.beginTransaction();
       session.delete(object);
       transaction.commit();
+      evictCache(object.getClass());
     } catch (ConstraintViolationException e) {
       if (transaction != null) {
         transaction.rollback();
@@ -251,6 +579,88 @@ public class DatabaseManager {
     }
   }
 
+  /**
+   * Saves all the objects in one session and transaction, using JDBC batching (see <i>db_batch_size</i>). If the batch fails because of a unique
+   * constraint violation, it is retried object by object, and the duplicates are skipped (and logged).
+   *
+   * @return the objects which were saved to the database
+   */
+  public <T> List<T> saveAll(Collection<T> objects) {
+    return writeAll(objects, Session::save, this::save, "saveAll");
+  }
+
+  /**
+   * Merges all the objects in one session and transaction, using JDBC batching (see <i>db_batch_size</i>). If the batch fails because of a unique
+   * constraint violation, it is retried object by object, and the duplicates are skipped (and logged).
+   *
+   * @return the objects which were merged into the database
+   */
+  public <T> List<T> mergeAll(Collection<T> objects) {
+    return writeAll(objects, Session::merge, this::merge, "mergeAll");
+  }
+
+  /**
+   * Deletes all the objects in one session and transaction, using JDBC batching (see <i>db_batch_size</i>). If the batch fails because an object is
+   * still referenced from another table, it is retried object by object, and the referenced objects are skipped (and logged).
+   *
+   * @return the objects which were deleted from the database
+   */
+  public <T> List<T> deleteAll(Collection<T> objects) {
+    return writeAll(objects, Session::delete, object -> {
+      delete(object);
+      return object;
+    }, "deleteAll");
+  }
+
+  private <T> List<T> writeAll(Collection<T> objects, BiConsumer<Session, T> batchOperation, Function<T, T> singleOperation, String methodName) {
+    List<T> writtenObjects = new ArrayList<>();
+    if (objects == null || objects.isEmpty()) {
+      return writtenObjects;
+    }
+
+    Transaction transaction = null;
+    try (Session session = getSessionFactory().openSession()) {
+      transaction = session.beginTransaction();
+      int count = 0;
+      for (T object : objects) {
+        batchOperation.accept(session, object);
+        // Flushing the JDBC batch and clearing the persistence context periodically, so it does not grow with the size of the collection
+        if (++count % batchSize == 0) {
+          session.flush();
+          session.clear();
+        }
+      }
+      transaction.commit();
+      writtenObjects.addAll(objects);
+    } catch (ConstraintViolationException e) {
+      if (transaction != null) {
+        transaction.rollback();
+      }
+      log.warn("DatabaseManager:" + methodName + " batch failed with a constraint violation, retrying the " + objects.size() + " objects one by one");
+    } catch (Exception e) {
+      if (transaction != null) {
+        transaction.rollback();
+      }
+      throw e;
+    }
+
+    if (writtenObjects.isEmpty()) {
+      for (T object : objects) {
+        try {
+          writtenObjects.add(singleOperation.apply(object));
+        } catch (DuplicateEntryException e) {
+          log.error("DatabaseManager:" + methodName + " skipped " + object.toString() + ": " + e.getMessage());
+        }
+      }
+    } else {
+      for (Class<?> entityClass : objects.stream().map(Object::getClass).collect(Collectors.toSet())) {
+        evictCache(entityClass);
+      }
+    }
+
+    return writtenObjects;
+  }
+
   //TODO find out why it does not work
   public void deleteAll(String tableName) {
     Session session = getSessionFactory().openSession();
@@ -0,0 +1,163 @@
+package eu.arrowhead.common;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Thread-safe key-value cache, where every entry expires after a fixed time-to-live. Entries can also be invalidated explicitly, for example when
+ * the underlying database row is changed. <tt>null</tt> values are never cached, so a failed lookup is retried on the next call.
+ * <p>
+ * A non-positive time-to-live disables the cache: every {@link #get(Object, Function)} call goes to the loader. The cache is unbounded by default,
+ * but a maximum size can be given to the constructor, in which case the least recently used entry is evicted when the cache is full. The lookups
+ * are counted as hits or misses, see {@link #getHitCount()} and {@link #getMissCount()}.
+ * <p>
+ * Every invalidation starts a new generation of the cache. A value which was loaded before (or during) an invalidation is not cached by
+ * {@link #get(Object, Function)}, so a slow load can not put a stale value back for a whole time-to-live. Callers loading the values themselves
+ * should read {@link #getGeneration()} before the load, and cache the result with {@link #put(Object, Object, long)}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the cached values
+ */
+public final class ExpiringCache<K, V> {
+
+  private final Map<K, Entry<V>> entries;
+  private final long ttlMillis;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final AtomicLong generation = new AtomicLong();
+
+  public ExpiringCache(long ttlMillis) {
+    this(ttlMillis, 0);
+  }
+
+  /**
+   * @param ttlMillis the time-to-live of the entries in milliseconds
+   * @param maxSize the maximum number of entries, non-positive means unbounded
+   */
+  public ExpiringCache(long ttlMillis, int maxSize) {
+    this.ttlMillis = ttlMillis;
+    if (maxSize > 0) {
+      // Access ordered map: the eldest entry is always the least recently used one
+      entries = Collections.synchronizedMap(new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+          return size() > maxSize;
+        }
+      });
+    } else {
+      entries = new ConcurrentHashMap<>();
+    }
+  }
+
+  /**
+   * Returns the cached value belonging to the key, or loads (and caches) it with the given function if it is missing or expired.
+   */
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    V value = getIfPresent(key);
+    if (value == null) {
+      long loadGeneration = generation.get();
+      value = loader.apply(key);
+      put(key, value, loadGeneration);
+    }
+    return value;
+  }
+
+  /**
+   * Returns the cached value belonging to the key, or <tt>null</tt> if it is missing or expired.
+   */
+  public V getIfPresent(K key) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+    if (entry.expiresAt < System.currentTimeMillis()) {
+      entries.remove(key, entry);
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return entry.value;
+  }
+
+  public void put(K key, V value) {
+    put(key, value, generation.get());
+  }
+
+  /**
+   * Caches the value, unless the cache was invalidated since the given generation (read with {@link #getGeneration()} before loading the value).
+   */
+  public void put(K key, V value, long loadGeneration) {
+    if (ttlMillis > 0 && value != null && generation.get() == loadGeneration) {
+      Entry<V> entry = new Entry<>(value, System.currentTimeMillis() + ttlMillis);
+      entries.put(key, entry);
+      // An invalidation running concurrently with the put either sees the new entry, or is noticed here
+      if (generation.get() != loadGeneration) {
+        entries.remove(key, entry);
+      }
+    }
+  }
+
+  /**
+   * Returns the current generation of the cache, which changes on every invalidation.
+   */
+  public long getGeneration() {
+    return generation.get();
+  }
+
+  public void invalidate(K key) {
+    generation.incrementAndGet();
+    entries.remove(key);
+  }
+
+  /**
+   * Removes every entry whose key matches the given predicate.
+   */
+  public void invalidateIf(Predicate<? super K> predicate) {
+    generation.incrementAndGet();
+    synchronized (entries) {
+      entries.keySet().removeIf(predicate);
+    }
+  }
+
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    entries.clear();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the number of lookups which found a live entry, since the cache was created.
+   */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of lookups which found no entry (or an expired one), since the cache was created.
+   */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  private static final class Entry<V> {
+
+    private final V value;
+    private final long expiresAt;
+
+    private Entry(V value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+}
@@ -0,0 +1,160 @@
+package eu.arrowhead.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.log4j.Logger;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.RequestEntityProcessing;
+
+/**
+ * Holds the shared JAX-RS clients used by {@link Utility#sendRequest(String, String, Object)}. Creating a new <tt>Client</tt> for every request
+ * means a new connection (and for HTTPS a new TLS handshake) on every inter-system call, so instead one client is kept for plain HTTP and one for
+ * every <tt>SSLContext</tt> in use. The clients are backed by a pooled Apache HTTP connection manager, which keeps the connections alive between
+ * requests.
+ * <p>
+ * The pool can be tuned with the following (optional) entries of the <i>app.properties</i> file: <tt>http_client_max_total</tt>,
+ * <tt>http_client_max_per_route</tt>, <tt>http_client_connect_timeout</tt>, <tt>http_client_read_timeout</tt>,
+ * <tt>http_client_idle_timeout</tt> (milliseconds, connections idle for longer are evicted) and <tt>http_client_validate_after_inactivity</tt>.
+ */
+public final class HttpClientPool {
+
+  private static Logger log = Logger.getLogger(HttpClientPool.class.getName());
+  private static final Properties prop = Utility.getProp();
+  private static final int maxTotal = Integer.valueOf(prop.getProperty("http_client_max_total", "200"));
+  private static final int maxPerRoute = Integer.valueOf(prop.getProperty("http_client_max_per_route", "20"));
+  private static final int connectTimeout = Integer.valueOf(prop.getProperty("http_client_connect_timeout", "30000"));
+  private static final int readTimeout = Integer.valueOf(prop.getProperty("http_client_read_timeout", "30000"));
+  private static final long idleTimeout = Long.valueOf(prop.getProperty("http_client_idle_timeout", "60000"));
+  private static final int validateAfterInactivity = Integer.valueOf(prop.getProperty("http_client_validate_after_inactivity", "2000"));
+
+  private static final Map<String, PoolingHttpClientConnectionManager> connectionManagers = new ConcurrentHashMap<>();
+  private static final Map<SSLContext, Client> secureClients = new ConcurrentHashMap<>();
+  private static volatile Client insecureClient;
+  private static final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "http-client-pool-evictor");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  static {
+    long period = Math.max(idleTimeout / 2, 1000);
+    evictor.scheduleWithFixedDelay(HttpClientPool::evictIdleConnections, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  private HttpClientPool() throws AssertionError {
+    throw new AssertionError("HttpClientPool is a non-instantiable class");
+  }
+
+  /**
+   * Returns the shared client for plain HTTP requests.
+   */
+  static Client getClient() {
+    if (insecureClient == null) {
+      synchronized (HttpClientPool.class) {
+        if (insecureClient == null) {
+          insecureClient = buildClient("http", null, null);
+        }
+      }
+    }
+    return insecureClient;
+  }
+
+  /**
+   * Returns the shared client for HTTPS requests made with the given <tt>SSLContext</tt>. The client is created on the first call.
+   */
+  static Client getClient(SSLContext sslContext, HostnameVerifier hostnameVerifier) {
+    return secureClients.computeIfAbsent(sslContext, context -> buildClient("https-" + Integer.toHexString(System.identityHashCode(context)), context,
+                                                                           hostnameVerifier));
+  }
+
+  /**
+   * Returns a snapshot of the connection pool statistics (leased, pending, available and max connections), keyed by pool name.
+   */
+  public static Map<String, PoolStats> getPoolStats() {
+    Map<String, PoolStats> stats = new LinkedHashMap<>();
+    for (Map.Entry<String, PoolingHttpClientConnectionManager> entry : connectionManagers.entrySet()) {
+      stats.put(entry.getKey(), entry.getValue().getTotalStats());
+    }
+    return stats;
+  }
+
+  /**
+   * Closes every pooled client and its connections. Meant to be called when the Core System is shutting down.
+   */
+  public static synchronized void shutdown() {
+    evictor.shutdownNow();
+    if (insecureClient != null) {
+      insecureClient.close();
+      insecureClient = null;
+    }
+    secureClients.values().forEach(Client::close);
+    secureClients.clear();
+    connectionManagers.values().forEach(PoolingHttpClientConnectionManager::shutdown);
+    connectionManagers.clear();
+  }
+
+  private static Client buildClient(String poolName, SSLContext sslContext, HostnameVerifier hostnameVerifier) {
+    RegistryBuilder<ConnectionSocketFactory> registryBuilder = RegistryBuilder.<ConnectionSocketFactory>create()
+        .register("http", PlainConnectionSocketFactory.getSocketFactory());
+    if (sslContext != null) {
+      registryBuilder.register("https", new SSLConnectionSocketFactory(sslContext, hostnameVerifier));
+    }
+    Registry<ConnectionSocketFactory> registry = registryBuilder.build();
+
+    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(registry);
+    connectionManager.setMaxTotal(maxTotal);
+    connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+    connectionManager.setValidateAfterInactivity(validateAfterInactivity);
+    connectionManagers.put(poolName, connectionManager);
+
+    ClientConfig configuration = new ClientConfig();
+    configuration.connectorProvider(new ApacheConnectorProvider());
+    configuration.property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager);
+    configuration.property(ClientProperties.CONNECT_TIMEOUT, connectTimeout);
+    configuration.property(ClientProperties.READ_TIMEOUT, readTimeout);
+    // Send Content-Length instead of chunked bodies, like the default HttpUrlConnector did
+    configuration.property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.BUFFERED);
+
+    log.info("Created pooled HTTP client (" + poolName + ") with max " + maxTotal + " connections, " + maxPerRoute + " per route");
+    if (sslContext != null) {
+      return ClientBuilder.newBuilder().sslContext(sslContext).withConfig(configuration).hostnameVerifier(hostnameVerifier).build();
+    } else {
+      return ClientBuilder.newClient(configuration);
+    }
+  }
+
+  private static void evictIdleConnections() {
+    try {
+      for (Map.Entry<String, PoolingHttpClientConnectionManager> entry : connectionManagers.entrySet()) {
+        PoolingHttpClientConnectionManager connectionManager = entry.getValue();
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+        if (log.isDebugEnabled()) {
+          log.debug("HTTP client pool " + entry.getKey() + ": " + connectionManager.getTotalStats());
+        }
+      }
+    } catch (RuntimeException e) {
+      log.error("Evicting idle HTTP connections failed: " + e.getMessage());
+    }
+  }
+
+}
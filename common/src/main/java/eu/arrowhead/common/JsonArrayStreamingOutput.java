@@ -0,0 +1,97 @@
+package eu.arrowhead.common;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
+
+/**
+ * Writes a JSON array to the response body element by element, as the elements are produced (for example by
+ * {@link DatabaseManager#scroll(Class, java.util.Map, Consumer)}), instead of building the whole list in memory first. Every element is serialized
+ * with the same JSON provider (MOXy) the JAX-RS resources use, so the elements look exactly like in the non-streaming responses.
+ * <p>
+ * The array can be wrapped into an object with the <tt>prefix</tt> and <tt>suffix</tt> parameters, e.g. <tt>{"serviceQueryData":</tt> and
+ * <tt>}</tt>.
+ *
+ * @param <T> the type of the array elements
+ */
+public final class JsonArrayStreamingOutput<T> implements StreamingOutput {
+
+  private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+  private final Class<T> elementClass;
+  private final Providers providers;
+  private final Consumer<Consumer<? super T>> source;
+  private final String prefix;
+  private final String suffix;
+
+  public JsonArrayStreamingOutput(Class<T> elementClass, Providers providers, Consumer<Consumer<? super T>> source) {
+    this(elementClass, providers, source, "", "");
+  }
+
+  /**
+   * @param elementClass the class of the array elements, used to look up the JSON writer
+   * @param providers the JAX-RS providers of the application (can be injected into a resource method with <tt>@Context</tt>)
+   * @param source passes every element to the given consumer, in the order they should appear in the array
+   * @param prefix written before the array
+   * @param suffix written after the array
+   */
+  public JsonArrayStreamingOutput(Class<T> elementClass, Providers providers, Consumer<Consumer<? super T>> source, String prefix, String suffix) {
+    this.elementClass = elementClass;
+    this.providers = providers;
+    this.source = source;
+    this.prefix = prefix;
+    this.suffix = suffix;
+  }
+
+  @Override
+  public void write(OutputStream output) throws IOException {
+    MessageBodyWriter<T> writer = providers.getMessageBodyWriter(elementClass, elementClass, NO_ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE);
+    if (writer == null) {
+      throw new IOException("No JSON writer is registered for " + elementClass.getName());
+    }
+    MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+    // The element writer must not close the response stream after the first element
+    OutputStream elementOutput = new FilterOutputStream(output) {
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+      }
+
+      @Override
+      public void close() throws IOException {
+        flush();
+      }
+    };
+
+    output.write((prefix + "[").getBytes(StandardCharsets.UTF_8));
+    boolean[] first = {true};
+    try {
+      source.accept(element -> {
+        try {
+          if (!first[0]) {
+            output.write(',');
+          }
+          first[0] = false;
+          writer.writeTo(element, elementClass, elementClass, NO_ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE, headers, elementOutput);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    output.write(("]" + suffix).getBytes(StandardCharsets.UTF_8));
+    output.flush();
+  }
+
+}
@@ -0,0 +1,289 @@
+package eu.arrowhead.common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps an in-memory health table of the provider endpoints (host and port) registered in the Service Registry, so the <i>pingProviders</i>
+ * queries do not have to open a blocking connection to every provider while the consumer waits. The endpoints are probed in the background,
+ * concurrently, with TCP connection attempts (see {@link ConnectivityProber}):
+ * <ul>
+ * <li>reachable endpoints are probed again after <tt>probeInterval</tt> milliseconds,</li>
+ * <li>unreachable endpoints are probed with exponential backoff (2, 4, 8... times the interval, at most <tt>maxBackoff</tt> milliseconds),</li>
+ * <li>endpoints which were neither tracked nor queried for <tt>idleTimeout</tt> milliseconds are dropped from the table.</li>
+ * </ul>
+ * Endpoints missing from the table (for example right after start-up) are probed on the first query, all of them at the same time.
+ */
+public final class ProviderHealthTracker {
+
+  private static Logger log = Logger.getLogger(ProviderHealthTracker.class.getName());
+
+  private static final int PROBE_THREADS = 4;
+
+  private final Map<List<Object>, Target> targets = new ConcurrentHashMap<>();
+  private final int timeout;
+  private final long probeInterval;
+  private final long maxBackoff;
+  private final long idleTimeout;
+  private final int maxConnections;
+  private final ExecutorService probeExecutor;
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * @param timeout the connection timeout of one probe in milliseconds
+   * @param probeInterval the time between 2 probes of a reachable endpoint in milliseconds
+   * @param maxBackoff the maximum time between 2 probes of an unreachable endpoint in milliseconds
+   * @param idleTimeout unused endpoints are dropped from the table after this many milliseconds
+   * @param maxConnections the maximum number of connection attempts in progress at the same time in one probe round
+   */
+  public ProviderHealthTracker(int timeout, long probeInterval, long maxBackoff, long idleTimeout, int maxConnections) {
+    this.timeout = timeout;
+    this.probeInterval = probeInterval;
+    this.maxBackoff = Math.max(maxBackoff, probeInterval);
+    this.idleTimeout = idleTimeout;
+    this.maxConnections = maxConnections;
+    // One probe round checks many endpoints at once, a few threads are only needed so the first queries do not wait for a running round
+    AtomicInteger threadCount = new AtomicInteger();
+    probeExecutor = Executors.newFixedThreadPool(PROBE_THREADS, runnable -> {
+      Thread thread = new Thread(runnable, "provider-probe-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "provider-health-tracker");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Starts the background probing. The table is checked for endpoints due for a probe once every second (or every <tt>probeInterval</tt>, if that
+   * is shorter).
+   */
+  public void start() {
+    long period = Math.max(Math.min(probeInterval, 1000), 100);
+    scheduler.scheduleWithFixedDelay(this::probeDueTargets, period, period, TimeUnit.MILLISECONDS);
+    log.info("Provider health tracker started, probe interval: " + probeInterval + " ms, timeout: " + timeout + " ms");
+  }
+
+  public void shutdown() {
+    scheduler.shutdownNow();
+    probeExecutor.shutdownNow();
+  }
+
+  /**
+   * Adds the endpoint to the health table (if it was not there yet), and probes it in the background. Called when a provider registers.
+   */
+  public void track(String host, int port) {
+    Target target = getTarget(host, port);
+    if (target.reachable == null) {
+      probe(Collections.singletonList(target));
+    }
+  }
+
+  /**
+   * Adds every endpoint to the health table, and probes the new ones in one background round, like {@link #track(String, int)} does for one
+   * endpoint. Used to seed the table with the already registered providers at start-up.
+   *
+   * @param endpoints list of <tt>[host, port]</tt> lists, see {@link ConnectivityProber#endpoint(String, int)}
+   */
+  public void trackAll(Collection<List<Object>> endpoints) {
+    List<Target> newTargets = new ArrayList<>();
+    for (List<Object> endpoint : endpoints) {
+      Target target = getTarget((String) endpoint.get(0), (Integer) endpoint.get(1));
+      if (target.reachable == null) {
+        newTargets.add(target);
+      }
+    }
+    probe(newTargets);
+  }
+
+  public void untrack(String host, int port) {
+    targets.remove(ConnectivityProber.endpoint(host, port));
+  }
+
+  /**
+   * Returns whether the endpoint was reachable at its last probe. Endpoints which were never probed are probed now (waiting at most the probe
+   * timeout), and count as unreachable if that fails.
+   */
+  public boolean isReachable(String host, int port) {
+    List<Object> endpoint = ConnectivityProber.endpoint(host, port);
+    return areReachable(Collections.singletonList(endpoint)).get(endpoint);
+  }
+
+  /**
+   * Returns the reachability of every given endpoint (keyed by the <tt>[host, port]</tt> list), like {@link #isReachable(String, int)}. The
+   * endpoints which were never probed are probed at the same time, so the call takes at most one probe timeout.
+   *
+   * @param endpoints list of <tt>[host, port]</tt> lists, see {@link ConnectivityProber#endpoint(String, int)}
+   */
+  public Map<List<Object>, Boolean> areReachable(Collection<List<Object>> endpoints) {
+    Map<List<Object>, Boolean> result = new HashMap<>();
+    Map<List<Object>, Target> unknownTargets = new HashMap<>();
+    for (List<Object> endpoint : endpoints) {
+      Target target = getTarget((String) endpoint.get(0), (Integer) endpoint.get(1));
+      if (target.reachable != null) {
+        result.put(endpoint, target.reachable);
+      } else {
+        unknownTargets.put(endpoint, target);
+      }
+    }
+    if (unknownTargets.isEmpty()) {
+      return result;
+    }
+
+    Map<Target, CompletableFuture<Boolean>> probes = probe(unknownTargets.values());
+    Map<List<Object>, CompletableFuture<Boolean>> pendingProbes = new HashMap<>();
+    for (Map.Entry<List<Object>, Target> entry : unknownTargets.entrySet()) {
+      pendingProbes.put(entry.getKey(), probes.get(entry.getValue()));
+    }
+
+    long deadline = System.currentTimeMillis() + timeout + 1000;
+    for (Map.Entry<List<Object>, CompletableFuture<Boolean>> entry : pendingProbes.entrySet()) {
+      boolean reachable;
+      try {
+        reachable = entry.getValue().get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        reachable = false;
+      } catch (ExecutionException | TimeoutException e) {
+        reachable = false;
+      }
+      result.put(entry.getKey(), reachable);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the connection latency measured at the last successful probe of the endpoint in milliseconds, or
+   * {@link ConnectivityProber#UNREACHABLE} if the endpoint is not in the table or was unreachable at its last probe.
+   */
+  public long getLatency(String host, int port) {
+    Target target = targets.get(ConnectivityProber.endpoint(host, port));
+    return target == null || target.reachable == null || !target.reachable ? ConnectivityProber.UNREACHABLE : target.latency;
+  }
+
+  public int size() {
+    return targets.size();
+  }
+
+  private Target getTarget(String host, int port) {
+    Target target = targets.computeIfAbsent(ConnectivityProber.endpoint(host, port), key -> new Target(host, port));
+    target.lastUsed = System.currentTimeMillis();
+    return target;
+  }
+
+  private void probeDueTargets() {
+    try {
+      long now = System.currentTimeMillis();
+      List<List<Object>> idleTargets = new ArrayList<>();
+      List<Target> dueTargets = new ArrayList<>();
+      for (Map.Entry<List<Object>, Target> entry : targets.entrySet()) {
+        Target target = entry.getValue();
+        if (now - target.lastUsed > idleTimeout) {
+          idleTargets.add(entry.getKey());
+        } else if (target.nextProbe <= now) {
+          dueTargets.add(target);
+        }
+      }
+      probe(dueTargets);
+      for (List<Object> key : idleTargets) {
+        targets.remove(key);
+      }
+      if (!idleTargets.isEmpty()) {
+        log.debug(idleTargets.size() + " idle endpoints were removed from the provider health table");
+      }
+    } catch (RuntimeException e) {
+      log.error("Provider health check failed: " + e.getMessage());
+    }
+  }
+
+  // Starts one probe round for the targets without a running probe, and returns the (new or already running) probe of every target
+  private Map<Target, CompletableFuture<Boolean>> probe(Collection<Target> targetsToProbe) {
+    Map<Target, CompletableFuture<Boolean>> probes = new HashMap<>();
+    Map<List<Object>, Target> newProbes = new HashMap<>();
+    for (Target target : targetsToProbe) {
+      synchronized (target) {
+        if (target.runningProbe == null) {
+          target.runningProbe = new CompletableFuture<>();
+          newProbes.put(ConnectivityProber.endpoint(target.host, target.port), target);
+        }
+        probes.put(target, target.runningProbe);
+      }
+    }
+    if (newProbes.isEmpty()) {
+      return probes;
+    }
+
+    try {
+      probeExecutor.execute(() -> {
+        Map<List<Object>, Long> latencies = Collections.emptyMap();
+        try {
+          latencies = ConnectivityProber.probe(newProbes.keySet(), timeout, maxConnections);
+        } finally {
+          for (Map.Entry<List<Object>, Target> entry : newProbes.entrySet()) {
+            entry.getValue().update(latencies.getOrDefault(entry.getKey(), ConnectivityProber.UNREACHABLE));
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // Shutting down
+      for (Target target : newProbes.values()) {
+        target.update(ConnectivityProber.UNREACHABLE);
+      }
+    }
+    return probes;
+  }
+
+  private final class Target {
+
+    private final String host;
+    private final int port;
+    private volatile Boolean reachable;
+    private volatile long latency;
+    private volatile long nextProbe;
+    private volatile long lastUsed;
+    private int failures;
+    private CompletableFuture<Boolean> runningProbe;
+
+    private Target(String host, int port) {
+      this.host = host;
+      this.port = port;
+    }
+
+    private synchronized void update(long latency) {
+      boolean reachable = latency != ConnectivityProber.UNREACHABLE;
+      if (reachable) {
+        failures = 0;
+        nextProbe = System.currentTimeMillis() + probeInterval;
+      } else {
+        failures++;
+        long backoff = probeInterval << Math.min(failures, 20);
+        nextProbe = System.currentTimeMillis() + Math.min(backoff, maxBackoff);
+        if (this.reachable == null || this.reachable) {
+          log.info("Provider endpoint " + host + ":" + port + " is unreachable");
+        }
+      }
+      this.latency = latency;
+      this.reachable = reachable;
+      runningProbe.complete(reachable);
+      runningProbe = null;
+    }
+  }
+
+}
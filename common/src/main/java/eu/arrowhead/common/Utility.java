@@ -1,36 +1,58 @@
 package eu.arrowhead.common;
 
 import eu.arrowhead.common.database.ArrowheadCloud;
+import eu.arrowhead.common.database.ArrowheadService;
+import eu.arrowhead.common.database.ArrowheadSystem;
 import eu.arrowhead.common.database.CoreSystem;
 import eu.arrowhead.common.database.NeighborCloud;
 import eu.arrowhead.common.database.OwnCloud;
 import eu.arrowhead.common.exception.AuthenticationException;
 import eu.arrowhead.common.exception.ErrorMessage;
 import eu.arrowhead.common.exception.UnavailableServerException;
+import java.io.File;
+import java.io.FileInputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import javax.ws.rs.NotAllowedException;
 import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status.Family;
 import javax.ws.rs.core.UriBuilder;
 import org.apache.log4j.Logger;
-import org.glassfish.jersey.client.ClientConfig;
-import org.glassfish.jersey.client.ClientProperties;
+import org.jetbrains.annotations.Nullable;
 
 public final class Utility {
 
   private static Logger log = Logger.getLogger(Utility.class.getName());
-  private static SSLContext sslContext = null;
+  private static volatile SSLContext sslContext = null;
+  private static Properties prop;
   private static DatabaseManager dm = DatabaseManager.getInstance();
-  private static HashMap<String, Object> restrictionMap = new HashMap<>();
+  /**
+   * Response header of the paginated list endpoints, holding the <tt>after</tt> query parameter of the next page. Missing on the last page.
+   */
+  public static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+  private static final String NEIGHBOR_CLOUDS_KEY = "neighbor_clouds";
+  private static final String OWN_CLOUD_KEY = "own_cloud";
+  // Core System, Neighbor Cloud and Own Cloud lookups are on the hot path of every inter-system call, but these tables rarely change
+  private static final long endpointCacheTtl = TimeUnit.SECONDS.toMillis(Long.valueOf(getProp().getProperty("endpoint_cache_ttl", "60")));
+  private static final ExpiringCache<String, CoreSystem> coreSystemCache = new ExpiringCache<>(endpointCacheTtl);
+  private static final ExpiringCache<String, List<String>> neighborCloudUriCache = new ExpiringCache<>(endpointCacheTtl);
+  private static final ExpiringCache<String, ArrowheadCloud> ownCloudCache = new ExpiringCache<>(endpointCacheTtl);
   private static HostnameVerifier allHostsValid = (hostname, session) -> {
     // Decide whether to allow the connection...
     return true;
@@ -40,6 +62,21 @@ public final class Utility {
     throw new AssertionError("Utility is a non-instantiable class");
   }
 
+  static synchronized Properties getProp() {
+    try {
+      if (prop == null) {
+        prop = new Properties();
+        File file = new File("config" + File.separator + "app.properties");
+        FileInputStream inputStream = new FileInputStream(file);
+        prop.load(inputStream);
+      }
+    } catch (Exception ex) {
+      ex.printStackTrace();
+    }
+
+    return prop;
+  }
+
   public static void setSSLContext(SSLContext context) {
     sslContext = context;
   }
@@ -52,19 +89,15 @@ public final class Utility {
       isSecure = true;
     }
 
-    ClientConfig configuration = new ClientConfig();
-    configuration.property(ClientProperties.CONNECT_TIMEOUT, 30000);
-    configuration.property(ClientProperties.READ_TIMEOUT, 30000);
-
     Client client;
     if (isSecure && Utility.sslContext != null) {
-      client = ClientBuilder.newBuilder().sslContext(sslContext).withConfig(configuration).hostnameVerifier(allHostsValid).build();
+      client = HttpClientPool.getClient(sslContext, allHostsValid);
     } else if (isSecure && Utility.sslContext == null) {
       log.error("sendRequest() method throws AuthenticationException");
       throw new AuthenticationException(
           "SSL Context is not set, but secure request sending was invoked. An insecure module can not send requests to secure modules.");
     } else {
-      client = ClientBuilder.newClient(configuration);
+      client = HttpClientPool.getClient();
     }
 
     Builder request = client.target(UriBuilder.fromUri(uri).build()).request().header("Content-type", "application/json");
@@ -97,6 +130,7 @@ public final class Utility {
       try {
         errorMessage = response.readEntity(ErrorMessage.class);
       } catch (RuntimeException e) {
+        response.close();
         log.error("Unknown reason for RuntimeException at the sendRequest() method.", e);
         throw new RuntimeException("Unknown error occurred at " + uri + ". Check log for possibly more information.");
       }
@@ -112,9 +146,131 @@ public final class Utility {
       }
     }
 
+    /* Read the entity into memory, so the pooled connection is released even if the caller never reads or closes the response.
+       The entity can still be read with readEntity() afterwards. */
+    try {
+      response.bufferEntity();
+    } catch (ProcessingException e) {
+      response.close();
+      log.error("UnavailableServerException occurred at " + uri);
+      throw new UnavailableServerException("Could not read the response from: " + uri);
+    }
+
     return response;
   }
 
+  /**
+   * Asynchronous variant of {@link #sendRequest(String, String, Object)}. The request is sent on a bounded executor, and the returned future
+   * completes with the response, or exceptionally with the same exception <tt>sendRequest</tt> would have thrown (wrapped into a
+   * <tt>CompletionException</tt> by <tt>join()</tt>). The executor size can be set with the <i>async_request_pool_size</i> and
+   * <i>async_request_queue_size</i> properties. If the queue is full, the future fails with an {@link UnavailableServerException}.
+   */
+  public static <T> CompletableFuture<Response> sendRequestAsync(String uri, String method, T payload) {
+    try {
+      return CompletableFuture.supplyAsync(() -> sendRequest(uri, method, payload), AsyncRequestExecutor.executor);
+    } catch (RejectedExecutionException e) {
+      log.error("sendRequestAsync: too many outstanding requests, rejected request to " + uri);
+      CompletableFuture<Response> future = new CompletableFuture<>();
+      future.completeExceptionally(new UnavailableServerException("Too many outstanding requests, could not send request to: " + uri));
+      return future;
+    }
+  }
+
+  /**
+   * Tells the Orchestrator that the Service Registry entries or the authorization rights of the given Service changed, so its cached orchestration
+   * results for this Service have to be dropped. With a <tt>null</tt> Service every cached result is dropped. The notification is sent in the
+   * background on a best-effort basis: if the Orchestrator can not be reached, its cached results still expire after their short time-to-live.
+   */
+  public static void invalidateOrchestrationCache(@Nullable ArrowheadService service) {
+    notifyInBackground("invalidate the orchestration cache", () -> {
+      UriBuilder ub = UriBuilder.fromPath(getOrchestratorUri()).path("cache");
+      if (service != null) {
+        ub.queryParam("serviceGroup", service.getServiceGroup()).queryParam("serviceDefinition", service.getServiceDefinition());
+      }
+      return ub.toString();
+    });
+  }
+
+  /**
+   * Tells the Authorization Core System that the authorization rules of the given consumer System changed in the database, so it has to rebuild its
+   * in-memory rule index and drop its cached decisions about this consumer. The notification is sent in the background on a best-effort basis: if
+   * the Authorization System can not be reached, it picks up the changes at its next periodic rebuild.
+   */
+  public static void reloadAuthorizationRules(ArrowheadSystem consumer) {
+    notifyInBackground("reload the authorization rules", () -> UriBuilder.fromPath(getAuthorizationUri()).path("rules")
+                                                                         .queryParam("systemGroup", consumer.getSystemGroup())
+                                                                         .queryParam("systemName", consumer.getSystemName()).toString());
+  }
+
+  /**
+   * Same as {@link #reloadAuthorizationRules(ArrowheadSystem)}, for the inter-cloud authorization rules of the given Cloud.
+   */
+  public static void reloadAuthorizationRules(ArrowheadCloud cloud) {
+    notifyInBackground("reload the authorization rules", () -> UriBuilder.fromPath(getAuthorizationUri()).path("rules")
+                                                                         .queryParam("operator", cloud.getOperator())
+                                                                         .queryParam("cloudName", cloud.getCloudName()).toString());
+  }
+
+  /**
+   * Tells the Authorization Core System that the <i>authenticationInfo</i> (public key) of the given System changed in the database, or the System
+   * was deleted, so it has to drop its cached public key. The notification is sent in the background on a best-effort basis: if the Authorization
+   * System can not be reached, its cached key still expires after the <i>public_key_cache_ttl</i> of the Authorization System.
+   */
+  public static void invalidatePublicKey(ArrowheadSystem system) {
+    notifyInBackground("invalidate the cached public key", () -> UriBuilder.fromPath(getAuthorizationUri()).path("keys")
+                                                                         .queryParam("systemGroup", system.getSystemGroup())
+                                                                         .queryParam("systemName", system.getSystemName()).toString());
+  }
+
+  /**
+   * Drops the cached Core System, Neighbor Cloud and Own Cloud entries of this process (see {@link #invalidateEndpointCache()}), then tells the
+   * Orchestrator, Service Registry, Authorization and Gatekeeper Core Systems to do the same. The URIs of the notified systems are read from the
+   * database after the local invalidation, so an updated Core System is notified at its new address. The notifications are sent in the background
+   * on a best-effort basis: an unreachable Core System still picks up the changes when its cached entries expire (<i>endpoint_cache_ttl</i>).
+   */
+  public static void notifyEndpointChange() {
+    invalidateEndpointCache();
+    notifyInBackground("invalidate the endpoint cache of the Orchestrator", () -> UriBuilder.fromPath(getOrchestratorUri()).path("endpoints")
+                                                                                          .toString());
+    notifyInBackground("invalidate the endpoint cache of the Service Registry", () -> UriBuilder.fromPath(getServiceRegistryUri()).path("endpoints")
+                                                                                              .toString());
+    notifyInBackground("invalidate the endpoint cache of the Authorization", () -> UriBuilder.fromPath(getAuthorizationUri()).path("endpoints")
+                                                                                           .toString());
+    notifyInBackground("invalidate the endpoint cache of the Gatekeeper", () -> UriBuilder.fromPath(getGatekeeperUri()).path("endpoints")
+                                                                                        .toString());
+  }
+
+  // Sends a DELETE request to the given URI on the async request pool, only logging the failures
+  private static void notifyInBackground(String action, Supplier<String> uri) {
+    try {
+      CompletableFuture.runAsync(() -> sendRequest(uri.get(), "DELETE", null).close(), AsyncRequestExecutor.executor).whenComplete((result, e) -> {
+        if (e != null) {
+          log.warn("Could not " + action + ": " + e.getMessage());
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      log.warn("Could not " + action + ": too many outstanding requests");
+    }
+  }
+
+  // Lazy holder, so the threads are only created when a Core System actually sends asynchronous requests
+  private static final class AsyncRequestExecutor {
+
+    private static final int poolSize = Integer.valueOf(getProp().getProperty("async_request_pool_size", "32"));
+    private static final int queueSize = Integer.valueOf(getProp().getProperty("async_request_queue_size", "1000"));
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                                                                           new ArrayBlockingQueue<>(queueSize), runnable -> {
+      Thread thread = new Thread(runnable, "async-request-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    static {
+      ((ThreadPoolExecutor) executor).allowCoreThreadTimeOut(true);
+    }
+  }
+
   public static String getUri(String address, int port, String serviceUri, boolean isSecure) {
     if (address == null || serviceUri == null) {
       log.error("Address and serviceUri can not be null (Utility:getUri throws NPE)");
@@ -136,9 +292,7 @@ public final class Utility {
   }
 
   public static String getOrchestratorUri() {
-    restrictionMap.clear();
-    restrictionMap.put("systemName", "orchestrator");
-    CoreSystem orchestrator = dm.get(CoreSystem.class, restrictionMap);
+    CoreSystem orchestrator = findCoreSystem("orchestrator");
     if (orchestrator == null) {
       log.error("Utility:getOrchestratorUri System not found in the database!");
       throw new RuntimeException("Orchestrator Core System not found in the database!");
@@ -147,9 +301,7 @@ public final class Utility {
   }
 
   public static String getServiceRegistryUri() {
-    restrictionMap.clear();
-    restrictionMap.put("systemName", "serviceregistry");
-    CoreSystem serviceRegistry = dm.get(CoreSystem.class, restrictionMap);
+    CoreSystem serviceRegistry = findCoreSystem("serviceregistry");
     if (serviceRegistry == null) {
       log.error("Utility:getServiceRegistryUri System not found in the database!");
       throw new RuntimeException("Service Registry Core System not found in the database!");
@@ -158,9 +310,7 @@ public final class Utility {
   }
 
   public static String getAuthorizationUri() {
-    restrictionMap.clear();
-    restrictionMap.put("systemName", "authorization");
-    CoreSystem authorization = dm.get(CoreSystem.class, restrictionMap);
+    CoreSystem authorization = findCoreSystem("authorization");
     if (authorization == null) {
       log.error("Utility:getAuthorizationUri System not found in the database!");
       throw new RuntimeException("Authorization Core System not found in the database!");
@@ -169,9 +319,7 @@ public final class Utility {
   }
 
   public static String getGatekeeperUri() {
-    restrictionMap.clear();
-    restrictionMap.put("systemName", "gatekeeper");
-    CoreSystem gatekeeper = dm.get(CoreSystem.class, restrictionMap);
+    CoreSystem gatekeeper = findCoreSystem("gatekeeper");
     if (gatekeeper == null) {
       log.error("Utility:getGatekeeperUri System not found in the database!");
       throw new RuntimeException("Gatekeeper Core System not found in the database!");
@@ -180,9 +328,7 @@ public final class Utility {
   }
 
   public static String getQosUri() {
-    restrictionMap.clear();
-    restrictionMap.put("systemName", "qos");
-    CoreSystem qos = dm.get(CoreSystem.class, restrictionMap);
+    CoreSystem qos = findCoreSystem("qos");
     if (qos == null) {
       log.error("Utility:getQosUri System not found in the database!");
       throw new RuntimeException("QoS Core System not found in the database!");
@@ -191,9 +337,7 @@ public final class Utility {
   }
 
   public static String getApiUri() {
-    restrictionMap.clear();
-    restrictionMap.put("systemName", "api");
-    CoreSystem api = dm.get(CoreSystem.class, restrictionMap);
+    CoreSystem api = findCoreSystem("api");
     if (api == null) {
       log.error("Utility:getApiUri System not found in the database!");
       throw new RuntimeException("API Core System not found in the database!");
@@ -202,19 +346,26 @@ public final class Utility {
   }
 
   public static List<String> getNeighborCloudURIs() {
-    List<NeighborCloud> cloudList = new ArrayList<>();
-    cloudList.addAll(dm.getAll(NeighborCloud.class, null));
-
-    List<String> uriList = new ArrayList<>();
-    for (NeighborCloud cloud : cloudList) {
-      uriList.add(
-          getUri(cloud.getCloud().getAddress(), cloud.getCloud().getPort(), cloud.getCloud().getGatekeeperServiceURI(), cloud.getCloud().isSecure()));
-    }
+    List<String> uriList = neighborCloudUriCache.get(NEIGHBOR_CLOUDS_KEY, key -> {
+      List<String> uris = new ArrayList<>();
+      for (NeighborCloud cloud : dm.getAll(NeighborCloud.class, null)) {
+        uris.add(
+            getUri(cloud.getCloud().getAddress(), cloud.getCloud().getPort(), cloud.getCloud().getGatekeeperServiceURI(), cloud.getCloud().isSecure()));
+      }
+      return Collections.unmodifiableList(uris);
+    });
 
-    return uriList;
+    // Callers are allowed to modify the returned list
+    return new ArrayList<>(uriList);
   }
 
   public static ArrowheadCloud getOwnCloud() {
+    ArrowheadCloud ownCloud = ownCloudCache.getIfPresent(OWN_CLOUD_KEY);
+    if (ownCloud != null) {
+      return ownCloud;
+    }
+
+    long loadGeneration = ownCloudCache.getGeneration();
     List<OwnCloud> cloudList = dm.getAll(OwnCloud.class, null);
     if (cloudList.isEmpty()) {
       log.error("Utility:getOwnCloud not found in the database.");
@@ -224,13 +375,13 @@ public final class Utility {
       log.warn("own_cloud table should NOT have more than 1 rows.");
     }
 
-    return cloudList.get(0).getCloud();
+    ownCloud = cloudList.get(0).getCloud();
+    ownCloudCache.put(OWN_CLOUD_KEY, ownCloud, loadGeneration);
+    return ownCloud;
   }
 
   public static CoreSystem getCoreSystem(String systemName) {
-    restrictionMap.clear();
-    restrictionMap.put("systemName", systemName);
-    CoreSystem coreSystem = dm.get(CoreSystem.class, restrictionMap);
+    CoreSystem coreSystem = findCoreSystem(systemName);
     if (coreSystem == null) {
       log.error("Utility:getCoreSystem " + systemName + " not found in the database.");
       throw new RuntimeException("Requested Core System " + "(" + systemName + ") not found in the database!");
@@ -239,6 +390,21 @@ public final class Utility {
     return coreSystem;
   }
 
+  /**
+   * Drops every cached Core System, Neighbor Cloud and Own Cloud entry, so the next lookup reads them from the database again. Has to be called
+   * when these tables are modified. Other processes only see the change after their cached entries expire (<i>endpoint_cache_ttl</i>), unless
+   * they are notified with {@link #notifyEndpointChange()}.
+   */
+  public static void invalidateEndpointCache() {
+    coreSystemCache.invalidateAll();
+    neighborCloudUriCache.invalidateAll();
+    ownCloudCache.invalidateAll();
+  }
+
+  private static CoreSystem findCoreSystem(String systemName) {
+    return coreSystemCache.get(systemName, name -> dm.getNamed(CoreSystem.class, CoreSystem.FIND_BY_NAME, name));
+  }
+
   public static String stripEndSlash(String uri) {
     if (uri != null && uri.endsWith("/")) {
       return uri.substring(0, uri.length() - 1);
@@ -5,17 +5,30 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.xml.bind.annotation.XmlTransient;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Entity class for storing Arrowhead Clouds in the database. The "operator" and "cloud_name" columns must be unique together.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NamedQueries({
+    @NamedQuery(name = ArrowheadCloud.FIND_BY_OPERATOR_AND_NAME,
+        query = "SELECT c FROM ArrowheadCloud c WHERE c.operator = ?1 AND c.cloudName = ?2")})
 @Table(name = "arrowhead_cloud", uniqueConstraints = {@UniqueConstraint(columnNames = {"operator", "cloud_name"})})
 public class ArrowheadCloud {
 
+  /**
+   * Parameters: operator, cloudName.
+   */
+  public static final String FIND_BY_OPERATOR_AND_NAME = "ArrowheadCloud.findByOperatorAndName";
+
   @Column(name = "id")
   @Id
   @GeneratedValue(strategy = GenerationType.AUTO)
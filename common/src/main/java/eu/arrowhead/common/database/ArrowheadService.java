@@ -14,10 +14,14 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.MapKeyColumn;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
 import javax.xml.bind.annotation.XmlTransient;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.LazyCollection;
 import org.hibernate.annotations.LazyCollectionOption;
 
@@ -25,9 +29,18 @@ import org.hibernate.annotations.LazyCollectionOption;
  * Entity class for storing Arrowhead Services in the database. The "service_group" and service_definition" columns must be unique together.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NamedQueries({
+    @NamedQuery(name = ArrowheadService.FIND_BY_GROUP_AND_DEFINITION,
+        query = "SELECT s FROM ArrowheadService s WHERE s.serviceGroup = ?1 AND s.serviceDefinition = ?2")})
 @Table(name = "arrowhead_service", uniqueConstraints = {@UniqueConstraint(columnNames = {"service_group", "service_definition"})})
 public class ArrowheadService {
 
+  /**
+   * Parameters: serviceGroup, serviceDefinition.
+   */
+  public static final String FIND_BY_GROUP_AND_DEFINITION = "ArrowheadService.findByGroupAndDefinition";
+
   @Column(name = "id")
   @Id
   @GeneratedValue(strategy = GenerationType.AUTO)
@@ -44,11 +57,13 @@ public class ArrowheadService {
 
   @ElementCollection(fetch = FetchType.LAZY)
   @LazyCollection(LazyCollectionOption.FALSE)
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
   @CollectionTable(name = "arrowhead_service_interface_list", joinColumns = @JoinColumn(name="arrowhead_service_id"))
   private List<String> interfaces = new ArrayList<>();
 
   @ElementCollection(fetch = FetchType.LAZY)
   @LazyCollection(LazyCollectionOption.FALSE)
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
   @MapKeyColumn(name = "metadata_key")
   @Column(name = "metadata_value")
   @CollectionTable(name = "arrowhead_service_metadata_map", joinColumns = @JoinColumn(name = "service_id"))
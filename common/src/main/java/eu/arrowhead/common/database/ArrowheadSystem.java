@@ -5,17 +5,30 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.xml.bind.annotation.XmlTransient;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Entity class for storing Arrowhead Systems in the database. The "system_group" and "system_name" columns must be unique together.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NamedQueries({
+    @NamedQuery(name = ArrowheadSystem.FIND_BY_GROUP_AND_NAME,
+        query = "SELECT s FROM ArrowheadSystem s WHERE s.systemGroup = ?1 AND s.systemName = ?2")})
 @Table(name = "arrowhead_system", uniqueConstraints = {@UniqueConstraint(columnNames = {"system_group", "system_name"})})
 public class ArrowheadSystem {
 
+  /**
+   * Parameters: systemGroup, systemName.
+   */
+  public static final String FIND_BY_GROUP_AND_NAME = "ArrowheadSystem.findByGroupAndName";
+
   @Column(name = "id")
   @Id
   @GeneratedValue(strategy = GenerationType.AUTO)
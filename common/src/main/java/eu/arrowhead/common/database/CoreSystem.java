@@ -5,10 +5,14 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
 import javax.xml.bind.annotation.XmlTransient;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * JPA entity class for storing <tt>CoreSystem</tt> information in the database. The <i>system_name</i> column must be unique.
@@ -19,9 +23,18 @@ import javax.xml.bind.annotation.XmlTransient;
  * @author Umlauf Zoltán
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NamedQueries({
+    @NamedQuery(name = CoreSystem.FIND_BY_NAME,
+        query = "SELECT c FROM CoreSystem c WHERE c.systemName = ?1")})
 @Table(name = "core_system", uniqueConstraints = {@UniqueConstraint(columnNames = {"system_name"})})
 public class CoreSystem {
 
+  /**
+   * Parameters: systemName.
+   */
+  public static final String FIND_BY_NAME = "CoreSystem.findByName";
+
   @Column(name = "id")
   @Id
   @GeneratedValue(strategy = GenerationType.AUTO)
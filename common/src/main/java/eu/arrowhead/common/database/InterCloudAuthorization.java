@@ -9,6 +9,8 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.xml.bind.annotation.XmlTransient;
@@ -25,9 +27,18 @@ import javax.xml.bind.annotation.XmlTransient;
  * @author Umlauf Zoltán
  */
 @Entity
+@NamedQueries({
+    @NamedQuery(name = InterCloudAuthorization.FIND_BY_CLOUD_AND_SERVICE,
+        query = "SELECT a FROM InterCloudAuthorization a "
+            + "JOIN FETCH a.cloud JOIN FETCH a.service WHERE a.cloud = ?1 AND a.service = ?2")})
 @Table(name = "inter_cloud_authorization", uniqueConstraints = {@UniqueConstraint(columnNames = {"consumer_cloud_id", "arrowhead_service_id"})})
 public class InterCloudAuthorization {
 
+  /**
+   * Parameters: cloud, service.
+   */
+  public static final String FIND_BY_CLOUD_AND_SERVICE = "InterCloudAuthorization.findByCloudAndService";
+
   @Column(name = "id")
   @Id
   @GeneratedValue(strategy = GenerationType.AUTO)
@@ -9,6 +9,8 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.xml.bind.annotation.XmlTransient;
@@ -25,10 +27,20 @@ import javax.xml.bind.annotation.XmlTransient;
  * @author Umlauf Zoltán
  */
 @Entity
+@NamedQueries({
+    @NamedQuery(name = IntraCloudAuthorization.FIND_AUTHORIZED_PROVIDER_IDS,
+        query = "SELECT a.provider.id FROM IntraCloudAuthorization a "
+            + "WHERE a.consumer = ?1 AND a.service = ?2 AND a.provider.id IN (?3)")})
 @Table(name = "intra_cloud_authorization", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"consumer_system_id", "provider_system_id", "arrowhead_service_id"})})
 public class IntraCloudAuthorization {
 
+  /**
+   * Parameters: consumer, service, collection of provider ids. Returns the ids of the providers, which the consumer is authorized to use the
+   * service from.
+   */
+  public static final String FIND_AUTHORIZED_PROVIDER_IDS = "IntraCloudAuthorization.findAuthorizedProviderIds";
+
   @Column(name = "id")
   @Id
   @GeneratedValue(strategy = GenerationType.AUTO)
@@ -15,6 +15,8 @@ import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.MapKeyColumn;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.xml.bind.annotation.XmlTransient;
@@ -33,11 +35,30 @@ import org.jetbrains.annotations.NotNull;
  * @author Umlauf Zoltán
  */
 @Entity
+@NamedQueries({
+    @NamedQuery(name = OrchestrationStore.FIND_BY_CONSUMER_AND_SERVICE,
+        query = "SELECT o FROM OrchestrationStore o "
+            + "JOIN FETCH o.service JOIN FETCH o.consumer LEFT JOIN FETCH o.providerSystem LEFT JOIN FETCH o.providerCloud "
+            + "WHERE o.consumer = ?1 AND o.service = ?2"),
+    @NamedQuery(name = OrchestrationStore.FIND_DEFAULT_BY_CONSUMER,
+        query = "SELECT o FROM OrchestrationStore o "
+            + "JOIN FETCH o.service JOIN FETCH o.consumer LEFT JOIN FETCH o.providerSystem LEFT JOIN FETCH o.providerCloud "
+            + "WHERE o.consumer = ?1 AND o.isDefault = true")})
 @Table(name = "orchestration_store", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"arrowhead_service_id", "consumer_system_id", "priority", "is_default"})})
 @Check(constraints = "priority >= 0")
 public class OrchestrationStore implements Comparable<OrchestrationStore> {
 
+  /**
+   * Parameters: consumer, service.
+   */
+  public static final String FIND_BY_CONSUMER_AND_SERVICE = "OrchestrationStore.findByConsumerAndService";
+
+  /**
+   * Parameters: consumer.
+   */
+  public static final String FIND_DEFAULT_BY_CONSUMER = "OrchestrationStore.findDefaultByConsumer";
+
   @Column(name = "id")
   @Id
   @GeneratedValue(strategy = GenerationType.AUTO)
@@ -10,15 +10,34 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import javax.persistence.Transient;
 import javax.persistence.UniqueConstraint;
 import javax.xml.bind.annotation.XmlTransient;
 
 @Entity
+@NamedQueries({
+    @NamedQuery(name = ServiceRegistryEntry.FIND_BY_SERVICE,
+        query = "SELECT e FROM ServiceRegistryEntry e "
+            + "JOIN FETCH e.providedService JOIN FETCH e.provider WHERE e.providedService = ?1"),
+    @NamedQuery(name = ServiceRegistryEntry.FIND_BY_SERVICE_AND_PROVIDER,
+        query = "SELECT e FROM ServiceRegistryEntry e "
+            + "JOIN FETCH e.providedService JOIN FETCH e.provider WHERE e.providedService = ?1 AND e.provider = ?2")})
 @Table(name = "service_registry", uniqueConstraints = {@UniqueConstraint(columnNames = {"arrowhead_service_id", "provider_system_id"})})
 public class ServiceRegistryEntry {
 
+  /**
+   * Parameters: providedService.
+   */
+  public static final String FIND_BY_SERVICE = "ServiceRegistryEntry.findByService";
+
+  /**
+   * Parameters: providedService, provider.
+   */
+  public static final String FIND_BY_SERVICE_AND_PROVIDER = "ServiceRegistryEntry.findByServiceAndProvider";
+
   @Column(name = "id")
   @Id
   @GeneratedValue(strategy = GenerationType.AUTO)
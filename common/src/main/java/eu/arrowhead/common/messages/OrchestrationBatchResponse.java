@@ -0,0 +1,28 @@
+package eu.arrowhead.common.messages;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response of the batch orchestration request. The results are in the same order as the <tt>ServiceRequestForm</tt>s of the request.
+ */
+public class OrchestrationBatchResponse {
+
+  private List<OrchestrationBatchResult> results = new ArrayList<>();
+
+  public OrchestrationBatchResponse() {
+  }
+
+  public OrchestrationBatchResponse(List<OrchestrationBatchResult> results) {
+    this.results = results;
+  }
+
+  public List<OrchestrationBatchResult> getResults() {
+    return results;
+  }
+
+  public void setResults(List<OrchestrationBatchResult> results) {
+    this.results = results;
+  }
+
+}
@@ -0,0 +1,45 @@
+package eu.arrowhead.common.messages;
+
+import eu.arrowhead.common.exception.ErrorMessage;
+
+/**
+ * Result of one <tt>ServiceRequestForm</tt> of a batch orchestration request. Either the <tt>orchResponse</tt> or the <tt>errorMessage</tt> field
+ * is set, the latter holds the same error the single orchestration request would have returned for the form.
+ */
+public class OrchestrationBatchResult {
+
+  private OrchestrationResponse orchResponse;
+  private ErrorMessage errorMessage;
+
+  public OrchestrationBatchResult() {
+  }
+
+  public OrchestrationBatchResult(OrchestrationResponse orchResponse) {
+    this.orchResponse = orchResponse;
+  }
+
+  public OrchestrationBatchResult(ErrorMessage errorMessage) {
+    this.errorMessage = errorMessage;
+  }
+
+  public OrchestrationResponse getOrchResponse() {
+    return orchResponse;
+  }
+
+  public void setOrchResponse(OrchestrationResponse orchResponse) {
+    this.orchResponse = orchResponse;
+  }
+
+  public ErrorMessage getErrorMessage() {
+    return errorMessage;
+  }
+
+  public void setErrorMessage(ErrorMessage errorMessage) {
+    this.errorMessage = errorMessage;
+  }
+
+  public boolean isSuccessful() {
+    return orchResponse != null;
+  }
+
+}
@@ -0,0 +1,42 @@
+package eu.arrowhead.common.messages;
+
+import eu.arrowhead.common.database.ArrowheadSystem;
+
+/**
+ * Reported by a consumer <tt>ArrowheadSystem</tt> to the Orchestrator after consuming a Service: how long the provider took to respond (in
+ * milliseconds). The score based matchmaking uses these reports to prefer the fast and lightly loaded providers.
+ */
+public class ProviderFeedback {
+
+  private ArrowheadSystem provider;
+  private long latency;
+
+  public ProviderFeedback() {
+  }
+
+  public ProviderFeedback(ArrowheadSystem provider, long latency) {
+    this.provider = provider;
+    this.latency = latency;
+  }
+
+  public ArrowheadSystem getProvider() {
+    return provider;
+  }
+
+  public void setProvider(ArrowheadSystem provider) {
+    this.provider = provider;
+  }
+
+  public long getLatency() {
+    return latency;
+  }
+
+  public void setLatency(long latency) {
+    this.latency = latency;
+  }
+
+  public boolean isValid() {
+    return provider != null && provider.isValid() && latency >= 0;
+  }
+
+}
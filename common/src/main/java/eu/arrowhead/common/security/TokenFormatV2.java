@@ -0,0 +1,198 @@
+package eu.arrowhead.common.security;
+
+import eu.arrowhead.common.messages.ArrowheadToken;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.security.spec.MGF1ParameterSpec;
+import java.util.Base64;
+import java.util.Collections;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.OAEPParameterSpec;
+import javax.crypto.spec.PSource;
+
+/**
+ * Version 2 of the {@link ArrowheadToken} format, which removes the 244 byte size limit of the token info of the original (version 1) format. The
+ * two formats can be told apart by the token string: only the version 2 tokens start with {@link #PREFIX}.
+ * <ul>
+ * <li>token: <tt>v2.</tt> + Base64(wrapped key) + <tt>.</tt> + Base64(IV) + <tt>.</tt> + Base64(ciphertext), where the token info JSON is encrypted
+ * with a random 128 bit AES key in GCM mode (12 byte IV, 128 bit tag), and the AES key is wrapped with the RSA public key of the provider using
+ * OAEP padding with SHA-256 (and MGF1 with SHA-256)</li>
+ * <li>signature: Base64 of the <tt>SHA256withECDSA</tt> signature of the UTF-8 encoded token string, made with the EC token signing key of the
+ * Authorization System</li>
+ * </ul>
+ * The version 1 tokens are the RSA/ECB/PKCS1 encrypted token info JSON (at most 244 bytes), signed with <tt>SHA1withRSA</tt>.
+ * <p>
+ * The certificate of the token signing key is issued by the cloud certificate, like the certificates of the Core Systems, so the providers can
+ * check it with the truststore they already use. The Authorization System serves it at <tt>authorization/signingcert</tt> (Base64 encoded DER),
+ * and the providers get the verification key from it with {@link #getVerificationKey(X509Certificate, KeyStore)}.
+ */
+public final class TokenFormatV2 {
+
+  public static final String PREFIX = "v2.";
+
+  private static final int AES_KEY_BITS = 128;
+  private static final int GCM_IV_BYTES = 12;
+  private static final int GCM_TAG_BITS = 128;
+  private static final OAEPParameterSpec OAEP_SHA256 = new OAEPParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT);
+
+  // Cipher, Signature and KeyGenerator instances are not thread-safe, every thread creates its own ones on first use
+  private static final ThreadLocal<Cipher> keyWrapCipher = new ThreadLocal<>();
+  private static final ThreadLocal<Cipher> contentCipher = new ThreadLocal<>();
+  private static final ThreadLocal<KeyGenerator> keyGenerator = new ThreadLocal<>();
+  private static final ThreadLocal<Signature> signature = new ThreadLocal<>();
+  private static final SecureRandom random = new SecureRandom();
+
+  private TokenFormatV2() throws AssertionError {
+    throw new AssertionError("TokenFormatV2 is a non-instantiable class");
+  }
+
+  public static boolean isVersion2(String token) {
+    return token != null && token.startsWith(PREFIX);
+  }
+
+  /**
+   * Encrypts the token info for the provider, and signs the resulting token.
+   *
+   * @param tokenInfo the UTF-8 encoded token info JSON
+   * @param providerKey the RSA public key of the provider
+   * @param signingKey the EC private key of the Authorization System (RSA keys are accepted too, and sign with <tt>SHA256withRSA</tt>)
+   */
+  public static ArrowheadToken encode(byte[] tokenInfo, PublicKey providerKey, PrivateKey signingKey) throws GeneralSecurityException {
+    KeyGenerator generator = keyGenerator.get();
+    if (generator == null) {
+      generator = KeyGenerator.getInstance("AES");
+      generator.init(AES_KEY_BITS);
+      keyGenerator.set(generator);
+    }
+    SecretKey contentKey = generator.generateKey();
+    byte[] iv = new byte[GCM_IV_BYTES];
+    random.nextBytes(iv);
+
+    Cipher content = getCipher(contentCipher, "AES/GCM/NoPadding");
+    content.init(Cipher.ENCRYPT_MODE, contentKey, new GCMParameterSpec(GCM_TAG_BITS, iv));
+    byte[] ciphertext = content.doFinal(tokenInfo);
+    Cipher keyWrap = getCipher(keyWrapCipher, "RSA/ECB/OAEPPadding");
+    keyWrap.init(Cipher.WRAP_MODE, providerKey, OAEP_SHA256);
+    byte[] wrappedKey = keyWrap.wrap(contentKey);
+
+    Base64.Encoder encoder = Base64.getEncoder();
+    String token = PREFIX + encoder.encodeToString(wrappedKey) + "." + encoder.encodeToString(iv) + "." + encoder.encodeToString(ciphertext);
+    Signature signer = getSignature(signingKey.getAlgorithm());
+    signer.initSign(signingKey);
+    signer.update(token.getBytes(StandardCharsets.UTF_8));
+    return new ArrowheadToken(token, encoder.encodeToString(signer.sign()));
+  }
+
+  /**
+   * Verifies the signature of a version 2 token, and decrypts its token info. This is the provider side counterpart of
+   * {@link #encode(byte[], PublicKey, PrivateKey)}.
+   *
+   * @param providerKey the RSA private key of the provider
+   * @param authorizationKey the token verification key of the Authorization System, see {@link #getVerificationKey(X509Certificate, KeyStore)}
+   *
+   * @return the UTF-8 encoded token info JSON
+   *
+   * @throws SignatureException if the signature is not valid
+   * @throws GeneralSecurityException if the token is malformed or can not be decrypted with the given key
+   */
+  public static byte[] decode(ArrowheadToken token, PrivateKey providerKey, PublicKey authorizationKey) throws GeneralSecurityException {
+    if (!isVersion2(token.getToken()) || token.getSignature() == null) {
+      throw new GeneralSecurityException("Not a version 2 ArrowheadToken.");
+    }
+    Signature verifier = getSignature(authorizationKey.getAlgorithm());
+    verifier.initVerify(authorizationKey);
+    verifier.update(token.getToken().getBytes(StandardCharsets.UTF_8));
+    try {
+      if (!verifier.verify(Base64.getDecoder().decode(token.getSignature()))) {
+        throw new SignatureException("The signature of the ArrowheadToken is not valid.");
+      }
+    } catch (IllegalArgumentException e) {
+      throw new SignatureException("The signature of the ArrowheadToken is not Base64 encoded.");
+    }
+
+    String[] parts = token.getToken().substring(PREFIX.length()).split("\\.");
+    if (parts.length != 3) {
+      throw new GeneralSecurityException("Malformed version 2 ArrowheadToken.");
+    }
+    try {
+      Base64.Decoder decoder = Base64.getDecoder();
+      Cipher keyWrap = getCipher(keyWrapCipher, "RSA/ECB/OAEPPadding");
+      keyWrap.init(Cipher.UNWRAP_MODE, providerKey, OAEP_SHA256);
+      SecretKey contentKey = (SecretKey) keyWrap.unwrap(decoder.decode(parts[0]), "AES", Cipher.SECRET_KEY);
+      Cipher content = getCipher(contentCipher, "AES/GCM/NoPadding");
+      content.init(Cipher.DECRYPT_MODE, contentKey, new GCMParameterSpec(GCM_TAG_BITS, decoder.decode(parts[1])));
+      return content.doFinal(decoder.decode(parts[2]));
+    } catch (IllegalArgumentException e) {
+      throw new GeneralSecurityException("Malformed version 2 ArrowheadToken.", e);
+    }
+  }
+
+  /**
+   * Checks the token signing certificate of the Authorization System, and returns its public key, which verifies the version 2 token signatures
+   * (see {@link #decode(ArrowheadToken, PrivateKey, PublicKey)}).
+   *
+   * @param signingCert the certificate served by the Authorization System at <tt>authorization/signingcert</tt>
+   * @param trustStore the truststore of the provider, containing the cloud certificate
+   *
+   * @throws CertificateException if the certificate is expired, does not hold an EC key, or is not issued by a certificate of the truststore
+   */
+  public static PublicKey getVerificationKey(X509Certificate signingCert, KeyStore trustStore) throws GeneralSecurityException {
+    signingCert.checkValidity();
+    if (!"EC".equals(signingCert.getPublicKey().getAlgorithm())) {
+      throw new CertificateException("The token signing certificate does not hold an EC key.");
+    }
+    for (String alias : Collections.list(trustStore.aliases())) {
+      Certificate trustedCert = trustStore.getCertificate(alias);
+      if (trustedCert == null) {
+        continue;
+      }
+      try {
+        signingCert.verify(trustedCert.getPublicKey());
+        return signingCert.getPublicKey();
+      } catch (SignatureException | InvalidKeyException e) {
+        // Not issued by this certificate, trying the next one
+      }
+    }
+    throw new CertificateException("The token signing certificate is not issued by a trusted certificate.");
+  }
+
+  /**
+   * Returns the signature algorithm of the version 2 tokens for the given key algorithm (<tt>EC</tt> or <tt>RSA</tt>).
+   */
+  public static String getSignatureAlgorithm(String keyAlgorithm) {
+    return "EC".equals(keyAlgorithm) ? "SHA256withECDSA" : "SHA256withRSA";
+  }
+
+  private static Cipher getCipher(ThreadLocal<Cipher> cipher, String transformation) throws GeneralSecurityException {
+    Cipher threadCipher = cipher.get();
+    if (threadCipher == null) {
+      threadCipher = Cipher.getInstance(transformation);
+      cipher.set(threadCipher);
+    }
+    return threadCipher;
+  }
+
+  private static Signature getSignature(String keyAlgorithm) throws GeneralSecurityException {
+    String algorithm = getSignatureAlgorithm(keyAlgorithm);
+    Signature threadSignature = signature.get();
+    if (threadSignature == null || !algorithm.equals(threadSignature.getAlgorithm())) {
+      threadSignature = Signature.getInstance(algorithm);
+      signature.set(threadSignature);
+    }
+    return threadSignature;
+  }
+
+}
@@ -5,7 +5,11 @@
  */
 package com.github.danieln.dnssdjava;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A DnsSDBrowser object provides methods for discovering services.
@@ -23,6 +27,39 @@ public interface DnsSDBrowser {
    */
   ServiceData getServiceData(ServiceName service);
 
+  /**
+   * Get the service details for several services. Implementations may resolve the services concurrently, the default implementation looks them up
+   * one after the other.
+   *
+   * @param services the names of the services.
+   *
+   * @return the service data by service name, services which could not be resolved are left out.
+   */
+  default Map<ServiceName, ServiceData> getServiceData(Collection<ServiceName> services) {
+    Map<ServiceName, ServiceData> results = new LinkedHashMap<>();
+    for (ServiceName service : services) {
+      ServiceData data = getServiceData(service);
+      if (data != null) {
+        results.put(service, data);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Get the service details for several services, like {@link #getServiceData(Collection)}, but also tell the services which could not be looked
+   * up (the query failed or was not answered) apart from the ones which do not exist. The default implementation can not tell them apart, it
+   * never reports a failed service.
+   *
+   * @param services the names of the services.
+   * @param failedServices a collection to put the services whose lookup failed into.
+   *
+   * @return the service data by service name, services which could not be resolved are left out.
+   */
+  default Map<ServiceName, ServiceData> getServiceData(Collection<ServiceName> services, Collection<ServiceName> failedServices) {
+    return getServiceData(services);
+  }
+
   /**
    * Get the names of all services of a certain type. If the type has one or more subtypes specified then the result is the union of services
    * registered under those subtypes.
@@ -33,6 +70,36 @@ public interface DnsSDBrowser {
    */
   Collection<ServiceName> getServiceInstances(ServiceType type);
 
+  /**
+   * Get the names of all services of several types, like {@link #getServiceInstances(ServiceType)}. Implementations may look up the types
+   * concurrently, the default implementation looks them up one after the other.
+   *
+   * @param types the service types to look up.
+   *
+   * @return a collection of service names.
+   */
+  default Collection<ServiceName> getServiceInstances(Collection<ServiceType> types) {
+    List<ServiceName> results = new ArrayList<>();
+    for (ServiceType type : types) {
+      results.addAll(getServiceInstances(type));
+    }
+    return results;
+  }
+
+  /**
+   * Get the names of all services of several types, like {@link #getServiceInstances(Collection)}, but also tell the types which could not be
+   * looked up (the query failed or was not answered) apart from the ones without any instances. The default implementation can not tell them
+   * apart, it never reports a failed type.
+   *
+   * @param types the service types to look up.
+   * @param failedTypes a collection to put the types whose lookup failed into.
+   *
+   * @return a collection of service names.
+   */
+  default Collection<ServiceName> getServiceInstances(Collection<ServiceType> types, Collection<ServiceType> failedTypes) {
+    return getServiceInstances(types);
+  }
+
   /**
    * Get the available service types. This only lists the base types without any subtypes. The DNS-SD RFC provides no way to enumerate subtypes.
    *
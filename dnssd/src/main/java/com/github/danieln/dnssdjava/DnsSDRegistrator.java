@@ -6,6 +6,7 @@
 package com.github.danieln.dnssdjava;
 
 import java.net.UnknownHostException;
+import java.util.Collection;
 
 
 /**
@@ -95,4 +96,35 @@ public interface DnsSDRegistrator {
    */
   boolean unregisterService(ServiceName serviceName) throws DnsSDException;
 
+  /**
+   * Add several services to DNS-SD, replacing the existing records of the services which are already registered. Implementations may send all
+   * the changes in a single atomic update, the default implementation registers the services one after the other.
+   *
+   * @param services the services to register.
+   *
+   * @throws DnsSDException if the services couldn't be registered due to some error.
+   */
+  default void registerOrReplaceServices(Collection<ServiceData> services) throws DnsSDException {
+    for (ServiceData serviceData : services) {
+      if (!registerService(serviceData)) {
+        unregisterService(serviceData.getName());
+        registerService(serviceData);
+      }
+    }
+  }
+
+  /**
+   * Remove several services from DNS-SD. Services which are not registered are skipped. Implementations may send all the removals in a single
+   * atomic update, the default implementation removes the services one after the other.
+   *
+   * @param serviceNames the names of the services to remove.
+   *
+   * @throws DnsSDException if the services couldn't be unregistered due to some error.
+   */
+  default void unregisterServices(Collection<ServiceName> serviceNames) throws DnsSDException {
+    for (ServiceName serviceName : serviceNames) {
+      unregisterService(serviceName);
+    }
+  }
+
 }
\ No newline at end of file
@@ -7,17 +7,31 @@ package com.github.danieln.dnssdjava;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.xbill.DNS.DClass;
 import org.xbill.DNS.Lookup;
+import org.xbill.DNS.Message;
 import org.xbill.DNS.Name;
 import org.xbill.DNS.NameTooLongException;
 import org.xbill.DNS.PTRRecord;
+import org.xbill.DNS.Rcode;
 import org.xbill.DNS.Record;
+import org.xbill.DNS.Resolver;
+import org.xbill.DNS.ResolverListener;
 import org.xbill.DNS.SRVRecord;
+import org.xbill.DNS.Section;
 import org.xbill.DNS.TXTRecord;
 import org.xbill.DNS.TextParseException;
 import org.xbill.DNS.Type;
@@ -34,6 +48,11 @@ class UnicastDnsSDBrowser implements DnsSDBrowser {
 
   private static final Name SERVICES_DNSSD_UDP = Name.fromConstantString("_services._dns-sd._udp");
 
+  // Upper bound of a batch of concurrent queries, the resolver times out and retries the single queries on its own
+  private static final long BATCH_TIMEOUT_SECONDS = 60;
+  // dnsjava runs every asynchronous query on its own thread, so a batch only keeps this many queries in flight at the same time
+  private static final int MAX_QUERIES_IN_FLIGHT = 64;
+
   private final List<Name> browserDomains;
 
   /**
@@ -49,11 +68,70 @@ class UnicastDnsSDBrowser implements DnsSDBrowser {
   //@Override
   public ServiceData getServiceData(ServiceName service) {
     Name serviceName = service.toDnsName();
-    Lookup lookup = new Lookup(serviceName, Type.SRV);
-    Record[] records = lookup.run();
-    if (records == null || records.length == 0) {
+    Record[] srvRecords = new Lookup(serviceName, Type.SRV).run();
+    if (srvRecords == null || srvRecords.length == 0) {
       return null;
     }
+    return toServiceData(service, srvRecords, new Lookup(serviceName, Type.TXT).run());
+  }
+
+  @Override
+  public Map<ServiceName, ServiceData> getServiceData(Collection<ServiceName> services) {
+    return getServiceData(services, new ArrayList<>());
+  }
+
+  /**
+   * Get the service details for several services. The SRV and TXT queries of the services are sent concurrently (at most
+   * {@value #MAX_QUERIES_IN_FLIGHT} at a time), so the time this takes grows much slower than the number of services. A service is reported as
+   * failed if its SRV or TXT query failed or was not answered, only the concurrently resolved (absolute) names are checked for this.
+   *
+   * @param services the names of the services.
+   * @param failedServices a collection to put the services whose lookup failed into.
+   *
+   * @return the service data by service name, services which could not be resolved are left out.
+   */
+  @Override
+  public Map<ServiceName, ServiceData> getServiceData(Collection<ServiceName> services, Collection<ServiceName> failedServices) {
+    List<ServiceName> batchedServices = new ArrayList<>();
+    List<Record> questions = new ArrayList<>();
+    Map<ServiceName, ServiceData> results = new LinkedHashMap<>();
+    for (ServiceName service : services) {
+      Name serviceName = service.toDnsName();
+      if (serviceName.isAbsolute()) {
+        batchedServices.add(service);
+        questions.add(Record.newRecord(serviceName, Type.SRV, DClass.IN));
+        questions.add(Record.newRecord(serviceName, Type.TXT, DClass.IN));
+      } else {
+        // Relative names depend on the search path of the resolver, which only the synchronous Lookup handles
+        ServiceData data = getServiceData(service);
+        if (data != null) {
+          results.put(service, data);
+        }
+      }
+    }
+
+    Record[][] answers = resolveAll(questions);
+    for (int i = 0; i < batchedServices.size(); i++) {
+      Record[] srvRecords = answers[2 * i];
+      if (srvRecords == null || answers[2 * i + 1] == null) {
+        failedServices.add(batchedServices.get(i));
+      } else if (srvRecords.length > 0) {
+        results.put(batchedServices.get(i), toServiceData(batchedServices.get(i), srvRecords, answers[2 * i + 1]));
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Build the service data from the SRV and TXT records of a service.
+   *
+   * @param service the name of the service.
+   * @param records the SRV records of the service.
+   * @param txtRecords the TXT records of the service, or null.
+   *
+   * @return the service data.
+   */
+  private ServiceData toServiceData(ServiceName service, Record[] records, Record[] txtRecords) {
     ServiceData data = new ServiceData();
     data.setName(service);
     for (Record record : records) {
@@ -65,12 +143,10 @@ class UnicastDnsSDBrowser implements DnsSDBrowser {
         break;
       }
     }
-    lookup = new Lookup(serviceName, Type.TXT);
-    records = lookup.run();
-    if (records == null || records.length == 0) {
+    if (txtRecords == null || txtRecords.length == 0) {
       return data;
     }
-    for (Record record : records) {
+    for (Record record : txtRecords) {
       if (record instanceof TXTRecord) {
         //  Handle multiple TXT records as different variants of same service
         TXTRecord txt = (TXTRecord) record;
@@ -107,6 +183,56 @@ class UnicastDnsSDBrowser implements DnsSDBrowser {
     return results;
   }
 
+  @Override
+  public Collection<ServiceName> getServiceInstances(Collection<ServiceType> types) {
+    return getServiceInstances(types, new ArrayList<>());
+  }
+
+  /**
+   * Get the names of all services of several types. The PTR queries of the types (and browsing domains) are sent concurrently (at most
+   * {@value #MAX_QUERIES_IN_FLIGHT} at a time). A type is reported as failed if any of its PTR queries failed or was not answered, only the
+   * concurrently resolved (absolute) names are checked for this.
+   *
+   * @param types the service types to look up.
+   * @param failedTypes a collection to put the types whose lookup failed into.
+   *
+   * @return a collection of service names.
+   */
+  @Override
+  public Collection<ServiceName> getServiceInstances(Collection<ServiceType> types, Collection<ServiceType> failedTypes) {
+    List<Record> questions = new ArrayList<>();
+    List<ServiceType> questionTypes = new ArrayList<>();
+    Set<ServiceName> results = new LinkedHashSet<>();
+    for (ServiceType type : types) {
+      List<String> typeStrings = type.getSubtypes().isEmpty() ? Collections.singletonList(type.toDnsString()) : type.toDnsStringsWithSubtype();
+      for (Name domain : browserDomains) {
+        for (String typeString : typeStrings) {
+          try {
+            Name typeDomainName = Name.fromString(typeString, domain);
+            if (typeDomainName.isAbsolute()) {
+              questions.add(Record.newRecord(typeDomainName, Type.PTR, DClass.IN));
+              questionTypes.add(type);
+            } else {
+              getServiceInstances(typeString, domain, results);
+            }
+          } catch (TextParseException ex) {
+            throw new IllegalArgumentException("Invalid type: " + typeString, ex);
+          }
+        }
+      }
+    }
+
+    Record[][] answers = resolveAll(questions);
+    for (int i = 0; i < answers.length; i++) {
+      if (answers[i] != null) {
+        addServiceNames(answers[i], results);
+      } else if (!failedTypes.contains(questionTypes.get(i))) {
+        failedTypes.add(questionTypes.get(i));
+      }
+    }
+    return new ArrayList<>(results);
+  }
+
   public Collection<ServiceType> getServiceTypes() {
     Set<ServiceType> results = new HashSet<>();
     for (Name domain : browserDomains) {
@@ -127,6 +253,10 @@ class UnicastDnsSDBrowser implements DnsSDBrowser {
       List<ServiceType> results = new ArrayList<>();
       Lookup lookup = new Lookup(Name.concatenate(SERVICES_DNSSD_UDP, domainName), Type.PTR);
       Record[] records = lookup.run();
+      // An empty type list would look like a domain without any services, so a failed lookup is not swallowed
+      if (lookup.getResult() == Lookup.TRY_AGAIN || lookup.getResult() == Lookup.UNRECOVERABLE) {
+        throw new IllegalStateException("Browsing the service types of " + domainName + " failed: " + lookup.getErrorString());
+      }
       if (records != null) {
         for (Record record : records) {
           if (record instanceof PTRRecord) {
@@ -184,21 +314,102 @@ class UnicastDnsSDBrowser implements DnsSDBrowser {
       Lookup lookup = new Lookup(typeDomainName, Type.PTR);
       Record[] records = lookup.run();
       if (records != null) {
-        for (Record record : records) {
-          if (record instanceof PTRRecord) {
-            PTRRecord ptr = (PTRRecord) record;
-            Name name = ptr.getTarget();
-            try {
-              results.add(ServiceName.fromDnsName(name));
-            } catch (IllegalArgumentException e) {
-              logger.warning("Invalid service instance " + name + ": " + e.getMessage());
-            }
-          }
-        }
+        addServiceNames(records, results);
       }
     } catch (TextParseException ex) {
       throw new IllegalArgumentException("Invalid type: " + type, ex);
     }
   }
 
+  /**
+   * Add the service names pointed to by the PTR records.
+   *
+   * @param records the records of a PTR lookup.
+   * @param results a collection to put the service names into.
+   */
+  private void addServiceNames(Record[] records, Collection<ServiceName> results) {
+    for (Record record : records) {
+      if (record instanceof PTRRecord) {
+        PTRRecord ptr = (PTRRecord) record;
+        Name name = ptr.getTarget();
+        try {
+          results.add(ServiceName.fromDnsName(name));
+        } catch (IllegalArgumentException e) {
+          logger.warning("Invalid service instance " + name + ": " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * Send the queries concurrently with the asynchronous API of the default resolver, with at most {@value #MAX_QUERIES_IN_FLIGHT} queries in flight
+   * at the same time, and wait for all the responses.
+   *
+   * @param questions the question records (absolute name, type and class) of the queries.
+   *
+   * @return the matching answer records of every query, in the order of the questions. A query answered with no such records (or a non-existent
+   *     domain) gets an empty array, the element of a failed or unanswered query is null.
+   */
+  private Record[][] resolveAll(List<Record> questions) {
+    AtomicReferenceArray<Record[]> answers = new AtomicReferenceArray<>(questions.size());
+    CountDownLatch responses = new CountDownLatch(questions.size());
+    Semaphore inFlight = new Semaphore(MAX_QUERIES_IN_FLIGHT);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(BATCH_TIMEOUT_SECONDS);
+    Resolver resolver = Lookup.getDefaultResolver();
+    try {
+      int sent = 0;
+      while (sent < questions.size() && inFlight.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        final int index = sent++;
+        final Record question = questions.get(index);
+        resolver.sendAsync(Message.newQuery(question), new ResolverListener() {
+          @Override
+          public void receiveMessage(Object id, Message response) {
+            if (response.getRcode() == Rcode.NOERROR) {
+              List<Record> matching = new ArrayList<>();
+              for (Record record : response.getSectionArray(Section.ANSWER)) {
+                if (record.getType() == question.getType() && record.getName().equals(question.getName())) {
+                  matching.add(record);
+                }
+              }
+              answers.set(index, matching.toArray(new Record[matching.size()]));
+            } else if (response.getRcode() == Rcode.NXDOMAIN) {
+              answers.set(index, new Record[0]);
+            } else {
+              logger.log(Level.FINE, "DNS query failed: " + question.getName() + " " + Type.string(question.getType()) + " " + Rcode
+                  .string(response.getRcode()));
+            }
+            inFlight.release();
+            responses.countDown();
+          }
+
+          @Override
+          public void handleException(Object id, Exception e) {
+            logger.log(Level.FINE, "DNS query failed: " + question.getName() + " " + Type.string(question.getType()), e);
+            inFlight.release();
+            responses.countDown();
+          }
+        });
+      }
+      // The queries which could not even be sent before the deadline are left unanswered
+      if (sent == questions.size()) {
+        responses.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    Record[][] results = new Record[questions.size()][];
+    int failed = 0;
+    for (int i = 0; i < results.length; i++) {
+      results[i] = answers.get(i);
+      if (results[i] == null) {
+        failed++;
+      }
+    }
+    if (failed > 0) {
+      logger.warning(failed + " of " + questions.size() + " DNS queries failed or were not answered in time");
+    }
+    return results;
+  }
+
 }
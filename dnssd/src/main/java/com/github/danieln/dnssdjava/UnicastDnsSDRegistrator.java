@@ -10,8 +10,11 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.xbill.DNS.Address;
@@ -176,36 +179,9 @@ class UnicastDnsSDRegistrator implements DnsSDRegistrator {
 
   public boolean registerService(ServiceData serviceData) throws DnsSDException {
     try {
-      ServiceName serviceName = serviceData.getName();
-      Name dnsName = serviceName.toDnsName();
-      Name typeName = new Name(serviceName.getType().toDnsString(), registrationDomain);
-      List<Name> subtypes = new ArrayList<>(serviceName.getType().getSubtypes().size());
-      for (String subtype : serviceName.getType().toDnsStringsWithSubtype()) {
-        subtypes.add(new Name(subtype, registrationDomain));
-      }
-      Name target = new Name(serviceData.getHost());
-      List<String> strings = new ArrayList<>();
-      for (Map.Entry<String, String> entry : serviceData.getProperties().entrySet()) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(entry.getKey());
-        if (entry.getValue() != null) {
-          sb.append('=').append(entry.getValue());
-        }
-        strings.add(sb.toString());
-      }
-      if (strings.isEmpty()) {
-        // Must not be empty
-        strings.add("");
-      }
       Update update = new Update(registrationDomain);
-      update.absent(dnsName);
-      update.add(new PTRRecord(servicesName, DClass.IN, timeToLive, typeName));
-      update.add(new PTRRecord(typeName, DClass.IN, timeToLive, dnsName));
-      for (Name subtype : subtypes) {
-        update.add(new PTRRecord(subtype, DClass.IN, timeToLive, dnsName));
-      }
-      update.add(new SRVRecord(dnsName, DClass.IN, timeToLive, 0, 0, serviceData.getPort(), target));
-      update.add(new TXTRecord(dnsName, DClass.IN, timeToLive, strings));
+      update.absent(serviceData.getName().toDnsName());
+      addServiceRecords(update, serviceData);
       System.out.print("update= ");
       System.out.println(update.toString());
 
@@ -226,6 +202,128 @@ class UnicastDnsSDRegistrator implements DnsSDRegistrator {
     }
   }
 
+  /**
+   * Add or replace all the services with a single DNS update message, so either all of them are registered, or none. The existing records of
+   * the services are deleted in the same update, before the new records are added.
+   *
+   * @param services the services to register.
+   *
+   * @throws DnsSDException if the services couldn't be registered due to some error.
+   */
+  @Override
+  public void registerOrReplaceServices(Collection<ServiceData> services) throws DnsSDException {
+    if (services.isEmpty()) {
+      return;
+    }
+    try {
+      Update update = new Update(registrationDomain);
+      for (ServiceData serviceData : services) {
+        deleteServiceRecords(update, serviceData.getName());
+        addServiceRecords(update, serviceData);
+      }
+      Message response = resolver.send(update);
+      if (response.getRcode() != Rcode.NOERROR) {
+        throw new DnsSDException("Server returned error code: " + Rcode.string(response.getRcode()));
+      }
+      flushCache(update);
+    } catch (TextParseException ex) {
+      throw new IllegalArgumentException("Invalid service data: " + services, ex);
+    } catch (IOException ex) {
+      throw new DnsSDException("Failed to send DNS update to server", ex);
+    }
+  }
+
+  /**
+   * Remove all the services with a single DNS update message. The service type records left without instances are removed afterwards, with one
+   * update per service type.
+   *
+   * @param serviceNames the names of the services to remove.
+   *
+   * @throws DnsSDException if the services couldn't be unregistered due to some error.
+   */
+  @Override
+  public void unregisterServices(Collection<ServiceName> serviceNames) throws DnsSDException {
+    if (serviceNames.isEmpty()) {
+      return;
+    }
+    try {
+      Update update = new Update(registrationDomain);
+      Set<Name> typeNames = new LinkedHashSet<>();
+      for (ServiceName serviceName : serviceNames) {
+        deleteServiceRecords(update, serviceName);
+        typeNames.add(new Name(serviceName.getType().toDnsString(), registrationDomain));
+      }
+      Message response = resolver.send(update);
+      if (response.getRcode() != Rcode.NOERROR) {
+        throw new DnsSDException("Server returned error code: " + Rcode.string(response.getRcode()));
+      }
+      flushCache(update);
+      for (Name typeName : typeNames) {
+        removeEmptyServiceType(typeName);
+      }
+    } catch (TextParseException ex) {
+      throw new IllegalArgumentException("Invalid service names: " + serviceNames, ex);
+    } catch (IOException ex) {
+      throw new DnsSDException("Failed to send DNS update to server", ex);
+    }
+  }
+
+  /**
+   * Add the PTR, SRV and TXT records of a service to an update.
+   *
+   * @param update the update to add the records to.
+   * @param serviceData the service.
+   *
+   * @throws TextParseException if the service data contains an invalid name.
+   */
+  private void addServiceRecords(Update update, ServiceData serviceData) throws TextParseException {
+    ServiceName serviceName = serviceData.getName();
+    Name dnsName = serviceName.toDnsName();
+    Name typeName = new Name(serviceName.getType().toDnsString(), registrationDomain);
+    List<Name> subtypes = new ArrayList<>(serviceName.getType().getSubtypes().size());
+    for (String subtype : serviceName.getType().toDnsStringsWithSubtype()) {
+      subtypes.add(new Name(subtype, registrationDomain));
+    }
+    Name target = new Name(serviceData.getHost());
+    List<String> strings = new ArrayList<>();
+    for (Map.Entry<String, String> entry : serviceData.getProperties().entrySet()) {
+      StringBuilder sb = new StringBuilder();
+      sb.append(entry.getKey());
+      if (entry.getValue() != null) {
+        sb.append('=').append(entry.getValue());
+      }
+      strings.add(sb.toString());
+    }
+    if (strings.isEmpty()) {
+      // Must not be empty
+      strings.add("");
+    }
+    update.add(new PTRRecord(servicesName, DClass.IN, timeToLive, typeName));
+    update.add(new PTRRecord(typeName, DClass.IN, timeToLive, dnsName));
+    for (Name subtype : subtypes) {
+      update.add(new PTRRecord(subtype, DClass.IN, timeToLive, dnsName));
+    }
+    update.add(new SRVRecord(dnsName, DClass.IN, timeToLive, 0, 0, serviceData.getPort(), target));
+    update.add(new TXTRecord(dnsName, DClass.IN, timeToLive, strings));
+  }
+
+  /**
+   * Add the deletion of the PTR records pointing to a service and all the records of the service to an update.
+   *
+   * @param update the update to add the deletions to.
+   * @param serviceName the name of the service.
+   *
+   * @throws TextParseException if the service name is invalid.
+   */
+  private void deleteServiceRecords(Update update, ServiceName serviceName) throws TextParseException {
+    Name dnsName = serviceName.toDnsName();
+    update.delete(new PTRRecord(new Name(serviceName.getType().toDnsString(), registrationDomain), DClass.IN, timeToLive, dnsName));
+    for (String subtype : serviceName.getType().toDnsStringsWithSubtype()) {
+      update.delete(new PTRRecord(new Name(subtype, registrationDomain), DClass.IN, timeToLive, dnsName));
+    }
+    update.delete(dnsName);
+  }
+
   /**
    * Flush all records related to the update from the default cache.
    *
@@ -265,23 +363,7 @@ class UnicastDnsSDRegistrator implements DnsSDRegistrator {
         default:
           throw new DnsSDException("Server returned error code: " + Rcode.string(response.getRcode()));
       }
-      // Remove the service type if there are no instances left
-      update = new Update(registrationDomain);
-      update.absent(typeName);
-      update.delete(new PTRRecord(servicesName, DClass.IN, timeToLive, typeName));
-      response = resolver.send(update);
-      switch (response.getRcode()) {
-        case Rcode.NOERROR:
-          flushCache(update);
-          logger.log(Level.FINE, "Removed service type record {0}", typeName);
-          break;
-        case Rcode.YXDOMAIN:  // Prerequisite failed, service instances exists
-          logger.log(Level.FINE, "Did not remove service type record {0}, instances left.", typeName);
-          break;
-        default:
-          logger.log(Level.WARNING, "Failed to remove service type {0}, server returned status {1}",
-                     new Object[]{typeName, Rcode.string(response.getRcode())});
-      }
+      removeEmptyServiceType(typeName);
       return true;
     } catch (TextParseException ex) {
       throw new IllegalArgumentException("Invalid service name: " + serviceName, ex);
@@ -289,4 +371,30 @@ class UnicastDnsSDRegistrator implements DnsSDRegistrator {
       throw new DnsSDException("Failed to send DNS update to server", ex);
     }
   }
+
+  /**
+   * Remove the service type record if there are no instances of the type left.
+   *
+   * @param typeName the name of the service type.
+   *
+   * @throws IOException if the update couldn't be sent to the server.
+   */
+  private void removeEmptyServiceType(Name typeName) throws IOException {
+    Update update = new Update(registrationDomain);
+    update.absent(typeName);
+    update.delete(new PTRRecord(servicesName, DClass.IN, timeToLive, typeName));
+    Message response = resolver.send(update);
+    switch (response.getRcode()) {
+      case Rcode.NOERROR:
+        flushCache(update);
+        logger.log(Level.FINE, "Removed service type record {0}", typeName);
+        break;
+      case Rcode.YXDOMAIN:  // Prerequisite failed, service instances exists
+        logger.log(Level.FINE, "Did not remove service type record {0}, instances left.", typeName);
+        break;
+      default:
+        logger.log(Level.WARNING, "Failed to remove service type {0}, server returned status {1}",
+                   new Object[]{typeName, Rcode.string(response.getRcode())});
+    }
+  }
 }
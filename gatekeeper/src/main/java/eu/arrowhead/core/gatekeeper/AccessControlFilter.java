@@ -45,7 +45,12 @@ public class AccessControlFilter implements ContainerRequestFilter {
       log.info("Client cert does not have 6 parts, so the access will be denied.");
       return false;
     }
-    if (requestTarget.endsWith("init_gsd") || requestTarget.endsWith("init_icn")) {
+    if (requestTarget.endsWith("endpoints")) {
+      // Only the management API can ask for the invalidation of the cached Core System and Neighbor Cloud endpoints
+      String[] serverFields = serverCN.split("\\.", 2);
+      // serverFields contains: coreSystemName, coresystems.cloudName.operator.arrowhead.eu
+      return clientCN.equalsIgnoreCase("api." + serverFields[1]);
+    } else if (requestTarget.endsWith("init_gsd") || requestTarget.endsWith("init_icn")) {
       // Only requests from the Orchestrator are allowed
       String[] serverFields = serverCN.split("\\.", 2);
       // serverFields contains: coreSystemName, coresystems.cloudName.operator.arrowhead.eu
@@ -1,6 +1,7 @@
 package eu.arrowhead.core.gatekeeper;
 
 import eu.arrowhead.common.DatabaseManager;
+import eu.arrowhead.common.HttpClientPool;
 import eu.arrowhead.common.Utility;
 import eu.arrowhead.common.exception.AuthenticationException;
 import eu.arrowhead.common.security.SecurityUtils;
@@ -157,6 +158,7 @@ class GatekeeperMain {
       log.info("Stopping server at: " + BASE_URI_SECURED);
       secureServer.shutdownNow();
     }
+    HttpClientPool.shutdown();
     System.out.println("Gatekeeper Server(s) stopped");
   }
 
@@ -24,7 +24,9 @@ import eu.arrowhead.common.messages.ServiceRequestForm;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
@@ -89,19 +91,22 @@ public class GatekeeperResource {
     }
     log.info("Sending GSD poll request to " + cloudURIs.size() + " clouds.");
 
-    // Finalizing the URIs, process the responses
-    List<GSDAnswer> gsdAnswerList = new ArrayList<>();
-    Response response;
+    // Finalizing the URIs, process the responses. The Clouds are polled in parallel, so the slowest Cloud determines the response time.
+    List<CompletableFuture<Response>> responseFutures = new ArrayList<>();
     for (String uri : cloudURIs) {
       uri = UriBuilder.fromPath(uri).path("gsd_poll").toString();
+      responseFutures.add(Utility.sendRequestAsync(uri, "PUT", gsdPoll));
+    }
+
+    List<GSDAnswer> gsdAnswerList = new ArrayList<>();
+    for (CompletableFuture<Response> responseFuture : responseFutures) {
       try {
-        response = Utility.sendRequest(uri, "PUT", gsdPoll);
+        gsdAnswerList.add(responseFuture.join().readEntity(GSDAnswer.class));
       }
       // We skip those that did not respond positively, add the rest to the result list
       catch (RuntimeException ex) {
         continue;
       }
-      gsdAnswerList.add(response.readEntity(GSDAnswer.class));
     }
 
     // Sending back the results. The orchestrator will validate the results (result list might be empty) and decide how to proceed.
@@ -240,4 +245,15 @@ public class GatekeeperResource {
     }
   }
 
+  /**
+   * Drops the cached Core System, Neighbor Cloud and Own Cloud entries of this Core System. Called by the management API after it changed these
+   * tables.
+   */
+  @DELETE
+  @Path("endpoints")
+  public Response invalidateEndpointCache() {
+    Utility.invalidateEndpointCache();
+    return Response.status(Status.OK).build();
+  }
+
 }
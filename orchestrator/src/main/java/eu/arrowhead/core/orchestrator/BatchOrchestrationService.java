@@ -0,0 +1,226 @@
+package eu.arrowhead.core.orchestrator;
+
+import eu.arrowhead.common.database.ArrowheadService;
+import eu.arrowhead.common.database.ArrowheadSystem;
+import eu.arrowhead.common.database.ServiceRegistryEntry;
+import eu.arrowhead.common.exception.AuthenticationException;
+import eu.arrowhead.common.exception.BadPayloadException;
+import eu.arrowhead.common.exception.DataNotFoundException;
+import eu.arrowhead.common.exception.DuplicateEntryException;
+import eu.arrowhead.common.exception.ErrorMessage;
+import eu.arrowhead.common.exception.UnavailableServerException;
+import eu.arrowhead.common.messages.OrchestrationBatchResponse;
+import eu.arrowhead.common.messages.OrchestrationBatchResult;
+import eu.arrowhead.common.messages.OrchestrationResponse;
+import eu.arrowhead.common.messages.ServiceRequestForm;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.apache.log4j.Logger;
+
+/**
+ * Orchestrates a batch of <tt>ServiceRequestForm</tt>s. The dynamic orchestration requests (<i>overrideStore</i> is true) are grouped by the
+ * requested Service: the Service Registry is queried once per Service (and query flags), and the Authorization is queried once per Service and
+ * consumer, with every provider the Service Registry returned. Each form is then filtered and compiled on its own, the same way as in
+ * {@link OrchestratorService#dynamicOrchestration(ServiceRequestForm)}. The other kinds of requests go through the regular (single form)
+ * orchestration process. Both kinds use the {@link OrchestrationCache}.
+ * <p>
+ * At most <i>orchestration_batch_parallelism</i> groups have their queries in flight at the same time, so a large batch does not fill the request
+ * executor shared with the single orchestrations. The grouped queries of a batch share one deadline (the sum of the Service Registry and
+ * Authorization timeouts), the forms whose queries did not finish (or did not even start) before it are answered with an error.
+ */
+final class BatchOrchestrationService {
+
+  private static Logger log = Logger.getLogger(BatchOrchestrationService.class.getName());
+  private static final int BATCH_PARALLELISM = Integer.valueOf(OrchestratorMain.getProp().getProperty("orchestration_batch_parallelism", "8"));
+
+  private BatchOrchestrationService() throws AssertionError {
+    throw new AssertionError("BatchOrchestrationService is a non-instantiable class");
+  }
+
+  /**
+   * @param srfList the request forms of the batch
+   * @param validator checks a request form, throws an exception if the form can not be orchestrated
+   * @param singleOrchestration the regular orchestration process, used for the forms which are not grouped
+   *
+   * @return a result for every form, in the order of <tt>srfList</tt>
+   */
+  static OrchestrationBatchResponse orchestrate(List<ServiceRequestForm> srfList, Consumer<ServiceRequestForm> validator,
+                                                Function<ServiceRequestForm, OrchestrationResponse> singleOrchestration) {
+    OrchestrationBatchResult[] results = new OrchestrationBatchResult[srfList.size()];
+
+    // Answering the invalid, the cached and the not groupable forms right away, grouping the rest by their Service Registry query
+    Map<List<Object>, List<Integer>> groups = new LinkedHashMap<>();
+    for (int i = 0; i < srfList.size(); i++) {
+      ServiceRequestForm srf = srfList.get(i);
+      try {
+        validator.accept(srf);
+        if (!isGroupable(srf)) {
+          results[i] = new OrchestrationBatchResult(singleOrchestration.apply(srf));
+          continue;
+        }
+        OrchestrationResponse cachedResponse = OrchestrationCache.getIfPresent(srf);
+        if (cachedResponse != null) {
+          results[i] = new OrchestrationBatchResult(cachedResponse);
+        } else {
+          groups.computeIfAbsent(serviceQueryKey(srf), key -> new ArrayList<>()).add(i);
+        }
+      } catch (RuntimeException e) {
+        results[i] = toErrorResult(e);
+      }
+    }
+
+    // Read before the queries start, so the invalidations arriving while they are in flight keep their results out of the cache
+    long cacheGeneration = OrchestrationCache.getGeneration();
+    // Starting the Service Registry and Authorization queries of the groups, a new group is started when one of the running groups finished
+    long deadline = System.currentTimeMillis() + OrchestratorDriver.SR_TIMEOUT + OrchestratorDriver.AUTH_TIMEOUT;
+    Semaphore permits = new Semaphore(BATCH_PARALLELISM);
+    List<Map<Integer, QueryResult>> groupQueries = new ArrayList<>();
+    for (List<Integer> group : groups.values()) {
+      if (!acquire(permits, deadline)) {
+        for (int index : group) {
+          results[index] = toErrorResult(new UnavailableServerException("The Core System queries of the batch orchestration did not finish in "
+                                                                            + (OrchestratorDriver.SR_TIMEOUT + OrchestratorDriver.AUTH_TIMEOUT)
+                                                                            + " ms."));
+        }
+        continue;
+      }
+      groupQueries.add(startQueries(srfList, group, deadline, permits::release));
+    }
+    log.info(srfList.size() + " request forms are orchestrated with " + groups.size() + " Service Registry queries.");
+
+    // Finishing the grouped orchestrations one by one, the queries of the later groups are running in the meantime
+    for (Map<Integer, QueryResult> queries : groupQueries) {
+      for (Map.Entry<Integer, QueryResult> entry : queries.entrySet()) {
+        QueryResult query = entry.getValue();
+        try {
+          results[entry.getKey()] = new OrchestrationBatchResult(OrchestrationCache.get(srfList.get(entry.getKey()), cacheGeneration, query::finish));
+        } catch (RuntimeException e) {
+          results[entry.getKey()] = toErrorResult(e);
+        }
+      }
+    }
+
+    return new OrchestrationBatchResponse(new ArrayList<>(Arrays.asList(results)));
+  }
+
+  // Only the local dynamic orchestrations share their Service Registry and Authorization queries
+  private static boolean isGroupable(ServiceRequestForm srf) {
+    Map<String, Boolean> flags = srf.getOrchestrationFlags();
+    return flags.get("overrideStore") && !flags.get("externalServiceRequest") && !flags.get("triggerInterCloud");
+  }
+
+  // Forms with the same key would send the exact same Service Registry query
+  private static List<Object> serviceQueryKey(ServiceRequestForm srf) {
+    ArrowheadService service = srf.getRequestedService();
+    boolean metadataSearch = srf.getOrchestrationFlags().get("metadataSearch");
+    return Arrays.asList(service.getServiceGroup(), service.getServiceDefinition(), metadataSearch, srf.getOrchestrationFlags().get("pingProviders"),
+                         metadataSearch ? new HashMap<>(service.getServiceMetadata()) : null);
+  }
+
+  private static boolean acquire(Semaphore permits, long deadline) {
+    try {
+      return permits.tryAcquire(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /*
+    Starts the queries of one group, and runs onFinished when every query of the group completed (successfully, with an exception or by being
+    cancelled after a timeout).
+   */
+  private static Map<Integer, QueryResult> startQueries(List<ServiceRequestForm> srfList, List<Integer> group, long deadline, Runnable onFinished) {
+    ServiceRequestForm first = srfList.get(group.get(0));
+    CompletableFuture<List<ServiceRegistryEntry>> srFuture = OrchestratorDriver
+        .queryServiceRegistryAsync(first.getRequestedService(), first.getOrchestrationFlags().get("metadataSearch"),
+                                   first.getOrchestrationFlags().get("pingProviders"));
+
+    // One Authorization query per consumer, with all the providers from the Service Registry response
+    Map<ArrowheadSystem, CompletableFuture<Set<ArrowheadSystem>>> authFutures = new HashMap<>();
+    Map<Integer, QueryResult> queries = new LinkedHashMap<>();
+    for (int index : group) {
+      ServiceRequestForm srf = srfList.get(index);
+      CompletableFuture<Set<ArrowheadSystem>> authFuture = authFutures.computeIfAbsent(srf.getRequesterSystem(), consumer -> srFuture
+          .thenCompose(srList -> {
+            Set<ArrowheadSystem> providerSystems = new HashSet<>();
+            for (ServiceRegistryEntry entry : srList) {
+              providerSystems.add(entry.getProvider());
+            }
+            return OrchestratorDriver.queryAuthorizationAsync(consumer, first.getRequestedService(), providerSystems);
+          }));
+      queries.put(index, new QueryResult(srFuture, authFuture, deadline));
+    }
+
+    List<CompletableFuture<?>> groupFutures = new ArrayList<>(authFutures.values());
+    groupFutures.add(srFuture);
+    CompletableFuture.allOf(groupFutures.toArray(new CompletableFuture[0])).whenComplete((result, throwable) -> onFinished.run());
+    return queries;
+  }
+
+  // Same status codes as the exception mappers of the single orchestration request
+  private static OrchestrationBatchResult toErrorResult(RuntimeException e) {
+    log.info("Orchestration of a batch item failed with " + e.getClass().getSimpleName() + ": " + e.getMessage());
+    ErrorMessage errorMessage;
+    if (e instanceof BadPayloadException || e instanceof DuplicateEntryException) {
+      errorMessage = new ErrorMessage(e.getMessage(), 400, e.getClass().toString());
+    } else if (e instanceof AuthenticationException) {
+      errorMessage = new ErrorMessage(e.getMessage(), 401, e.getClass().toString());
+    } else if (e instanceof DataNotFoundException) {
+      errorMessage = new ErrorMessage(e.getMessage(), 404, e.getClass().toString());
+    } else if (e instanceof UnavailableServerException) {
+      errorMessage = new ErrorMessage(e.getMessage(), 503, e.getClass().toString());
+    } else if (e instanceof CancellationException) {
+      // A shared query was cancelled, because it timed out while an other form of the group was waiting for it
+      errorMessage = new ErrorMessage("A Core System query of the orchestration process timed out.", 503,
+                                      UnavailableServerException.class.toString());
+    } else {
+      errorMessage = new ErrorMessage("Class: " + e.getClass().toString() + " Message: " + e.getMessage(), 500, RuntimeException.class.toString());
+    }
+    return new OrchestrationBatchResult(errorMessage);
+  }
+
+  // The shared Service Registry and Authorization queries of one request form
+  private static final class QueryResult {
+
+    private final CompletableFuture<List<ServiceRegistryEntry>> srFuture;
+    private final CompletableFuture<Set<ArrowheadSystem>> authFuture;
+    private final long deadline;
+
+    private QueryResult(CompletableFuture<List<ServiceRegistryEntry>> srFuture, CompletableFuture<Set<ArrowheadSystem>> authFuture, long deadline) {
+      this.srFuture = srFuture;
+      this.authFuture = authFuture;
+      this.deadline = deadline;
+    }
+
+    private OrchestrationResponse finish(ServiceRequestForm srf) {
+      try {
+        // The query results are shared between the forms, so every form works on its own copy
+        List<ServiceRegistryEntry> srList = new ArrayList<>(
+            OrchestratorDriver.await(srFuture, remainingTime(), "Service Registry query"));
+        Set<ArrowheadSystem> authorizedSystems = new HashSet<>(OrchestratorDriver.await(authFuture, remainingTime(), "Authorization query"));
+        return OrchestratorService.finishDynamicOrchestration(srf, srList, authorizedSystems, OrchestratorService.getLocalPreferredSystems(srf));
+      } catch (DataNotFoundException ex) {
+        return OrchestratorService.dynamicOrchestrationFailed(srf, ex);
+      }
+    }
+
+    // The forms of a batch do not get a fresh timeout each, they all wait until the same deadline
+    private long remainingTime() {
+      return Math.max(0, deadline - System.currentTimeMillis());
+    }
+  }
+
+}
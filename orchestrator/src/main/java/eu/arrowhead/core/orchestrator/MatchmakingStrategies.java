@@ -0,0 +1,131 @@
+package eu.arrowhead.core.orchestrator;
+
+import eu.arrowhead.common.database.ArrowheadService;
+import eu.arrowhead.common.database.ArrowheadSystem;
+import eu.arrowhead.common.database.ServiceRegistryEntry;
+import eu.arrowhead.common.messages.ServiceRequestForm;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+import org.apache.log4j.Logger;
+
+/**
+ * The built-in {@link MatchmakingStrategy} implementations, selectable by name with the <i>matchmaking_strategy</i> property:
+ * <ul>
+ * <li><tt>first</tt> (default): keeps the order of the Service Registry response</li>
+ * <li><tt>round_robin</tt>: rotates the providers of a Service between the consecutive requests</li>
+ * <li><tt>weighted_random</tt>: random order, where the chance of a provider being ahead is proportional to the <i>weight</i> service metadata
+ * of its Service Registry entry (1 if missing)</li>
+ * <li><tt>least_recently_assigned</tt>: the provider which was handed out the longest time ago comes first</li>
+ * <li><tt>score</tt>: the provider with the lowest latency and recent load comes first, see {@link ProviderStatistics#getScore(ArrowheadSystem)}
+ * </li>
+ * </ul>
+ */
+final class MatchmakingStrategies {
+
+  private static Logger log = Logger.getLogger(MatchmakingStrategies.class.getName());
+  // Orders the providers the same way every time, so the round robin does not depend on the order of the Service Registry response
+  private static final Comparator<String> NULLS_FIRST = Comparator.nullsFirst(Comparator.naturalOrder());
+  private static final Comparator<ServiceRegistryEntry> BY_PROVIDER = Comparator
+      .comparing((ServiceRegistryEntry entry) -> entry.getProvider().getSystemGroup(), NULLS_FIRST)
+      .thenComparing(entry -> entry.getProvider().getSystemName(), NULLS_FIRST)
+      .thenComparing(entry -> entry.getProvider().getAddress(), NULLS_FIRST)
+      .thenComparingInt(entry -> entry.getProvider().getPort());
+
+  private MatchmakingStrategies() throws AssertionError {
+    throw new AssertionError("MatchmakingStrategies is a non-instantiable class");
+  }
+
+  /**
+   * Returns the built-in strategy with the given name, or an instance of the given <tt>MatchmakingStrategy</tt> class.
+   *
+   * @throws IllegalArgumentException if the name is neither a built-in strategy nor a usable class name
+   */
+  static MatchmakingStrategy fromName(String name) {
+    switch (name) {
+      case "first":
+        return (candidates, srf) -> new ArrayList<>(candidates);
+      case "round_robin":
+        return new RoundRobin();
+      case "weighted_random":
+        return MatchmakingStrategies::weightedRandom;
+      case "least_recently_assigned":
+        return (candidates, srf) -> sortedByKey(candidates, entry -> ProviderStatistics.getLastAssigned(entry.getProvider()));
+      case "score":
+        return (candidates, srf) -> sortedByKey(candidates, entry -> ProviderStatistics.getScore(entry.getProvider()));
+      default:
+        try {
+          log.info("Using custom matchmaking strategy: " + name);
+          return Class.forName(name).asSubclass(MatchmakingStrategy.class).newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+          throw new IllegalArgumentException("Unknown matchmaking strategy: " + name, e);
+        }
+    }
+  }
+
+  private static List<ServiceRegistryEntry> sorted(List<ServiceRegistryEntry> candidates, Comparator<ServiceRegistryEntry> comparator) {
+    List<ServiceRegistryEntry> ranked = new ArrayList<>(candidates);
+    ranked.sort(comparator);
+    return ranked;
+  }
+
+  /*
+    Sorts the entries by ascending key. The keys are computed once, before the sort: the provider statistics change with the time and with the
+    concurrent orchestrations, and a comparator reading them directly would break the Comparator contract (List.sort can throw on that).
+   */
+  private static List<ServiceRegistryEntry> sortedByKey(List<ServiceRegistryEntry> candidates, ToDoubleFunction<ServiceRegistryEntry> keyFunction) {
+    Map<ServiceRegistryEntry, Double> keys = new IdentityHashMap<>();
+    for (ServiceRegistryEntry entry : candidates) {
+      keys.put(entry, keyFunction.applyAsDouble(entry));
+    }
+    return sorted(candidates, Comparator.comparingDouble(keys::get));
+  }
+
+  // Weighted random ordering without replacement: every entry gets the key random^(1/weight), and the entries are sorted by descending key
+  private static List<ServiceRegistryEntry> weightedRandom(List<ServiceRegistryEntry> candidates, ServiceRequestForm srf) {
+    return sortedByKey(candidates, entry -> -Math.pow(ThreadLocalRandom.current().nextDouble(), 1 / getWeight(entry)));
+  }
+
+  private static double getWeight(ServiceRegistryEntry entry) {
+    ArrowheadService service = entry.getProvidedService();
+    String weight = service == null || service.getServiceMetadata() == null ? null : service.getServiceMetadata().get("weight");
+    if (weight != null) {
+      try {
+        double value = Double.parseDouble(weight);
+        if (value > 0) {
+          return value;
+        }
+      } catch (NumberFormatException e) {
+        log.debug("Invalid weight metadata at " + entry.getProvider() + ": " + weight);
+      }
+    }
+    return 1;
+  }
+
+  private static final class RoundRobin implements MatchmakingStrategy {
+
+    private final Map<List<String>, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public List<ServiceRegistryEntry> rank(List<ServiceRegistryEntry> candidates, ServiceRequestForm srf) {
+      List<ServiceRegistryEntry> ranked = sorted(candidates, BY_PROVIDER);
+      if (ranked.size() > 1) {
+        ArrowheadService service = srf.getRequestedService();
+        List<String> key = service == null ? Collections.emptyList()
+                                           : Arrays.asList(service.getServiceGroup(), service.getServiceDefinition());
+        long counter = counters.computeIfAbsent(key, k -> new AtomicLong()).getAndIncrement();
+        Collections.rotate(ranked, -(int) (counter % ranked.size()));
+      }
+      return ranked;
+    }
+  }
+
+}
@@ -0,0 +1,27 @@
+package eu.arrowhead.core.orchestrator;
+
+import eu.arrowhead.common.database.ServiceRegistryEntry;
+import eu.arrowhead.common.messages.ServiceRequestForm;
+import java.util.List;
+
+/**
+ * Decides which providers the intra-cloud matchmaking returns to the consumer. The strategy used by the Orchestrator is set with the
+ * <i>matchmaking_strategy</i> property of the <i>app.properties</i> file: either the name of a built-in strategy (see
+ * {@link MatchmakingStrategies}), or the fully qualified name of a class implementing this interface (with a public no-argument constructor).
+ * <p>
+ * Implementations have to be thread-safe, since the same instance is used by every orchestration request.
+ */
+public interface MatchmakingStrategy {
+
+  /**
+   * Orders the candidate providers from the most to the least suitable one. The preferred providers of the consumer are ranked separately from the
+   * rest, and always end up ahead of them, so the strategy does not have to deal with them.
+   *
+   * @param candidates the Service Registry entries of the (authorized) candidate providers, must not be modified
+   * @param srf the orchestration request of the consumer
+   *
+   * @return a new list containing every candidate, best first
+   */
+  List<ServiceRegistryEntry> rank(List<ServiceRegistryEntry> candidates, ServiceRequestForm srf);
+
+}
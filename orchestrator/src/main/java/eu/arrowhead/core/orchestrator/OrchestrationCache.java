@@ -0,0 +1,190 @@
+package eu.arrowhead.core.orchestrator;
+
+import eu.arrowhead.common.ExpiringCache;
+import eu.arrowhead.common.database.ArrowheadCloud;
+import eu.arrowhead.common.database.ArrowheadService;
+import eu.arrowhead.common.database.ArrowheadSystem;
+import eu.arrowhead.common.messages.OrchestrationForm;
+import eu.arrowhead.common.messages.OrchestrationResponse;
+import eu.arrowhead.common.messages.PreferredProvider;
+import eu.arrowhead.common.messages.ServiceRequestForm;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import org.apache.log4j.Logger;
+
+/**
+ * Caches the results of the local (Store based and dynamic) orchestrations for a short time, so identical <tt>ServiceRequestForm</tt>s from the
+ * same consumer do not hit the Service Registry, the Authorization and the token generation every time. The cache key consists of the requester
+ * System and Cloud, the requested Service (including its interfaces and metadata), the orchestration flags, the preferred providers and the
+ * requested QoS/commands.
+ * <p>
+ * Entries expire after <i>orchestration_cache_ttl</i> milliseconds, and the least recently used entry is evicted above
+ * <i>orchestration_cache_max_size</i> entries. The Service Registry, the Authorization and the Orchestration Store management call
+ * {@link eu.arrowhead.common.Utility#invalidateOrchestrationCache(ArrowheadService)} when their data changes, which drops the affected entries
+ * earlier. If the cached response holds access tokens with a limited validity (<i>orchestration_token_duration</i>), it is only served until half
+ * of the token validity has passed, after that the orchestration runs again to hand out fresh tokens.
+ */
+final class OrchestrationCache {
+
+  private static Logger log = Logger.getLogger(OrchestrationCache.class.getName());
+  private static final long TTL = Long.valueOf(OrchestratorMain.getProp().getProperty("orchestration_cache_ttl", "5000"));
+  private static final int MAX_SIZE = Integer.valueOf(OrchestratorMain.getProp().getProperty("orchestration_cache_max_size", "1000"));
+  private static final ExpiringCache<Key, CachedResponse> cache = new ExpiringCache<>(TTL, MAX_SIZE);
+
+  private OrchestrationCache() throws AssertionError {
+    throw new AssertionError("OrchestrationCache is a non-instantiable class");
+  }
+
+  /**
+   * Returns the cached result of the given orchestration request, or runs the orchestration process and caches its result. Failed orchestrations
+   * (exceptions) are not cached.
+   */
+  static OrchestrationResponse get(ServiceRequestForm srf, Function<ServiceRequestForm, OrchestrationResponse> orchestration) {
+    return get(srf, cache.getGeneration(), orchestration);
+  }
+
+  /**
+   * Same as {@link #get(ServiceRequestForm, Function)}, for orchestrations which started reading the Core Systems before this call: the result is
+   * only cached if no invalidation happened since <tt>loadGeneration</tt> was read with {@link #getGeneration()}.
+   */
+  static OrchestrationResponse get(ServiceRequestForm srf, long loadGeneration, Function<ServiceRequestForm, OrchestrationResponse> orchestration) {
+    if (TTL <= 0) {
+      return orchestration.apply(srf);
+    }
+
+    // The key is created before the orchestration, since some orchestration processes modify the request form
+    Key key = new Key(srf);
+    OrchestrationResponse cachedResponse = lookup(key);
+    if (cachedResponse != null) {
+      return cachedResponse;
+    }
+
+    // An orchestration which was running during an invalidation does not put its (stale) result in the cache
+    long createdAt = System.currentTimeMillis();
+    OrchestrationResponse response = orchestration.apply(srf);
+    cache.put(key, new CachedResponse(response, createdAt), loadGeneration);
+    return response;
+  }
+
+  /**
+   * Returns the current invalidation generation of the cache, see {@link #get(ServiceRequestForm, long, Function)}.
+   */
+  static long getGeneration() {
+    return cache.getGeneration();
+  }
+
+  /**
+   * Returns the cached result of the given orchestration request, or <tt>null</tt> if there is no (usable) cached result.
+   */
+  static OrchestrationResponse getIfPresent(ServiceRequestForm srf) {
+    return TTL > 0 ? lookup(new Key(srf)) : null;
+  }
+
+  private static OrchestrationResponse lookup(Key key) {
+    CachedResponse cached = cache.getIfPresent(key);
+    if (cached == null) {
+      return null;
+    }
+    if (cached.hasExpiringTokens && System.currentTimeMillis() - cached.createdAt >= OrchestratorDriver.TOKEN_DURATION / 2) {
+      log.info("The access tokens of the cached orchestration result are about to expire, orchestrating again.");
+      cache.invalidate(key);
+      return null;
+    }
+    log.info("Orchestration result is served from the cache.");
+    return cached.response;
+  }
+
+  /**
+   * Drops the cached results of the given Service. Store orchestrations without a requested Service can return any Service, so those are dropped
+   * too. If both parameters are <tt>null</tt>, every cached result is dropped.
+   */
+  static void invalidate(String serviceGroup, String serviceDefinition) {
+    if (serviceGroup == null && serviceDefinition == null) {
+      cache.invalidateAll();
+      log.info("Every cached orchestration result is invalidated.");
+    } else {
+      cache.invalidateIf(key -> key.serviceDefinition == null || (Objects.equals(key.serviceGroup, serviceGroup) && Objects
+          .equals(key.serviceDefinition, serviceDefinition)));
+      log.info("Cached orchestration results of " + serviceGroup + "/" + serviceDefinition + " are invalidated.");
+    }
+  }
+
+  private static List<Object> systemKey(ArrowheadSystem system) {
+    if (system == null) {
+      return null;
+    }
+    return Arrays.asList(system.getSystemGroup(), system.getSystemName(), system.getAddress(), system.getPort());
+  }
+
+  private static List<Object> cloudKey(ArrowheadCloud cloud) {
+    if (cloud == null) {
+      return null;
+    }
+    return Arrays.asList(cloud.getOperator(), cloud.getCloudName());
+  }
+
+  private static <K, V> Map<K, V> copy(Map<K, V> map) {
+    return map == null ? null : new HashMap<>(map);
+  }
+
+  // ArrowheadService.equals() only compares the group and definition, so the interfaces and metadata are part of the key explicitly
+  private static final class Key {
+
+    private final String serviceGroup;
+    private final String serviceDefinition;
+    private final List<Object> values;
+
+    private Key(ServiceRequestForm srf) {
+      ArrowheadService service = srf.getRequestedService();
+      serviceGroup = service == null ? null : service.getServiceGroup();
+      serviceDefinition = service == null ? null : service.getServiceDefinition();
+
+      List<Object> preferredProviders = new ArrayList<>();
+      if (srf.getPreferredProviders() != null) {
+        for (PreferredProvider provider : srf.getPreferredProviders()) {
+          preferredProviders.add(Arrays.asList(systemKey(provider.getProviderSystem()), cloudKey(provider.getProviderCloud())));
+        }
+      }
+      values = Arrays.asList(systemKey(srf.getRequesterSystem()), cloudKey(srf.getRequesterCloud()), serviceGroup, serviceDefinition,
+                             service == null || service.getInterfaces() == null ? null : new ArrayList<>(service.getInterfaces()),
+                             service == null ? null : copy(service.getServiceMetadata()), copy(srf.getOrchestrationFlags()), preferredProviders,
+                             copy(srf.getRequestedQoS()), copy(srf.getCommands()));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return this == o || (o instanceof Key && values.equals(((Key) o).values));
+    }
+
+    @Override
+    public int hashCode() {
+      return values.hashCode();
+    }
+  }
+
+  private static final class CachedResponse {
+
+    private final OrchestrationResponse response;
+    private final long createdAt;
+    private final boolean hasExpiringTokens;
+
+    private CachedResponse(OrchestrationResponse response, long createdAt) {
+      this.response = response;
+      this.createdAt = createdAt;
+      boolean hasTokens = false;
+      for (OrchestrationForm of : response.getResponse()) {
+        if (of.getAuthorizationToken() != null) {
+          hasTokens = true;
+          break;
+        }
+      }
+      this.hasExpiringTokens = hasTokens && OrchestratorDriver.TOKEN_DURATION > 0;
+    }
+  }
+
+}
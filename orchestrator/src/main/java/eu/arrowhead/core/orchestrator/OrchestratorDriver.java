@@ -6,7 +6,9 @@ import eu.arrowhead.common.database.ArrowheadService;
 import eu.arrowhead.common.database.ArrowheadSystem;
 import eu.arrowhead.common.database.OrchestrationStore;
 import eu.arrowhead.common.database.ServiceRegistryEntry;
+import eu.arrowhead.common.exception.BadPayloadException;
 import eu.arrowhead.common.exception.DataNotFoundException;
+import eu.arrowhead.common.exception.UnavailableServerException;
 import eu.arrowhead.common.messages.GSDAnswer;
 import eu.arrowhead.common.messages.GSDRequestForm;
 import eu.arrowhead.common.messages.GSDResult;
@@ -19,13 +21,21 @@ import eu.arrowhead.common.messages.PreferredProvider;
 import eu.arrowhead.common.messages.ServiceQueryForm;
 import eu.arrowhead.common.messages.ServiceQueryResult;
 import eu.arrowhead.common.messages.ServiceRequestForm;
+import eu.arrowhead.common.messages.TokenGenerationRequest;
+import eu.arrowhead.common.messages.TokenGenerationResponse;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import org.apache.log4j.Logger;
@@ -41,6 +51,19 @@ import org.jetbrains.annotations.Nullable;
 final class OrchestratorDriver {
 
   private static Logger log = Logger.getLogger(OrchestratorService.class.getName());
+  // Maximum time (in milliseconds) the orchestration process waits for the given stage, configurable in the app.properties file
+  static final long SR_TIMEOUT = Long.valueOf(OrchestratorMain.getProp().getProperty("orchestration_sr_timeout", "10000"));
+  static final long AUTH_TIMEOUT = Long.valueOf(OrchestratorMain.getProp().getProperty("orchestration_auth_timeout", "10000"));
+  static final long TOKEN_TIMEOUT = Long.valueOf(OrchestratorMain.getProp().getProperty("orchestration_token_timeout", "10000"));
+  // Validity of the generated access tokens in milliseconds, 0 means the tokens do not expire
+  static final int TOKEN_DURATION = Integer.valueOf(OrchestratorMain.getProp().getProperty("orchestration_token_duration", "0"));
+  // Maximum number of services cross-checked at the same time during default store orchestration
+  private static final int CROSS_CHECK_PARALLELISM = Integer
+      .valueOf(OrchestratorMain.getProp().getProperty("orchestration_cross_check_parallelism", "8"));
+  private static final MatchmakingStrategy MATCHMAKING_STRATEGY = MatchmakingStrategies
+      .fromName(OrchestratorMain.getProp().getProperty("matchmaking_strategy", "first"));
+  // Number of providers returned by the intra-cloud matchmaking, if the request does not specify it
+  private static final int MATCHMAKING_TOP_N = Integer.valueOf(OrchestratorMain.getProp().getProperty("matchmaking_top_n", "1"));
 
   private OrchestratorDriver() throws AssertionError {
     throw new AssertionError("OrchestratorDriver is a non-instantiable class");
@@ -66,6 +89,21 @@ final class OrchestratorDriver {
 
     // Sending the request, parsing the returned result
     Response srResponse = Utility.sendRequest(srUri, "PUT", queryForm);
+    return parseServiceQueryResult(srResponse, service);
+  }
+
+  /**
+   * Asynchronous variant of {@link #queryServiceRegistry(ArrowheadService, boolean, boolean)}, so the Service Registry query can overlap with other
+   * requests of the orchestration process. Use {@link #await(CompletableFuture, long, String)} to get the result.
+   */
+  static CompletableFuture<List<ServiceRegistryEntry>> queryServiceRegistryAsync(ArrowheadService service, boolean metadataSearch,
+                                                                                 boolean pingProviders) {
+    String srUri = UriBuilder.fromPath(Utility.getServiceRegistryUri()).path("query").toString();
+    ServiceQueryForm queryForm = new ServiceQueryForm(service, pingProviders, metadataSearch);
+    return Utility.sendRequestAsync(srUri, "PUT", queryForm).thenApply(response -> parseServiceQueryResult(response, service));
+  }
+
+  private static List<ServiceRegistryEntry> parseServiceQueryResult(Response srResponse, ArrowheadService service) {
     ServiceQueryResult serviceQueryResult = srResponse.readEntity(ServiceQueryResult.class);
     if (serviceQueryResult == null || !serviceQueryResult.isValid()) {
       log.error("queryServiceRegistry DataNotFoundException");
@@ -104,6 +142,24 @@ final class OrchestratorDriver {
 
     // Sending the request, parsing the returned result
     Response response = Utility.sendRequest(uri, "PUT", request);
+    return requireAuthorized(parseAuthorizationResponse(response));
+  }
+
+  /**
+   * Asynchronous variant of {@link #queryAuthorization(ArrowheadSystem, ArrowheadService, Set)}. The returned future completes with the
+   * (possibly empty) set of authorized providers, the caller decides when an empty set is an error (see {@link #requireAuthorized(Set)}).
+   */
+  static CompletableFuture<Set<ArrowheadSystem>> queryAuthorizationAsync(ArrowheadSystem consumer, ArrowheadService service,
+                                                                         Set<ArrowheadSystem> providerSet) {
+    if (providerSet.isEmpty()) {
+      return CompletableFuture.completedFuture(new HashSet<>());
+    }
+    String uri = UriBuilder.fromPath(Utility.getAuthorizationUri()).path("intracloud").toString();
+    IntraCloudAuthRequest request = new IntraCloudAuthRequest(consumer, providerSet, service);
+    return Utility.sendRequestAsync(uri, "PUT", request).thenApply(OrchestratorDriver::parseAuthorizationResponse);
+  }
+
+  private static Set<ArrowheadSystem> parseAuthorizationResponse(Response response) {
     IntraCloudAuthResponse authResponse = response.readEntity(IntraCloudAuthResponse.class);
     Set<ArrowheadSystem> authorizedSystems = new HashSet<>();
     // Set view of HashMap ensures there are no duplicates between the keys (systems)
@@ -112,7 +168,15 @@ final class OrchestratorDriver {
         authorizedSystems.add(entry.getKey());
       }
     }
+    return authorizedSystems;
+  }
 
+  /**
+   * Returns the given set of authorized provider <tt>ArrowheadSystem</tt>s.
+   *
+   * @throws DataNotFoundException if none of the provider <tt>ArrowheadSystem</tt>s are authorized for this servicing
+   */
+  static Set<ArrowheadSystem> requireAuthorized(Set<ArrowheadSystem> authorizedSystems) {
     // Throwing exception if none of the providers are authorized for this consumer/service pair.
     if (authorizedSystems.isEmpty()) {
       log.error("queryAuthorization DataNotFoundException");
@@ -123,6 +187,44 @@ final class OrchestratorDriver {
     return authorizedSystems;
   }
 
+  /**
+   * Asks the Authorization Core System to generate access tokens for the given provider <tt>ArrowheadSystem</tt>s. The request is sent
+   * asynchronously, so the orchestration response can be compiled in the meantime.
+   */
+  static CompletableFuture<TokenGenerationResponse> generateTokensAsync(ServiceRequestForm srf, List<ArrowheadSystem> providerList) {
+    // Getting the Authorization token generation resource URI, compiling the request payload
+    String authUri = UriBuilder.fromPath(Utility.getAuthorizationUri()).path("token").toString();
+    TokenGenerationRequest tokenRequest = new TokenGenerationRequest(srf.getRequesterSystem(), srf.getRequesterCloud(), providerList,
+                                                                     srf.getRequestedService(), TOKEN_DURATION);
+    return Utility.sendRequestAsync(authUri, "PUT", tokenRequest).thenApply(response -> response.readEntity(TokenGenerationResponse.class));
+  }
+
+  /**
+   * Waits at most <tt>timeoutMillis</tt> for the result of an asynchronous Core System request. Exceptions thrown by the request (for example a
+   * <tt>DataNotFoundException</tt>) are rethrown as they are, instead of being wrapped into an <tt>ExecutionException</tt>.
+   *
+   * @param stage the name of the orchestration stage, used in the log and exception messages
+   *
+   * @throws UnavailableServerException if the stage did not finish in time
+   */
+  static <T> T await(CompletableFuture<T> future, long timeoutMillis, String stage) {
+    try {
+      return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      log.error(stage + " did not finish in " + timeoutMillis + " ms");
+      throw new UnavailableServerException(stage + " did not finish in " + timeoutMillis + " ms.");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UnavailableServerException(stage + " was interrupted.");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new UnavailableServerException(stage + " failed: " + e.getCause().getMessage());
+    }
+  }
+
   /**
    * Filters out all the entries of the given <tt>ServiceRegistryEntry</tt> list, which does not contain a preferred local <tt>ArrowheadSystem</tt>.
    * This method is called when the <i>onlyPreferred</i> orchestration flag is set to true.
@@ -162,9 +264,10 @@ final class OrchestratorDriver {
   }
 
   /**
-   * As the last step of the local orchestration process (if requested with the <i>matchmaking</i> orchestration flag) we pick out 1 provider from the
-   * remaining list. Providers preferred by the consumer have higher priority. Custom matchmaking algorithm can be implemented here, as of now it just
-   * returns the first (preferred) provider from the list.
+   * As the last step of the local orchestration process (if requested with the <i>matchmaking</i> orchestration flag) we pick out the best
+   * providers from the remaining list, ranked by the configured {@link MatchmakingStrategy} (<i>matchmaking_strategy</i> property). Providers
+   * preferred by the consumer have higher priority. By default only 1 provider is returned, but the <i>matchmaking_top_n</i> property (or the
+   * <i>matchmakingTopN</i> command of the request) can ask for more, so the consumer can fail over to the next provider without orchestrating again.
    * <p>
    * If the <i>onlyPreferred</i> orchestration flag is set to true, then it is guaranteed there will be at least 1 preferred provider to choose from,
    * since this method is called after {@link #removeNonPreferred(List, Set)}, where a {@link eu.arrowhead.common.exception.DataNotFoundException} is
@@ -172,28 +275,67 @@ final class OrchestratorDriver {
    *
    * @param srList The list of <tt>ServiceRegistryEntry</tt>s still being considered
    * @param preferredLocalProviders The set of <tt>ArrowheadSystem</tt>s in this Local Cloud preferred by the requester system
+   * @param srf The <tt>ServiceRequestForm</tt> of the requester system
    *
-   * @return the chosen ServiceRegistryEntry object, containing the necessary <tt>ArrowheadSystem</tt> and <tt>String</tt> serviceUri information to
-   *     contact the provider
+   * @return the chosen ServiceRegistryEntry objects (best first), containing the necessary <tt>ArrowheadSystem</tt> and <tt>String</tt> serviceUri
+   *     information to contact the providers
+   *
+   * @throws BadPayloadException if the <i>matchmakingTopN</i> command is not a positive integer
    */
-  static ServiceRegistryEntry intraCloudMatchmaking(List<ServiceRegistryEntry> srList, Set<ArrowheadSystem> preferredLocalProviders) {
-    // If there are no preferred providers, just return the first ServiceRegistryEntry
-    if (preferredLocalProviders.isEmpty()) {
-      log.info("intraCloudMatchmaking: no preferred local providers given, returning first ServiceRegistryEntry");
-      return srList.get(0);
-    } else { // Otherwise try to find a preferred provider first
-      for (ArrowheadSystem system : preferredLocalProviders) {
-        for (ServiceRegistryEntry entry : srList) {
-          if (system.equals(entry.getProvider())) {
-            log.info("intraCloudMatchmaking: returning the first ServiceRegistryEntry found with preferred provider");
-            return entry;
-          }
-        }
+  static List<ServiceRegistryEntry> intraCloudMatchmaking(List<ServiceRegistryEntry> srList, Set<ArrowheadSystem> preferredLocalProviders,
+                                                          ServiceRequestForm srf) {
+    int topN = getMatchmakingTopN(srf);
+
+    // The preferred providers are ranked separately, and come first
+    List<ServiceRegistryEntry> preferredEntries = new ArrayList<>();
+    List<ServiceRegistryEntry> otherEntries = new ArrayList<>();
+    for (ServiceRegistryEntry entry : srList) {
+      if (preferredLocalProviders.contains(entry.getProvider())) {
+        preferredEntries.add(entry);
+      } else {
+        otherEntries.add(entry);
       }
-      log.info("intraCloudMatchmaking: no match was found between preferred providers, returning the first ServiceRegistryEntry");
-      // And only return the first ServiceRegistryEntry, when no preferred provider was found
-      return srList.get(0);
     }
+    List<ServiceRegistryEntry> ranked = new ArrayList<>();
+    if (!preferredEntries.isEmpty()) {
+      ranked.addAll(MATCHMAKING_STRATEGY.rank(preferredEntries, srf));
+    }
+    if (!otherEntries.isEmpty()) {
+      ranked.addAll(MATCHMAKING_STRATEGY.rank(otherEntries, srf));
+    }
+
+    List<ServiceRegistryEntry> chosen = new ArrayList<>(ranked.subList(0, Math.min(topN, ranked.size())));
+    if (!chosen.isEmpty()) {
+      // Only the first provider is counted as assigned, the rest are fallbacks the consumer will most likely not use
+      ProviderStatistics.recordAssignment(chosen.get(0).getProvider());
+    }
+    log.info("intraCloudMatchmaking returns " + chosen.size() + " ServiceRegistryEntry, " + preferredEntries.size() + " preferred providers were "
+                 + "found");
+    return chosen;
+  }
+
+  /**
+   * Returns the number of providers the intra-cloud matchmaking should return for the request: the <i>matchmakingTopN</i> command of the request,
+   * or the <i>matchmaking_top_n</i> property if the command is missing.
+   *
+   * @throws BadPayloadException if the <i>matchmakingTopN</i> command is not a positive integer
+   */
+  static int getMatchmakingTopN(ServiceRequestForm srf) {
+    String topNCommand = srf.getCommands() == null ? null : srf.getCommands().get("matchmakingTopN");
+    if (topNCommand == null) {
+      return MATCHMAKING_TOP_N;
+    }
+    int topN;
+    try {
+      topN = Integer.parseInt(topNCommand);
+    } catch (NumberFormatException e) {
+      topN = 0;
+    }
+    if (topN <= 0) {
+      log.error("getMatchmakingTopN BadPayloadException");
+      throw new BadPayloadException("Bad payload: the matchmakingTopN command has to be a positive integer.");
+    }
+    return topN;
   }
 
   static List<ServiceRegistryEntry> doQosReservation(List<ServiceRegistryEntry> srList) {
@@ -263,46 +405,78 @@ final class OrchestratorDriver {
 
     // If true, the Orchestration Store was queried for default entries, meaning the service is different for each store entry
     if (srf.getRequestedService() == null) {
+      // Grouping the store entries by service, so every distinct service is only queried once from the SR and the Authorization
+      Map<ArrowheadService, List<OrchestrationStore>> entriesByService = new LinkedHashMap<>();
       for (OrchestrationStore entry : entryList) {
-        // Querying the Service Registry for the current service
-        List<ServiceRegistryEntry> srList = OrchestratorDriver
-            .queryServiceRegistry(entry.getService(), orchestrationFlags.get("metadataSearch"), orchestrationFlags.get("pingProviders"));
-        // Compiling the systems that provide the current service
-        for (ServiceRegistryEntry srEntry : srList) {
-          providerSystemsFromSR.add(srEntry.getProvider());
-        }
+        entriesByService.computeIfAbsent(entry.getService(), service -> new ArrayList<>()).add(entry);
+      }
 
-        // Querying the Authorization to see if the provider system is authorized for this servicing or not
-        providerSystemsFromAuth = OrchestratorDriver
-            .queryAuthorization(entry.getConsumer(), entry.getService(), Collections.singleton(entry.getProviderSystem()));
+      // Cross-checking the services concurrently, but with at most CROSS_CHECK_PARALLELISM services being checked at the same time
+      Semaphore permits = new Semaphore(CROSS_CHECK_PARALLELISM);
+      Map<ArrowheadService, CompletableFuture<Set<ArrowheadSystem>>> crossChecks = new LinkedHashMap<>();
+      for (Map.Entry<ArrowheadService, List<OrchestrationStore>> group : entriesByService.entrySet()) {
+        try {
+          if (!permits.tryAcquire(Math.max(SR_TIMEOUT, AUTH_TIMEOUT), TimeUnit.MILLISECONDS)) {
+            throw new UnavailableServerException("Store entry cross-check did not finish in " + Math.max(SR_TIMEOUT, AUTH_TIMEOUT) + " ms.");
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new UnavailableServerException("Store entry cross-check was interrupted.");
+        }
+        Set<ArrowheadSystem> providers = new HashSet<>();
+        for (OrchestrationStore entry : group.getValue()) {
+          providers.add(entry.getProviderSystem());
+        }
+        CompletableFuture<Set<ArrowheadSystem>> crossCheck = crossCheckServiceAsync(group.getValue().get(0).getConsumer(), group.getKey(), providers,
+                                                                                    orchestrationFlags);
+        crossCheck.whenComplete((result, throwable) -> permits.release());
+        crossChecks.put(group.getKey(), crossCheck);
+      }
 
+      for (Map.Entry<ArrowheadService, CompletableFuture<Set<ArrowheadSystem>>> crossCheck : crossChecks.entrySet()) {
+        Set<ArrowheadSystem> validProviders;
+        try {
+          validProviders = await(crossCheck.getValue(), Math.max(SR_TIMEOUT, AUTH_TIMEOUT), "Store entry cross-check");
+        } catch (DataNotFoundException e) {
+          log.info("crossCheckStoreEntries: SR/Auth cross-check failed for " + crossCheck.getKey().toString() + ": " + e.getMessage());
+          validProviders = Collections.emptySet();
+        }
         // Remove the Store entry from the list, if the SR or Auth crosscheck fails
-        if (!providerSystemsFromSR.contains(entry.getProviderSystem()) || !providerSystemsFromAuth.contains(entry.getProviderSystem())) {
-          toRemove.add(entry);
+        for (OrchestrationStore entry : entriesByService.get(crossCheck.getKey())) {
+          if (!validProviders.contains(entry.getProviderSystem())) {
+            toRemove.add(entry);
+          }
         }
       }
       entryList.removeAll(toRemove);
     }
     // Otherwise the service is fixed and we only need 1 SR and Auth query
     else {
+      //Compiling the list of intra-cloud provider systems from the store list for the auth query
+      Set<ArrowheadSystem> localProviderSystems = new HashSet<>();
+      for (OrchestrationStore entry : entryList) {
+        if (entry.getProviderCloud() == null) {
+          localProviderSystems.add(entry.getProviderSystem());
+        }
+      }
+      // Inter-cloud store entries are checked during the ICN process, there is nothing to cross-check here
+      if (localProviderSystems.isEmpty()) {
+        log.info("crossCheckStoreEntries returns " + entryList.size() + " inter-cloud orchestration store entries");
+        return entryList;
+      }
+
       try {
-        // Querying the Service Registry for the service
-        List<ServiceRegistryEntry> srList = OrchestratorDriver
-            .queryServiceRegistry(srf.getRequestedService(), orchestrationFlags.get("metadataSearch"), orchestrationFlags.get("pingProviders"));
+        // Querying the Service Registry and the Authorization in parallel, since the Auth query does not depend on the SR response
+        CompletableFuture<List<ServiceRegistryEntry>> srFuture = queryServiceRegistryAsync(srf.getRequestedService(),
+                                                                                           orchestrationFlags.get("metadataSearch"),
+                                                                                           orchestrationFlags.get("pingProviders"));
+        CompletableFuture<Set<ArrowheadSystem>> authFuture = queryAuthorizationAsync(srf.getRequesterSystem(), srf.getRequestedService(),
+                                                                                     localProviderSystems);
         // Compiling the systems that provide the service
-        for (ServiceRegistryEntry srEntry : srList) {
+        for (ServiceRegistryEntry srEntry : await(srFuture, SR_TIMEOUT, "Service Registry query")) {
           providerSystemsFromSR.add(srEntry.getProvider());
         }
-
-        //Compiling the list of intra-cloud provider systems from the store list for the auth query
-        Set<ArrowheadSystem> localProviderSystems = new HashSet<>();
-        for (OrchestrationStore entry : entryList) {
-          if (entry.getProviderCloud() == null) {
-            localProviderSystems.add(entry.getProviderSystem());
-          }
-        }
-        // Querying the Authorization
-        providerSystemsFromAuth = OrchestratorDriver.queryAuthorization(srf.getRequesterSystem(), srf.getRequestedService(), localProviderSystems);
+        providerSystemsFromAuth = requireAuthorized(await(authFuture, AUTH_TIMEOUT, "Authorization query"));
 
         // Loop over the store entries and remove an entry, if the SR or Auth crosscheck fails
         for (OrchestrationStore entry : entryList) {
@@ -332,6 +506,27 @@ final class OrchestratorDriver {
     return entryList;
   }
 
+  /**
+   * Queries the Service Registry and the Authorization for one service in parallel, and returns the providers from the given set, which are both
+   * registered and authorized. The future fails with a <tt>DataNotFoundException</tt> if the Service Registry has no provider for the service.
+   */
+  private static CompletableFuture<Set<ArrowheadSystem>> crossCheckServiceAsync(ArrowheadSystem consumer, ArrowheadService service,
+                                                                                Set<ArrowheadSystem> providers,
+                                                                                Map<String, Boolean> orchestrationFlags) {
+    CompletableFuture<List<ServiceRegistryEntry>> srFuture = queryServiceRegistryAsync(service, orchestrationFlags.get("metadataSearch"),
+                                                                                       orchestrationFlags.get("pingProviders"));
+    CompletableFuture<Set<ArrowheadSystem>> authFuture = queryAuthorizationAsync(consumer, service, providers);
+    return srFuture.thenCombine(authFuture, (srList, authorizedSystems) -> {
+      Set<ArrowheadSystem> validProviders = new HashSet<>();
+      for (ServiceRegistryEntry srEntry : srList) {
+        if (authorizedSystems.contains(srEntry.getProvider())) {
+          validProviders.add(srEntry.getProvider());
+        }
+      }
+      return validProviders;
+    });
+  }
+
   /**
    * Initiates the Global Service Discovery process by sending a request to the Gatekeeper Core System.
    *
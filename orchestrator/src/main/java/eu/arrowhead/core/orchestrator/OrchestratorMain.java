@@ -1,5 +1,6 @@
 package eu.arrowhead.core.orchestrator;
 
+import eu.arrowhead.common.HttpClientPool;
 import eu.arrowhead.common.Utility;
 import eu.arrowhead.common.database.ArrowheadService;
 import eu.arrowhead.common.database.ArrowheadSystem;
@@ -200,10 +201,11 @@ class OrchestratorMain {
       secureServer.shutdownNow();
       useSRService(true, false);
     }
+    HttpClientPool.shutdown();
     System.out.println("Orchestrator Server(s) stopped");
   }
 
-  private static synchronized Properties getProp() {
+  static synchronized Properties getProp() {
     try {
       if (prop == null) {
         prop = new Properties();
@@ -1,18 +1,26 @@
 package eu.arrowhead.core.orchestrator;
 
+import eu.arrowhead.common.Utility;
 import eu.arrowhead.common.database.ArrowheadSystem;
 import eu.arrowhead.common.exception.AuthenticationException;
 import eu.arrowhead.common.exception.BadPayloadException;
+import eu.arrowhead.common.exception.DataNotFoundException;
+import eu.arrowhead.common.messages.OrchestrationBatchResponse;
 import eu.arrowhead.common.messages.OrchestrationResponse;
+import eu.arrowhead.common.messages.ProviderFeedback;
 import eu.arrowhead.common.messages.ServiceRequestForm;
 import eu.arrowhead.common.security.SecurityUtils;
+import java.util.List;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
@@ -29,6 +37,7 @@ import org.apache.log4j.Logger;
 public class OrchestratorResource {
 
   private static Logger log = Logger.getLogger(OrchestratorResource.class.getName());
+  private static final int BATCH_MAX_SIZE = Integer.valueOf(OrchestratorMain.getProp().getProperty("orchestration_batch_max_size", "500"));
 
   /**
    * Simple test method to see if the http server where this resource is registered works or not.
@@ -47,7 +56,58 @@ public class OrchestratorResource {
    */
   @POST
   public Response orchestrationProcess(ServiceRequestForm srf, @Context ContainerRequestContext requestContext) {
-    if (!srf.isValid()) {
+    validateRequestForm(srf, requestContext);
+    OrchestrationResponse orchResponse = orchestrate(srf);
+
+    log.info("The orchestration process returned with " + orchResponse.getResponse().size() + " orchestration forms.");
+    return Response.status(Status.OK).entity(orchResponse).build();
+  }
+
+  /**
+   * Orchestrates a list of <tt>ServiceRequestForm</tt>s in one call, for example when a consumer needs many Services at start-up. The dynamic
+   * orchestration requests are grouped by the requested Service, so the Service Registry and the Authorization are only queried once per Service
+   * (and consumer), instead of once per form. The response contains a result for every form, in the same order: either an
+   * <tt>OrchestrationResponse</tt>, or the error the single orchestration request would have returned for the form.
+   *
+   * @return OrchestrationBatchResponse
+   */
+  @POST
+  @Path("batch")
+  public Response batchOrchestrationProcess(List<ServiceRequestForm> srfList, @Context ContainerRequestContext requestContext) {
+    if (srfList == null || srfList.isEmpty()) {
+      log.error("batchOrchestrationProcess BadPayloadException");
+      throw new BadPayloadException("Bad payload: the list of service request forms is missing or empty.");
+    }
+    if (srfList.size() > BATCH_MAX_SIZE) {
+      log.error("batchOrchestrationProcess BadPayloadException");
+      throw new BadPayloadException("Bad payload: at most " + BATCH_MAX_SIZE + " service request forms can be sent in one batch.");
+    }
+
+    log.info("Received a batch orchestration request with " + srfList.size() + " service request forms.");
+    OrchestrationBatchResponse batchResponse = BatchOrchestrationService
+        .orchestrate(srfList, srf -> validateRequestForm(srf, requestContext), OrchestratorResource::orchestrate);
+    return Response.status(Status.OK).entity(batchResponse).build();
+  }
+
+  /**
+   * Default Store orchestration process offered on a GET request, where the requester only has to send 2 String path parameters.
+   */
+  @GET
+  @Path("{systemGroup}/{systemName}")
+  public Response storeOrchestrationProcess(@PathParam("systemGroup") String systemGroup, @PathParam("systemName") String systemName,
+                                            @Context HttpServletRequest request) {
+    ArrowheadSystem requesterSystem = new ArrowheadSystem(systemGroup, systemName, request.getRemoteAddr(), 0, null);
+    log.info("Received a GET Store orchestration from: " + request.getRemoteAddr() + requesterSystem.toString());
+
+    ServiceRequestForm srf = new ServiceRequestForm.Builder(requesterSystem).build();
+    OrchestrationResponse orchResponse = OrchestrationCache.get(srf, OrchestratorService::orchestrationFromStore);
+
+    log.info("Default store orchestration returned with " + orchResponse.getResponse().size() + " orchestration forms.");
+    return Response.status(Status.OK).entity(orchResponse).build();
+  }
+
+  private static void validateRequestForm(ServiceRequestForm srf, ContainerRequestContext requestContext) {
+    if (srf == null || !srf.isValid()) {
       log.error("orchestrationProcess BadPayloadException");
       throw new BadPayloadException("Bad payload: service request form has missing/incomplete mandatory fields. See the documentation of "
                                         + "ServiceRequestForm for more details.");
@@ -63,41 +123,63 @@ public class OrchestratorResource {
             "Requester system " + srf.getRequesterSystem().toString() + " fields and cert common name (" + clientCN + ") do not match!");
       }
     }
+  }
 
-    OrchestrationResponse orchResponse;
+  // Starts the orchestration process determined by the orchestration flags
+  private static OrchestrationResponse orchestrate(ServiceRequestForm srf) {
     if (srf.getOrchestrationFlags().get("externalServiceRequest")) {
       log.info("Received an externalServiceRequest.");
-      orchResponse = OrchestratorService.externalServiceRequest(srf);
+      return OrchestratorService.externalServiceRequest(srf);
     } else if (srf.getOrchestrationFlags().get("triggerInterCloud")) {
       log.info("Received a triggerInterCloud request.");
-      orchResponse = OrchestratorService.triggerInterCloud(srf);
+      return OrchestratorService.triggerInterCloud(srf);
     } else if (!srf.getOrchestrationFlags().get("overrideStore")) { //overrideStore == false
       log.info("Received an orchestrationFromStore request.");
-      orchResponse = OrchestratorService.orchestrationFromStore(srf);
+      return OrchestrationCache.get(srf, OrchestratorService::orchestrationFromStore);
     } else {
       log.info("Received a dynamicOrchestration request.");
-      orchResponse = OrchestratorService.dynamicOrchestration(srf);
+      return OrchestrationCache.get(srf, OrchestratorService::dynamicOrchestration);
     }
-
-    log.info("The orchestration process returned with " + orchResponse.getResponse().size() + " orchestration forms.");
-    return Response.status(Status.OK).entity(orchResponse).build();
   }
 
   /**
-   * Default Store orchestration process offered on a GET request, where the requester only has to send 2 String path parameters.
+   * Consumers can report the response time of a provider here, which is used by the score based matchmaking strategy. Only the providers the
+   * matchmaking handed out recently are accepted.
    */
-  @GET
-  @Path("{systemGroup}/{systemName}")
-  public Response storeOrchestrationProcess(@PathParam("systemGroup") String systemGroup, @PathParam("systemName") String systemName,
-                                            @Context HttpServletRequest request) {
-    ArrowheadSystem requesterSystem = new ArrowheadSystem(systemGroup, systemName, request.getRemoteAddr(), 0, null);
-    log.info("Received a GET Store orchestration from: " + request.getRemoteAddr() + requesterSystem.toString());
+  @PUT
+  @Path("feedback")
+  public Response providerFeedback(ProviderFeedback feedback) {
+    if (feedback == null || !feedback.isValid()) {
+      log.error("providerFeedback BadPayloadException");
+      throw new BadPayloadException("Bad payload: provider feedback has missing/incomplete mandatory fields.");
+    }
+    if (!ProviderStatistics.recordLatency(feedback.getProvider(), feedback.getLatency())) {
+      log.info("providerFeedback DataNotFoundException");
+      throw new DataNotFoundException("The provider of the feedback was not assigned to any consumer by this Orchestrator recently.");
+    }
+    return Response.status(Status.OK).build();
+  }
 
-    ServiceRequestForm srf = new ServiceRequestForm.Builder(requesterSystem).build();
-    OrchestrationResponse orchResponse = OrchestratorService.orchestrationFromStore(srf);
+  /**
+   * Drops the cached orchestration results of the given Service, or every cached result if no Service is given. Called by the Service Registry
+   * and the management API when the registered Services, the authorization rights or the Orchestration Store change.
+   */
+  @DELETE
+  @Path("cache")
+  public Response invalidateCache(@QueryParam("serviceGroup") String serviceGroup, @QueryParam("serviceDefinition") String serviceDefinition) {
+    OrchestrationCache.invalidate(serviceGroup, serviceDefinition);
+    return Response.status(Status.OK).build();
+  }
 
-    log.info("Default store orchestration returned with " + orchResponse.getResponse().size() + " orchestration forms.");
-    return Response.status(Status.OK).entity(orchResponse).build();
+  /**
+   * Drops the cached Core System, Neighbor Cloud and Own Cloud entries of this Core System. Called by the management API after it changed these
+   * tables.
+   */
+  @DELETE
+  @Path("endpoints")
+  public Response invalidateEndpointCache() {
+    Utility.invalidateEndpointCache();
+    return Response.status(Status.OK).build();
   }
 
 }
@@ -1,6 +1,5 @@
 package eu.arrowhead.core.orchestrator;
 
-import eu.arrowhead.common.Utility;
 import eu.arrowhead.common.database.ArrowheadCloud;
 import eu.arrowhead.common.database.ArrowheadSystem;
 import eu.arrowhead.common.database.OrchestrationStore;
@@ -13,7 +12,6 @@ import eu.arrowhead.common.messages.OrchestrationResponse;
 import eu.arrowhead.common.messages.PreferredProvider;
 import eu.arrowhead.common.messages.ServiceRequestForm;
 import eu.arrowhead.common.messages.TokenData;
-import eu.arrowhead.common.messages.TokenGenerationRequest;
 import eu.arrowhead.common.messages.TokenGenerationResponse;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -21,8 +19,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import javax.ws.rs.core.Response;
-import javax.ws.rs.core.UriBuilder;
+import java.util.concurrent.CompletableFuture;
 import org.apache.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -52,69 +49,123 @@ final class OrchestratorService {
     Map<String, Boolean> orchestrationFlags = srf.getOrchestrationFlags();
 
     try {
-      // Querying the Service Registry
-      List<ServiceRegistryEntry> srList = OrchestratorDriver
-          .queryServiceRegistry(srf.getRequestedService(), orchestrationFlags.get("metadataSearch"), orchestrationFlags.get("pingProviders"));
-
-      // Cross-checking the SR response with the Authorization
+      // The preferred local providers are known upfront, so their authorization is checked while the Service Registry is queried
+      Set<ArrowheadSystem> preferredSystems = getLocalPreferredSystems(srf);
+      CompletableFuture<List<ServiceRegistryEntry>> srFuture = OrchestratorDriver
+          .queryServiceRegistryAsync(srf.getRequestedService(), orchestrationFlags.get("metadataSearch"), orchestrationFlags.get("pingProviders"));
+      CompletableFuture<Set<ArrowheadSystem>> preferredAuthFuture = OrchestratorDriver
+          .queryAuthorizationAsync(srf.getRequesterSystem(), srf.getRequestedService(), preferredSystems);
+
+      List<ServiceRegistryEntry> srList = OrchestratorDriver.await(srFuture, OrchestratorDriver.SR_TIMEOUT, "Service Registry query");
       Set<ArrowheadSystem> providerSystems = new HashSet<>();
       for (ServiceRegistryEntry entry : srList) {
         providerSystems.add(entry.getProvider());
       }
-      providerSystems = OrchestratorDriver.queryAuthorization(srf.getRequesterSystem(), srf.getRequestedService(), providerSystems);
 
+      // Cross-checking the SR response with the Authorization
+      Set<ArrowheadSystem> authorizedSystems = new HashSet<>(
+          OrchestratorDriver.await(preferredAuthFuture, OrchestratorDriver.AUTH_TIMEOUT, "Authorization query"));
+      authorizedSystems.retainAll(providerSystems);
       /*
-       * The Authorization cross-check only returns the provider systems where the requester system is authorized to consume the service. We filter
-       * out the non-authorized systems from the SR response (ServiceRegistryEntry list).
+       * The rest of the providers only have to be checked, if they can end up in the response. They can not, if only preferred providers are
+       * accepted, or if matchmaking is requested and there are enough authorized preferred providers to fill its result (since matchmaking picks
+       * those first).
        */
-      List<ServiceRegistryEntry> temp = new ArrayList<>();
-      for (ServiceRegistryEntry entry : srList) {
-        if (!providerSystems.contains(entry.getProvider())) {
-          temp.add(entry);
-        }
+      Set<ArrowheadSystem> otherSystems = new HashSet<>(providerSystems);
+      otherSystems.removeAll(preferredSystems);
+      boolean preferredWinsMatchmaking =
+          orchestrationFlags.get("matchmaking") && authorizedSystems.size() >= OrchestratorDriver.getMatchmakingTopN(srf);
+      if (!orchestrationFlags.get("onlyPreferred") && !preferredWinsMatchmaking && !otherSystems.isEmpty()) {
+        authorizedSystems.addAll(OrchestratorDriver.await(
+            OrchestratorDriver.queryAuthorizationAsync(srf.getRequesterSystem(), srf.getRequestedService(), otherSystems),
+            OrchestratorDriver.AUTH_TIMEOUT, "Authorization query"));
       }
-      srList.removeAll(temp);
 
-      // If needed, remove the non-preferred providers from the remaining list
-      providerSystems.clear(); //providerSystems set is reused
-      for (PreferredProvider provider : srf.getPreferredProviders()) {
-        if (provider.isLocal()) {
-          providerSystems.add(provider.getProviderSystem());
-        }
-      }
-      if (orchestrationFlags.get("onlyPreferred")) {
-        srList = OrchestratorDriver.removeNonPreferred(srList, providerSystems);
-      }
+      return finishDynamicOrchestration(srf, srList, authorizedSystems, preferredSystems);
+    }
+    /*
+     * If the Intra-Cloud orchestration fails somewhere (SR, Auth, filtering, matchmaking) we catch the exception, because Inter-Cloud
+     * orchestration might be allowed. If not, we throw the same exception again.
+     */ catch (DataNotFoundException ex) {
+      return dynamicOrchestrationFailed(srf, ex);
+    }
+  }
 
-      //placeholder step
-      if (orchestrationFlags.get("enableQoS")) {
-        srList = OrchestratorDriver.doQoSVerification(srList);
+  /**
+   * Returns the local <tt>ArrowheadSystem</tt>s from the preferred providers of the <tt>ServiceRequestForm</tt>.
+   */
+  static Set<ArrowheadSystem> getLocalPreferredSystems(ServiceRequestForm srf) {
+    Set<ArrowheadSystem> preferredSystems = new HashSet<>();
+    for (PreferredProvider provider : srf.getPreferredProviders()) {
+      if (provider.isLocal()) {
+        preferredSystems.add(provider.getProviderSystem());
       }
+    }
+    return preferredSystems;
+  }
 
-      // If matchmaking is requested, we pick out 1 ServiceRegistryEntry entity from the list. Preferred Systems (2nd arg) have higher priority
-      if (orchestrationFlags.get("matchmaking")) {
-        ServiceRegistryEntry entry = OrchestratorDriver.intraCloudMatchmaking(srList, providerSystems);
-        srList.clear();
-        srList.add(entry);
-      }
+  /**
+   * Second half of the dynamic orchestration process, after the Service Registry and the Authorization were queried: filters the Service Registry
+   * entries according to the authorization result and the orchestration flags, then compiles the response.
+   *
+   * @param srList the Service Registry query result, the method removes the filtered out entries from it
+   * @param authorizedSystems the providers from the <tt>srList</tt> the requester System is authorized to consume
+   * @param preferredSystems the local preferred providers of the requester System
+   *
+   * @throws DataNotFoundException if none of the providers are authorized, or none of them remain after the filtering
+   */
+  static OrchestrationResponse finishDynamicOrchestration(ServiceRequestForm srf, List<ServiceRegistryEntry> srList,
+                                                         Set<ArrowheadSystem> authorizedSystems, Set<ArrowheadSystem> preferredSystems) {
+    Map<String, Boolean> orchestrationFlags = srf.getOrchestrationFlags();
+    OrchestratorDriver.requireAuthorized(authorizedSystems);
 
-      //placeholder step
-      if (orchestrationFlags.get("enableQoS")) {
-        srList = OrchestratorDriver.doQosReservation(srList);
+    /*
+     * The Authorization cross-check only returns the provider systems where the requester system is authorized to consume the service. We filter
+     * out the non-authorized systems from the SR response (ServiceRegistryEntry list).
+     */
+    List<ServiceRegistryEntry> temp = new ArrayList<>();
+    for (ServiceRegistryEntry entry : srList) {
+      if (!authorizedSystems.contains(entry.getProvider())) {
+        temp.add(entry);
       }
+    }
+    srList.removeAll(temp);
 
-      // All the filtering is done, need to compile the response
-      log.info("dynamicOrchestration finished with " + srList.size() + " service providers");
-      return compileOrchestrationResponse(srList, srf, null);
+    // If needed, remove the non-preferred providers from the remaining list
+    if (orchestrationFlags.get("onlyPreferred")) {
+      srList = OrchestratorDriver.removeNonPreferred(srList, preferredSystems);
     }
-    /*
-     * If the Intra-Cloud orchestration fails somewhere (SR, Auth, filtering, matchmaking) we catch the exception, because Inter-Cloud
-     * orchestration might be allowed. If not, we throw the same exception again.
-     */ catch (DataNotFoundException ex) {
-      if (!orchestrationFlags.get("enableInterCloud")) {
-        log.error("dynamicOrchestration: Intra-Cloud orchestration failed with DataNotFoundException, Inter-Cloud is not allowed.");
-        throw new DataNotFoundException(ex.getMessage());
-      }
+
+    //placeholder step
+    if (orchestrationFlags.get("enableQoS")) {
+      srList = OrchestratorDriver.doQoSVerification(srList);
+    }
+
+    // If matchmaking is requested, we pick out the best ServiceRegistryEntry entities from the list. Preferred Systems have higher priority
+    if (orchestrationFlags.get("matchmaking")) {
+      srList = OrchestratorDriver.intraCloudMatchmaking(srList, preferredSystems, srf);
+    }
+
+    //placeholder step
+    if (orchestrationFlags.get("enableQoS")) {
+      srList = OrchestratorDriver.doQosReservation(srList);
+    }
+
+    // All the filtering is done, need to compile the response
+    log.info("dynamicOrchestration finished with " + srList.size() + " service providers");
+    return compileOrchestrationResponse(srList, srf, null);
+  }
+
+  /**
+   * Called when the Intra-Cloud part of the dynamic orchestration failed: moves on to Inter-Cloud orchestration, if the <i>enableInterCloud</i>
+   * flag allows it.
+   *
+   * @throws DataNotFoundException (with the message of the original exception) if Inter-Cloud orchestration is not allowed
+   */
+  static OrchestrationResponse dynamicOrchestrationFailed(ServiceRequestForm srf, DataNotFoundException ex) {
+    if (!srf.getOrchestrationFlags().get("enableInterCloud")) {
+      log.error("dynamicOrchestration: Intra-Cloud orchestration failed with DataNotFoundException, Inter-Cloud is not allowed.");
+      throw new DataNotFoundException(ex.getMessage());
     }
 
     /*
@@ -302,24 +353,17 @@ final class OrchestratorService {
    */
   private static OrchestrationResponse compileOrchestrationResponse(@NotNull List<ServiceRegistryEntry> srList, @NotNull ServiceRequestForm srf,
                                                                     @Nullable List<String> instructions) {
-    // Arrange token generation for every provider, if it was requested in the service metadata
+    // Arrange token generation for every provider, if it was requested in the service metadata. The provider list is final at this point, so the
+    // token request is sent right away, and the orchestration forms are compiled while the Authorization is working on it.
     Map<String, String> metadata = srf.getRequestedService().getServiceMetadata();
-    TokenGenerationResponse tokenResponse = null;
+    CompletableFuture<TokenGenerationResponse> tokenFuture = null;
     if (metadata.containsKey("security") && metadata.get("security").equals("token")) {
       // Getting all the provider Systems from the Service Registry entries
       List<ArrowheadSystem> providerList = new ArrayList<>();
       for (ServiceRegistryEntry entry : srList) {
         providerList.add(entry.getProvider());
       }
-
-      // Getting the Authorization token generation resource URI, compiling the request payload
-      String authUri = Utility.getAuthorizationUri();
-      authUri = UriBuilder.fromPath(authUri).path("token").toString();
-      TokenGenerationRequest tokenRequest = new TokenGenerationRequest(srf.getRequesterSystem(), srf.getRequesterCloud(), providerList,
-                                                                       srf.getRequestedService(), 0);
-      //Sending request, parsing response
-      Response authResponse = Utility.sendRequest(authUri, "PUT", tokenRequest);
-      tokenResponse = authResponse.readEntity(TokenGenerationResponse.class);
+      tokenFuture = OrchestratorDriver.generateTokensAsync(srf, providerList);
     }
 
     // Create an OrchestrationForm for every provider
@@ -336,7 +380,8 @@ final class OrchestratorService {
       }
     }
     // Adding the tokens and signatures, if token generation happened
-    if (tokenResponse != null) {
+    if (tokenFuture != null) {
+      TokenGenerationResponse tokenResponse = OrchestratorDriver.await(tokenFuture, OrchestratorDriver.TOKEN_TIMEOUT, "Token generation");
       for (TokenData data : tokenResponse.getTokenData()) {
         for (OrchestrationForm of : ofList) {
           if (data.getSystem().equals(of.getProvider())) {
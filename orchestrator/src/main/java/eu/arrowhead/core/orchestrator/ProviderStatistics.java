@@ -0,0 +1,98 @@
+package eu.arrowhead.core.orchestrator;
+
+import eu.arrowhead.common.database.ArrowheadSystem;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the provider <tt>ArrowheadSystem</tt>s the matchmaking handed out, and the response times the consumers reported about them. Used
+ * by the least-recently-assigned and the score based {@link MatchmakingStrategies}.
+ * <p>
+ * The recent load of a provider is the number of consumers it was assigned to, decaying exponentially with the <i>matchmaking_load_window</i>
+ * (milliseconds) time constant. The latency is an exponentially weighted moving average of the reported response times.
+ * <p>
+ * Only the providers handed out by the matchmaking are tracked, latency reports about other Systems are rejected. A provider which was not
+ * assigned for <i>matchmaking_statistics_idle_timeout</i> milliseconds is forgotten, so the statistics do not grow with the providers which left
+ * the Service Registry.
+ */
+final class ProviderStatistics {
+
+  private static final double LOAD_WINDOW = Double.valueOf(OrchestratorMain.getProp().getProperty("matchmaking_load_window", "60000"));
+  // Weight of the newest latency report in the moving average
+  private static final double LATENCY_SMOOTHING = 0.2;
+  private static final long IDLE_TIMEOUT = Long.valueOf(OrchestratorMain.getProp().getProperty("matchmaking_statistics_idle_timeout", "3600000"));
+  private static final Map<ArrowheadSystem, Statistics> statistics = new ConcurrentHashMap<>();
+  private static final AtomicLong nextCleanup = new AtomicLong(System.currentTimeMillis() + IDLE_TIMEOUT);
+
+  private ProviderStatistics() throws AssertionError {
+    throw new AssertionError("ProviderStatistics is a non-instantiable class");
+  }
+
+  static void recordAssignment(ArrowheadSystem provider) {
+    long now = System.currentTimeMillis();
+    statistics.computeIfAbsent(provider, key -> new Statistics()).recordAssignment(now);
+
+    // Dropping the idle providers at most once per idle timeout, by the thread which wins the race for the cleanup
+    long cleanupAt = nextCleanup.get();
+    if (now >= cleanupAt && nextCleanup.compareAndSet(cleanupAt, now + IDLE_TIMEOUT)) {
+      statistics.values().removeIf(stats -> now - stats.lastAssigned > IDLE_TIMEOUT);
+    }
+  }
+
+  /**
+   * Records a response time reported by a consumer.
+   *
+   * @return false if the provider was not assigned to any consumer recently, in which case the report is ignored
+   */
+  static boolean recordLatency(ArrowheadSystem provider, long latency) {
+    Statistics stats = statistics.get(provider);
+    if (stats == null) {
+      return false;
+    }
+    stats.recordLatency(latency);
+    return true;
+  }
+
+  /**
+   * Returns when the provider was last assigned to a consumer (epoch milliseconds), or 0 if it was never assigned.
+   */
+  static long getLastAssigned(ArrowheadSystem provider) {
+    Statistics stats = statistics.get(provider);
+    return stats == null ? 0 : stats.lastAssigned;
+  }
+
+  /**
+   * Returns the expected cost of assigning one more consumer to the provider (lower is better): the average reported latency multiplied by the
+   * recent load. Providers without latency reports count as 1 ms fast, so they get tried (and measured) too.
+   */
+  static double getScore(ArrowheadSystem provider) {
+    Statistics stats = statistics.get(provider);
+    return stats == null ? 1 : stats.score(System.currentTimeMillis());
+  }
+
+  private static final class Statistics {
+
+    private volatile long lastAssigned;
+    private double load;
+    private double latency = -1;
+
+    private synchronized void recordAssignment(long now) {
+      load = decayedLoad(now) + 1;
+      lastAssigned = now;
+    }
+
+    private synchronized void recordLatency(long latency) {
+      this.latency = this.latency < 0 ? latency : LATENCY_SMOOTHING * latency + (1 - LATENCY_SMOOTHING) * this.latency;
+    }
+
+    private synchronized double score(long now) {
+      return (1 + Math.max(latency, 0)) * (1 + decayedLoad(now));
+    }
+
+    private double decayedLoad(long now) {
+      return lastAssigned == 0 ? 0 : load * Math.exp(-(now - lastAssigned) / LOAD_WINDOW);
+    }
+  }
+
+}
@@ -5,34 +5,28 @@ import eu.arrowhead.common.database.ArrowheadService;
 import eu.arrowhead.common.database.ArrowheadSystem;
 import eu.arrowhead.common.database.OrchestrationStore;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 public final class StoreService {
 
   private static DatabaseManager dm = DatabaseManager.getInstance();
-  private static HashMap<String, Object> restrictionMap = new HashMap<>();
 
   /**
    * This method returns the active Orchestration Store entries for a consumer.
    */
   static List<OrchestrationStore> getDefaultStoreEntries(ArrowheadSystem consumer) {
-    restrictionMap.clear();
     ArrowheadSystem savedConsumer = getConsumerSystem(consumer.getSystemGroup(), consumer.getSystemName());
     if (savedConsumer == null) {
       return new ArrayList<>();
     }
 
-    restrictionMap.put("consumer", savedConsumer);
-    restrictionMap.put("isDefault", true);
-    return dm.getAll(OrchestrationStore.class, restrictionMap);
+    return dm.getAllNamed(OrchestrationStore.class, OrchestrationStore.FIND_DEFAULT_BY_CONSUMER, savedConsumer);
   }
 
   /**
    * This method returns a list of Orchestration Store entries specified by the consumer system and the requested service.
    */
   static List<OrchestrationStore> getStoreEntries(ArrowheadSystem consumer, ArrowheadService service) {
-    restrictionMap.clear();
     ArrowheadSystem savedConsumer = getConsumerSystem(consumer.getSystemGroup(), consumer.getSystemName());
     ArrowheadService savedService = getRequestedService(service.getServiceGroup(), service.getServiceDefinition());
     if (savedConsumer == null || savedService == null) {
@@ -45,29 +39,21 @@ public final class StoreService {
       }
     }
 
-    restrictionMap.put("consumer", savedConsumer);
-    restrictionMap.put("service", savedService);
-    return dm.getAll(OrchestrationStore.class, restrictionMap);
+    return dm.getAllNamed(OrchestrationStore.class, OrchestrationStore.FIND_BY_CONSUMER_AND_SERVICE, savedConsumer, savedService);
   }
 
   /**
    * This private method returns an ArrowheadSystem from the database.
    */
   private static ArrowheadSystem getConsumerSystem(String systemGroup, String systemName) {
-    HashMap<String, Object> rm = new HashMap<>();
-    rm.put("systemGroup", systemGroup);
-    rm.put("systemName", systemName);
-    return dm.get(ArrowheadSystem.class, rm);
+    return dm.getNamed(ArrowheadSystem.class, ArrowheadSystem.FIND_BY_GROUP_AND_NAME, systemGroup, systemName);
   }
 
   /**
    * This private method returns an ArrowheadService from the database.
    */
   private static ArrowheadService getRequestedService(String serviceGroup, String serviceDefinition) {
-    HashMap<String, Object> rm = new HashMap<>();
-    rm.put("serviceGroup", serviceGroup);
-    rm.put("serviceDefinition", serviceDefinition);
-    return dm.get(ArrowheadService.class, rm);
+    return dm.getNamed(ArrowheadService.class, ArrowheadService.FIND_BY_GROUP_AND_DEFINITION, serviceGroup, serviceDefinition);
   }
 
   private static boolean hasMatchingInterfaces(ArrowheadService savedService, ArrowheadService givenService) {
@@ -85,8 +71,7 @@ public final class StoreService {
    * This method returns all the entries of the Orchestration Store.
    */
   public static List<OrchestrationStore> getAllStoreEntries() {
-    restrictionMap.clear();
-    return dm.getAll(OrchestrationStore.class, restrictionMap);
+    return dm.getAll(OrchestrationStore.class, null);
   }
 
 }
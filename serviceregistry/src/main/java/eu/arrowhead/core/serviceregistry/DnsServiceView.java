@@ -0,0 +1,282 @@
+package eu.arrowhead.core.serviceregistry;
+
+import com.github.danieln.dnssdjava.DnsSDBrowser;
+import com.github.danieln.dnssdjava.DnsSDDomainEnumerator;
+import com.github.danieln.dnssdjava.DnsSDFactory;
+import com.github.danieln.dnssdjava.ServiceData;
+import com.github.danieln.dnssdjava.ServiceName;
+import com.github.danieln.dnssdjava.ServiceType;
+import eu.arrowhead.common.database.ArrowheadService;
+import eu.arrowhead.common.database.ServiceRegistryEntry;
+import eu.arrowhead.common.exception.DnsException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.apache.log4j.Logger;
+
+/**
+ * In-memory copy of the Arrowhead service records of the DNS-SD zone, so the Service Registry queries do not need any DNS traffic. The records
+ * are indexed by their Arrowhead Service and interface (the DNS-SD service type without the transport protocol).
+ * <p>
+ * The registrations and removals of this Service Registry update the view right away. Records changed on the DNS server by someone else show up
+ * at the next full resynchronization, which runs every <i>dns.view_resync_interval</i> milliseconds. Queries before the first successful
+ * resynchronization browse the DNS server synchronously.
+ */
+final class DnsServiceView {
+
+  private static Logger log = Logger.getLogger(DnsServiceView.class.getName());
+  private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "dns-service-view");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // Serializes the resynchronizations, so a query waiting for the first load does not skip it while the scheduler runs it
+  private static final Object resyncLock = new Object();
+
+  // Guarded by the class lock
+  private static View view = new View();
+  private static boolean loaded;
+  // The changes made during a running resynchronization, replayed on its result, null if no resynchronization is running
+  private static List<Consumer<View>> changesDuringResync;
+
+  private DnsServiceView() throws AssertionError {
+    throw new AssertionError("DnsServiceView is a non-instantiable class");
+  }
+
+  /**
+   * Loads the view, and schedules the periodic resynchronization.
+   */
+  static void start(long resyncInterval) {
+    try {
+      resync();
+    } catch (RuntimeException e) {
+      log.error("Loading the DNS-SD records failed, retrying at the next resync: " + e.getMessage());
+    }
+    if (resyncInterval > 0) {
+      scheduler.scheduleWithFixedDelay(() -> {
+        try {
+          resync();
+        } catch (RuntimeException e) {
+          log.error("DNS-SD resync failed: " + e.getMessage());
+        }
+      }, resyncInterval, resyncInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  static void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  /**
+   * Returns the registered providers of the given Service on the given interface, both with TCP and UDP transport.
+   */
+  static List<ServiceRegistryEntry> getServices(ArrowheadService service, String interf) {
+    ensureLoaded();
+    synchronized (DnsServiceView.class) {
+      Map<List<String>, ServiceRegistryEntry> entries = view.byServiceInterface.get(indexKey(service, interf));
+      return entries == null ? new ArrayList<>() : new ArrayList<>(entries.values());
+    }
+  }
+
+  static List<ServiceRegistryEntry> getAllServices() {
+    ensureLoaded();
+    synchronized (DnsServiceView.class) {
+      return new ArrayList<>(view.records.values());
+    }
+  }
+
+  /**
+   * Returns every record of the view by its DNS-SD instance name.
+   */
+  static Map<ServiceName, ServiceRegistryEntry> getRecords() {
+    ensureLoaded();
+    synchronized (DnsServiceView.class) {
+      Map<ServiceName, ServiceRegistryEntry> records = new LinkedHashMap<>();
+      for (Map.Entry<List<String>, ServiceName> name : view.names.entrySet()) {
+        records.put(name.getValue(), view.records.get(name.getKey()));
+      }
+      return records;
+    }
+  }
+
+  /**
+   * Adds (or replaces) a record registered on the DNS server.
+   *
+   * @throws IllegalArgumentException if the record is not an Arrowhead service record
+   */
+  static void put(ServiceData data) {
+    ServiceRegistryEntry entry = RegistryUtils.buildRegistryEntry(data);
+    change(target -> target.put(data.getName(), entry));
+  }
+
+  static void remove(ServiceName name) {
+    change(target -> target.remove(name));
+  }
+
+  static void clear() {
+    change(View::clear);
+  }
+
+  /**
+   * Reloads every Arrowhead service record from the DNS server, and swaps the view to the new records.
+   */
+  static void resync() {
+    synchronized (resyncLock) {
+      synchronized (DnsServiceView.class) {
+        changesDuringResync = new ArrayList<>();
+      }
+
+      View freshView = null;
+      try {
+        freshView = browseAll();
+      } finally {
+        synchronized (DnsServiceView.class) {
+          if (freshView != null) {
+            for (Consumer<View> change : changesDuringResync) {
+              change.accept(freshView);
+            }
+            view = freshView;
+            loaded = true;
+            log.debug("DNS-SD view resynchronized, " + view.records.size() + " records");
+          }
+          changesDuringResync = null;
+        }
+      }
+    }
+  }
+
+  private static void ensureLoaded() {
+    synchronized (DnsServiceView.class) {
+      if (loaded) {
+        return;
+      }
+    }
+    synchronized (resyncLock) {
+      synchronized (DnsServiceView.class) {
+        if (loaded) {
+          return;
+        }
+      }
+      try {
+        resync();
+      } catch (RuntimeException e) {
+        log.error("Loading the DNS-SD records failed: " + e.getMessage());
+        throw new DnsException("The DNS-SD records could not be loaded: " + e.getMessage());
+      }
+    }
+  }
+
+  private static synchronized void change(Consumer<View> change) {
+    change.accept(view);
+    if (changesDuringResync != null) {
+      changesDuringResync.add(change);
+    }
+  }
+
+  private static List<String> indexKey(ArrowheadService service, String interf) {
+    return Arrays.asList(service.getServiceGroup(), service.getServiceDefinition(), interf);
+  }
+
+  private static View browseAll() {
+    DnsSDDomainEnumerator de = DnsSDFactory.getInstance().createDomainEnumerator(ServiceRegistryMain.computerDomain);
+    DnsSDBrowser browser = DnsSDFactory.getInstance().createBrowser(de.getBrowsingDomains());
+    Collection<ServiceType> types = browser.getServiceTypes();
+
+    View browsedView = new View();
+    if (types == null || types.isEmpty()) {
+      return browsedView;
+    }
+    //resolving the instances of every type concurrently
+    List<ServiceType> failedTypes = new ArrayList<>();
+    Collection<ServiceName> instances = browser.getServiceInstances(types, failedTypes);
+    List<ServiceName> failedInstances = new ArrayList<>();
+    for (Map.Entry<ServiceName, ServiceData> instance : browser.getServiceData(instances, failedInstances).entrySet()) {
+      try {
+        browsedView.put(instance.getKey(), RegistryUtils.buildRegistryEntry(instance.getValue()));
+      } catch (IllegalArgumentException e) {
+        log.info("There is a non-Arrowhead compliant DNS record: " + instance.getKey().getName() + "." + instance.getKey().getType().toString());
+      }
+    }
+
+    // A failed lookup does not mean the records are gone: the previous records of the failed types and instances are kept until the next resync
+    if (!failedTypes.isEmpty() || !failedInstances.isEmpty()) {
+      Set<List<String>> failedRecordKeys = new HashSet<>();
+      for (ServiceName instance : failedInstances) {
+        failedRecordKeys.add(View.recordKey(instance));
+      }
+      synchronized (DnsServiceView.class) {
+        for (Map.Entry<List<String>, ServiceName> name : view.names.entrySet()) {
+          if (failedTypes.contains(name.getValue().getType()) || failedRecordKeys.contains(name.getKey())) {
+            browsedView.put(name.getValue(), view.records.get(name.getKey()));
+          }
+        }
+      }
+      log.warn("DNS-SD lookup of " + failedTypes.size() + " service types and " + failedInstances.size()
+                   + " service instances failed, their previous records are kept.");
+    }
+    return browsedView;
+  }
+
+  /*
+   The records by their instance name and service type, and indexed by Service and interface. The DNS domain is not part of the key, since the
+   names of the registered records contain the registration domain, while the names of the browsed records contain the browsing domain.
+  */
+  private static final class View {
+
+    private final Map<List<String>, ServiceName> names = new LinkedHashMap<>();
+    private final Map<List<String>, ServiceRegistryEntry> records = new LinkedHashMap<>();
+    private final Map<List<String>, Map<List<String>, ServiceRegistryEntry>> byServiceInterface = new HashMap<>();
+
+    private void put(ServiceName name, ServiceRegistryEntry entry) {
+      remove(name);
+      List<String> recordKey = recordKey(name);
+      names.put(recordKey, name);
+      records.put(recordKey, entry);
+      ArrowheadService service = entry.getProvidedService();
+      for (String interf : service.getInterfaces()) {
+        byServiceInterface.computeIfAbsent(indexKey(service, interf), key -> new LinkedHashMap<>()).put(recordKey, entry);
+      }
+    }
+
+    private void remove(ServiceName name) {
+      List<String> recordKey = recordKey(name);
+      names.remove(recordKey);
+      ServiceRegistryEntry entry = records.remove(recordKey);
+      if (entry != null) {
+        ArrowheadService service = entry.getProvidedService();
+        for (String interf : service.getInterfaces()) {
+          List<String> key = indexKey(service, interf);
+          Map<List<String>, ServiceRegistryEntry> entries = byServiceInterface.get(key);
+          if (entries != null) {
+            entries.remove(recordKey);
+            if (entries.isEmpty()) {
+              byServiceInterface.remove(key);
+            }
+          }
+        }
+      }
+    }
+
+    private void clear() {
+      names.clear();
+      records.clear();
+      byServiceInterface.clear();
+    }
+
+    private static List<String> recordKey(ServiceName name) {
+      return Arrays.asList(name.getName(), name.getType().toString());
+    }
+  }
+
+}
@@ -1,16 +1,18 @@
 package eu.arrowhead.core.serviceregistry;
 
 
-import com.github.danieln.dnssdjava.DnsSDBrowser;
-import com.github.danieln.dnssdjava.DnsSDDomainEnumerator;
 import com.github.danieln.dnssdjava.DnsSDException;
-import com.github.danieln.dnssdjava.DnsSDFactory;
 import com.github.danieln.dnssdjava.DnsSDRegistrator;
-import com.github.danieln.dnssdjava.ServiceData;
 import com.github.danieln.dnssdjava.ServiceName;
-import com.github.danieln.dnssdjava.ServiceType;
-import java.util.Collection;
+import eu.arrowhead.common.ConnectivityProber;
+import eu.arrowhead.common.Utility;
+import eu.arrowhead.common.database.ArrowheadSystem;
+import eu.arrowhead.common.database.ServiceRegistryEntry;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.TimerTask;
 import org.apache.log4j.Logger;
 
@@ -25,40 +27,30 @@ public class PingProvidersTask extends TimerTask {
   }
 
   public void pingAndRemoveServices() {
-    DnsSDDomainEnumerator de;
-    de = DnsSDFactory.getInstance().createDomainEnumerator(ServiceRegistryMain.computerDomain);
-    DnsSDBrowser browser = DnsSDFactory.getInstance().createBrowser(de.getBrowsingDomains());
+    boolean removedAny = false;
 
-    Collection<ServiceType> types = browser.getServiceTypes();
-
-    if (types != null) {
-      //for every type,
-      for (ServiceType type : types) {
-        Collection<ServiceName> instances = browser.getServiceInstances(type);
-
-        //per every instance we shall ping
-        for (ServiceName instance : instances) {
-          ServiceData serviceInstanceData = browser.getServiceData(instance);
-          String hostName = serviceInstanceData.getHost();
-          int port = serviceInstanceData.getPort();
-          RegistryUtils.removeLastChar(hostName, '.');
-          boolean toBeRemoved = false;
-          if (hostName == "127.0.0.1" || hostName == "localhost") {
-            toBeRemoved = true;
-          } else if (!RegistryUtils.pingHost(hostName, port, ServiceRegistryMain.pingTimeout)) {
-            toBeRemoved = true;
-          }
-
-          if (toBeRemoved) {
-            try {
-              DnsSDRegistrator registrator = RegistryUtils.createRegistrator();
-              registrator.unregisterService(instance);
-            } catch (DnsSDException e) {
-              log.error("DNS error occured in deleting an entry." + e.getMessage());
-            }
-          }
+    //collecting every instance from the DNS-SD view first, so all of them are pinged at the same time
+    Map<ServiceName, List<Object>> instanceEndpoints = new LinkedHashMap<>();
+    for (Map.Entry<ServiceName, ServiceRegistryEntry> record : DnsServiceView.getRecords().entrySet()) {
+      ArrowheadSystem provider = record.getValue().getProvider();
+      instanceEndpoints.put(record.getKey(), ConnectivityProber.endpoint(provider.getAddress(), provider.getPort()));
+    }
+    Map<List<Object>, Boolean> reachable = RegistryUtils.pingHosts(new ArrayList<>(instanceEndpoints.values()));
+
+    for (Map.Entry<ServiceName, List<Object>> entry : instanceEndpoints.entrySet()) {
+      String hostName = (String) entry.getValue().get(0);
+      if (hostName.equals("127.0.0.1") || hostName.equals("localhost") || !reachable.get(entry.getValue())) {
+        try {
+          DnsSDRegistrator registrator = RegistryUtils.getRegistrator();
+          removedAny |= registrator.unregisterService(entry.getKey());
+          DnsServiceView.remove(entry.getKey());
+        } catch (DnsSDException e) {
+          log.error("DNS error occured in deleting an entry." + e.getMessage());
         }
       }
     }
+    if (removedAny) {
+      Utility.invalidateOrchestrationCache(null);
+    }
   }
 }
\ No newline at end of file
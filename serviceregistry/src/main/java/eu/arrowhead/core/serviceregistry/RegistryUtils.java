@@ -4,12 +4,13 @@ import com.github.danieln.dnssdjava.DnsSDException;
 import com.github.danieln.dnssdjava.DnsSDFactory;
 import com.github.danieln.dnssdjava.DnsSDRegistrator;
 import com.github.danieln.dnssdjava.ServiceData;
+import eu.arrowhead.common.ConnectivityProber;
 import eu.arrowhead.common.database.ArrowheadService;
 import eu.arrowhead.common.database.ArrowheadSystem;
 import eu.arrowhead.common.database.ServiceRegistryEntry;
 import java.net.InetSocketAddress;
-import java.net.Socket;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -19,7 +20,19 @@ public class RegistryUtils {
 
   private static Logger log = Logger.getLogger(RegistryUtils.class.getName());
 
-  static DnsSDRegistrator createRegistrator() throws DnsSDException {
+  private static DnsSDRegistrator registrator;
+
+  /**
+   * Returns the registrator shared by every registration, created with the DNS settings of the <i>dns.properties</i> file on first use.
+   */
+  static synchronized DnsSDRegistrator getRegistrator() throws DnsSDException {
+    if (registrator == null) {
+      registrator = createRegistrator();
+    }
+    return registrator;
+  }
+
+  private static DnsSDRegistrator createRegistrator() throws DnsSDException {
     // Get the DNS specific settings from global static variables (from prop files)
     // and then set up Registrator
     InetSocketAddress dnsServerAddress = new InetSocketAddress(ServiceRegistryMain.dnsIpAddress, ServiceRegistryMain.dnsPort);
@@ -198,27 +211,32 @@ public class RegistryUtils {
   }
 
   public static boolean pingHost(String host, int port, int timeout) {
-    try (Socket socket = new Socket()) {
-      socket.connect(new InetSocketAddress(host, port), timeout);
-      return true;
-    } catch (Exception e) {
-      return false; // Either timeout or unreachable or failed DNS lookup.
+    return ConnectivityProber.isReachable(host, port, timeout);
+  }
+
+  /**
+   * Pings every given <tt>[host, port]</tt> endpoint at the same time, see {@link ConnectivityProber#probe(java.util.Collection, int, int)}.
+   */
+  public static Map<List<Object>, Boolean> pingHosts(List<List<Object>> endpoints) {
+    Map<List<Object>, Boolean> reachable = new HashMap<>();
+    Map<List<Object>, Long> latencies = ConnectivityProber.probe(endpoints, ServiceRegistryMain.pingTimeout, ServiceRegistryMain.pingMaxConnections);
+    for (Map.Entry<List<Object>, Long> entry : latencies.entrySet()) {
+      reachable.put(entry.getKey(), entry.getValue() != ConnectivityProber.UNREACHABLE);
     }
+    return reachable;
   }
 
   public static void filterOnPing(List<ServiceRegistryEntry> fetchedList) {
-
-    Iterator<ServiceRegistryEntry> iterator = fetchedList.iterator();
-
-    while (iterator.hasNext()) {
-      ServiceRegistryEntry current = iterator.next();
-      if (current.getProvider().getAddress().equals("localhost") || current.getProvider().getAddress().equals("127.0.0.1") || current.getProvider()
-          .getAddress().equals("0.0.0.0")) {
-        iterator.remove();
-      } else if (!pingHost(current.getProvider().getAddress(), current.getProvider().getPort(), ServiceRegistryMain.pingTimeout)) {
-        iterator.remove();
-      }
+    fetchedList.removeIf(current -> current.getProvider().getAddress().equals("localhost") || current.getProvider().getAddress().equals("127.0.0.1")
+        || current.getProvider().getAddress().equals("0.0.0.0"));
+    List<List<Object>> endpoints = new ArrayList<>();
+    for (ServiceRegistryEntry entry : fetchedList) {
+      endpoints.add(ConnectivityProber.endpoint(entry.getProvider().getAddress(), entry.getProvider().getPort()));
     }
+    Map<List<Object>, Boolean> reachable = ServiceRegistryMain.healthTracker != null ? ServiceRegistryMain.healthTracker.areReachable(endpoints)
+                                                                                     : pingHosts(endpoints);
+    fetchedList.removeIf(
+        current -> !reachable.get(ConnectivityProber.endpoint(current.getProvider().getAddress(), current.getProvider().getPort())));
   }
 
   public static void filterOnMeta(List<ServiceRegistryEntry> fetchedList, Map<String, String> metadata) {
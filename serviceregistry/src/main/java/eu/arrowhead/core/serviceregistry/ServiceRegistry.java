@@ -34,40 +34,39 @@ class ServiceRegistry {
     int port = entry.getProvider().getPort();
 
     boolean allRegistered = true;
-    //One System may offer out the same service on multiple interface implementations/IDD-s
-    for (String interf : entry.getProvidedService().getInterfaces()) {
-
-      //ArrowheadService is encoded in the service type field, interface (IDD) as the protocol
-      String serviceType = "_ahf-" + serviceDefinition + "_" + serviceGroup + "_" + interf;
-      if (entry.isUDP()) {
-        serviceType += ("._udp");
-      } else {
-        serviceType += ("._tcp");
-      }
+    try {
+      DnsSDRegistrator registrator = RegistryUtils.getRegistrator();
+      //One System may offer out the same service on multiple interface implementations/IDD-s, all of them are registered in one DNS update
+      List<ServiceData> records = new ArrayList<>();
+      for (String interf : entry.getProvidedService().getInterfaces()) {
+        //ArrowheadService is encoded in the service type field, interface (IDD) as the protocol
+        String serviceType = "_ahf-" + serviceDefinition + "_" + serviceGroup + "_" + interf;
+        if (entry.isUDP()) {
+          serviceType += ("._udp");
+        } else {
+          serviceType += ("._tcp");
+        }
 
-      try {
-        DnsSDRegistrator registrator = RegistryUtils.createRegistrator();
         ServiceName name = registrator.makeServiceName(providerInstance, ServiceType.valueOf(serviceType));
-
         //create  service data object
         ServiceData data = new ServiceData(name, address, port);
         RegistryUtils.setServiceDataProperties(entry, data);
+        records.add(data);
+      }
 
-        if (registrator.registerService(data)) {
-          log.info("Service registered in DNS-SD: " + providerInstance + "." + serviceType);
-        } else {
-          //need to delete the record first
-          registrator.unregisterService(name);
-          //second try
-          registrator.registerService(data);
-          log.info("Service record updated in DNS-SD: " + providerInstance + "." + serviceType);
-          //allRegistered = false;
-        }
-      } catch (DnsSDException ex) {
-        log.error(ex);
-        ex.printStackTrace();
-        throw new DnsException(ex.getMessage());
+      //existing records of the same instance are replaced
+      registrator.registerOrReplaceServices(records);
+      for (ServiceData data : records) {
+        log.info("Service registered in DNS-SD: " + data.getName().getName() + "." + data.getName().getType());
+        DnsServiceView.put(data);
       }
+    } catch (DnsSDException ex) {
+      log.error(ex);
+      ex.printStackTrace();
+      throw new DnsException(ex.getMessage());
+    }
+    if (ServiceRegistryMain.healthTracker != null) {
+      ServiceRegistryMain.healthTracker.track(entry.getProvider().getAddress(), port);
     }
     return allRegistered;
   }
@@ -84,63 +83,39 @@ class ServiceRegistry {
     String providerInstance = entry.getProvider().getSystemName() + "_" + entry.getProvider().getSystemGroup();
 
     boolean allRemoved = true;
-    for (String interf : entry.getProvidedService().getInterfaces()) {
-      String serviceType = "_ahf-" + serviceDefinition + "_" + serviceGroup + "_" + interf;
-
-      if (entry.isUDP()) {
-        serviceType += ("._udp");
-      } else {
-        serviceType += ("._tcp");
-      }
-
-      try {
-        DnsSDRegistrator registrator = RegistryUtils.createRegistrator();
-        ServiceName name = registrator.makeServiceName(providerInstance, ServiceType.valueOf(serviceType));
+    try {
+      DnsSDRegistrator registrator = RegistryUtils.getRegistrator();
+      List<ServiceName> names = new ArrayList<>();
+      for (String interf : entry.getProvidedService().getInterfaces()) {
+        String serviceType = "_ahf-" + serviceDefinition + "_" + serviceGroup + "_" + interf;
 
-        if (registrator.unregisterService(name)) {
-          log.info("Service unregistered: " + entry.getProvidedService().toString() + "," + interf + entry.getProvider().toString());
+        if (entry.isUDP()) {
+          serviceType += ("._udp");
         } else {
-          log.info("No service to remove: " + entry.getProvidedService().toString() + "," + interf + entry.getProvider().toString());
-          //allRemoved = false;
+          serviceType += ("._tcp");
         }
-      } catch (DnsSDException ex) {
-        log.error(ex);
-        ex.printStackTrace();
-        throw new DnsException(ex.getMessage());
+        names.add(registrator.makeServiceName(providerInstance, ServiceType.valueOf(serviceType)));
+      }
+
+      //all interfaces are removed in one DNS update
+      registrator.unregisterServices(names);
+      for (ServiceName name : names) {
+        DnsServiceView.remove(name);
       }
+      log.info("Service unregistered: " + entry.getProvidedService().toString() + "," + entry.getProvider().toString());
+    } catch (DnsSDException ex) {
+      log.error(ex);
+      ex.printStackTrace();
+      throw new DnsException(ex.getMessage());
     }
     return allRemoved;
   }
 
   static ServiceQueryResult provideServices(ServiceQueryForm queryForm) {
-
-    //creating DNS browser
-    DnsSDDomainEnumerator de = DnsSDFactory.getInstance().createDomainEnumerator(ServiceRegistryMain.computerDomain);
-    DnsSDBrowser browser = DnsSDFactory.getInstance().createBrowser(de.getBrowsingDomains());
-
-    //this list will contain all instances corresponding to the given interfaces
+    //this list will contain all instances corresponding to the given interfaces, served from the in-memory view of the DNS-SD records
     List<ServiceRegistryEntry> fetchedList = new ArrayList<>();
-    fetchedList.clear();
-
-    //building look-up service types for query
     for (String interf : queryForm.getService().getInterfaces()) {
-
-      String serviceType = "_ahf-" + queryForm.getService().getServiceDefinition() + "_" + queryForm.getService().getServiceGroup() + "_" + interf;
-
-      //getting the instances for each interface on each transport layer
-      Collection<ServiceName> instances = new ArrayList<>();
-      instances.addAll(browser.getServiceInstances(ServiceType.valueOf(serviceType + "._tcp")));
-      instances.addAll(browser.getServiceInstances(ServiceType.valueOf(serviceType + "._udp")));
-
-      for (ServiceName instance : instances) {
-        ServiceData serviceInstance = browser.getServiceData(instance);
-        try {
-          ServiceRegistryEntry provService = RegistryUtils.buildRegistryEntry(serviceInstance);
-          fetchedList.add(provService);
-        } catch (IllegalArgumentException e) {
-          log.info("There is a non-Arrowhead compliant DNS record in the Registry: " + instance.getName() + "." + instance.getType().toString());
-        }
-      }
+      fetchedList.addAll(DnsServiceView.getServices(queryForm.getService(), interf));
     }
 
     //filtering on service version
@@ -164,38 +139,11 @@ class ServiceRegistry {
     return sqr;
   }
 
-  static ServiceQueryResult provideAllServices() throws DnsSDException {
-    //Preparing DNS-SD
-    DnsSDDomainEnumerator de = DnsSDFactory.getInstance().createDomainEnumerator(ServiceRegistryMain.computerDomain);
-    DnsSDBrowser browser = DnsSDFactory.getInstance().createBrowser(de.getBrowsingDomains());
-    Collection<ServiceType> types = browser.getServiceTypes();
-
-    List<ServiceRegistryEntry> list = new ArrayList<>();
-    list.clear();
-
-    if (types != null) {
-
-      for (ServiceType type : types) {
-
-        Collection<ServiceName> instances = browser.getServiceInstances(type);
-
-        for (ServiceName instance : instances) {
-
-          ServiceData serviceInstanceData = browser.getServiceData(instance);
-          try {
-            list.add(RegistryUtils.buildRegistryEntry(serviceInstanceData));
-          } catch (IllegalArgumentException e) {
-            log.info("There is a non-Arrowhead compliant DNS record: " + instance.getName() + "." + instance.getType().toString());
-          }
-        }
-      }
-
-      ServiceQueryResult result = new ServiceQueryResult();
-      result.setServiceQueryData(list);
-      log.info("All Services are provided!");
-      return result;
-    }
-    return new ServiceQueryResult();
+  static ServiceQueryResult provideAllServices() {
+    ServiceQueryResult result = new ServiceQueryResult();
+    result.setServiceQueryData(DnsServiceView.getAllServices());
+    log.info("All Services are provided!");
+    return result;
   }
 
   static boolean removeAllServices() {
@@ -204,19 +152,17 @@ class ServiceRegistry {
     Collection<ServiceType> types = browser.getServiceTypes();
 
     try {
-      DnsSDRegistrator registrator = RegistryUtils.createRegistrator();
+      DnsSDRegistrator registrator = RegistryUtils.getRegistrator();
 
-      for (ServiceType type : types) {
-        Collection<ServiceName> instances = browser.getServiceInstances(type);
-        for (ServiceName instance : instances) {
-          registrator.unregisterService(instance);
-        }
+      for (ServiceName instance : browser.getServiceInstances(types)) {
+        registrator.unregisterService(instance);
       }
     } catch (DnsSDException e) {
       log.error("There was a DNS-SD error in removing all services." + e.getMessage());
       e.printStackTrace();
       return false;
     }
+    DnsServiceView.clear();
 
     log.info("Deleted all services from DNS-SD!");
     return true;
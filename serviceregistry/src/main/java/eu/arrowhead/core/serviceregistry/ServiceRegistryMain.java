@@ -2,6 +2,7 @@ package eu.arrowhead.core.serviceregistry;
 
 import com.github.danieln.dnssdjava.DnsSDRegistrator;
 import eu.arrowhead.common.DatabaseManager;
+import eu.arrowhead.common.ProviderHealthTracker;
 import eu.arrowhead.common.Utility;
 import eu.arrowhead.common.exception.AuthenticationException;
 import eu.arrowhead.common.security.SecurityUtils;
@@ -40,9 +41,14 @@ class ServiceRegistryMain {
   public static String dnsDomain = getDnsProp().getProperty("dns.registerDomain", "srv.arrowhead.tmit.bme.hu.");
   public static String computerDomain = getDnsProp().getProperty("dns.domain", "arrowhead.tmit.bme.hu");
   public static int dnsPort = new Integer(getDnsProp().getProperty("dns.port", "53"));
+  public static long dnsViewResyncInterval = new Long(getDnsProp().getProperty("dns.view_resync_interval", "60000"));
   //property files
   private static Properties appProp, dnsProp;
   public static int pingTimeout = new Integer(getAppProp().getProperty("ping.timeout", "10000"));
+  // The maximum number of connection attempts in progress at the same time while the providers are pinged
+  public static int pingMaxConnections = new Integer(getAppProp().getProperty("ping.max_connections", "1024"));
+  // Answers the pingProviders queries from memory, null if ping.health_tracking is disabled
+  public static final ProviderHealthTracker healthTracker = createHealthTracker();
   private static final String BASE_URI = getAppProp().getProperty("base_uri", "http://0.0.0.0:8442/");
   private static final String BASE_URI_SECURED = getAppProp().getProperty("base_uri_secured", "https://0.0.0.0:8443/");
   private static HttpServer server = null;
@@ -95,6 +101,11 @@ class ServiceRegistryMain {
       server = startServer();
     }
 
+    DnsServiceView.start(dnsViewResyncInterval);
+    if (healthTracker != null) {
+      healthTracker.start();
+    }
+
     //if scheduled ping is set
     if (getAppProp().getProperty("ping.scheduled").equals("true")) {
       TimerTask pingTask = new PingProvidersTask();
@@ -236,7 +247,21 @@ class ServiceRegistryMain {
     return appProp;
   }
 
+  private static ProviderHealthTracker createHealthTracker() {
+    if (!Boolean.valueOf(getAppProp().getProperty("ping.health_tracking", "true"))) {
+      return null;
+    }
+    long interval = Long.valueOf(getAppProp().getProperty("ping.health_interval", "30000"));
+    long maxBackoff = Long.valueOf(getAppProp().getProperty("ping.health_max_backoff", "600000"));
+    long idleTimeout = Long.valueOf(getAppProp().getProperty("ping.health_idle_timeout", "3600000"));
+    return new ProviderHealthTracker(pingTimeout, interval, maxBackoff, idleTimeout, pingMaxConnections);
+  }
+
   private static void shutdown() {
+    DnsServiceView.shutdown();
+    if (healthTracker != null) {
+      healthTracker.shutdown();
+    }
     if (server != null) {
       log.info("Stopping server at: " + BASE_URI);
       server.shutdownNow();
@@ -1,6 +1,7 @@
 package eu.arrowhead.core.serviceregistry;
 
 import com.github.danieln.dnssdjava.DnsSDException;
+import eu.arrowhead.common.Utility;
 import eu.arrowhead.common.database.ArrowheadService;
 import eu.arrowhead.common.database.ServiceRegistryEntry;
 import eu.arrowhead.common.exception.AuthenticationException;
@@ -61,6 +62,7 @@ public class ServiceRegistryResource {
 
     try {
       if (ServiceRegistry.register(entry)) {
+        Utility.invalidateOrchestrationCache(entry.getProvidedService());
         return Response.status(Response.Status.OK).build();
       } else {
         return Response.status(Response.Status.RESET_CONTENT).build();
@@ -99,6 +101,7 @@ public class ServiceRegistryResource {
     }
 
     if (result) {
+      Utility.invalidateOrchestrationCache(entry.getProvidedService());
       return Response.status(Response.Status.OK).build();
     } else {
       return Response.status(Response.Status.NO_CONTENT).build();
@@ -130,6 +133,7 @@ public class ServiceRegistryResource {
 
     try {
       if (ServiceRegistry.register(entry)) {
+        Utility.invalidateOrchestrationCache(entry.getProvidedService());
         return Response.status(Response.Status.OK).build();
       } else {
         return Response.status(Response.Status.RESET_CONTENT).build();
@@ -166,6 +170,7 @@ public class ServiceRegistryResource {
     }
 
     if (result) {
+      Utility.invalidateOrchestrationCache(entry.getProvidedService());
       return Response.status(Response.Status.OK).build();
     } else {
       return Response.status(Response.Status.NO_CONTENT).build();
@@ -201,15 +206,11 @@ public class ServiceRegistryResource {
   @Path("all")
   public Response getAllServices() {
 
-    try {
-      ServiceQueryResult result = ServiceRegistry.provideAllServices();
-      if (result == null || result.getServiceQueryData().isEmpty()) {
-        return Response.status(Status.NO_CONTENT).entity(result).build();
-      } else {
-        return Response.status(Response.Status.OK).entity(result).build();
-      }
-    } catch (DnsSDException e) {
-      return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+    ServiceQueryResult result = ServiceRegistry.provideAllServices();
+    if (result == null || result.getServiceQueryData().isEmpty()) {
+      return Response.status(Status.NO_CONTENT).entity(result).build();
+    } else {
+      return Response.status(Response.Status.OK).entity(result).build();
     }
   }
 
@@ -223,9 +224,22 @@ public class ServiceRegistryResource {
   public Response removeAllServices() {
 
     if (ServiceRegistry.removeAllServices()) {
+      Utility.invalidateOrchestrationCache(null);
       return Response.status(Response.Status.OK).build();
     } else {
       return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
     }
   }
+
+  /**
+   * Drops the cached Core System, Neighbor Cloud and Own Cloud entries of this Core System. Called by the management API after it changed these
+   * tables.
+   */
+  @DELETE
+  @Path("endpoints")
+  public Response invalidateEndpointCache() {
+    Utility.invalidateEndpointCache();
+    return Response.status(Status.OK).build();
+  }
+
 }
@@ -46,7 +46,12 @@ public class AccessControlFilter implements ContainerRequestFilter {
       return false;
     }
 
-    if (requestTarget.endsWith("register") || requestTarget.endsWith("remove")) {
+    if (requestTarget.endsWith("endpoints")) {
+      // Only the management API can ask for the invalidation of the cached Core System and Neighbor Cloud endpoints
+      String[] serverFields = serverCN.split("\\.", 2);
+      // serverFields contains: coreSystemName, coresystems.cloudName.operator.arrowhead.eu
+      return clientCN.equalsIgnoreCase("api." + serverFields[1]);
+    } else if (requestTarget.endsWith("register") || requestTarget.endsWith("remove")) {
       // All requests from the local cloud are allowed, so omit the first 2 parts of the common names (systemName.systemGroup)
       String[] serverFields = serverCN.split("\\.", 3);
       String[] clientFields = clientCN.split("\\.", 3);
@@ -1,30 +1,53 @@
 package eu.arrowhead.core.serviceregistry_sql;
 
 
+import eu.arrowhead.common.ConnectivityProber;
+import eu.arrowhead.common.Utility;
 import eu.arrowhead.common.database.ServiceRegistryEntry;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.TimerTask;
 import org.apache.log4j.Logger;
 
 public class PingProvidersTask extends TimerTask {
 
   private static Logger log = Logger.getLogger(PingProvidersTask.class.getName());
+  private static final int PAGE_SIZE = 100;
 
   @Override
   public void run() {
     int deleteCount = pingAndRemoveServices();
+    if (deleteCount > 0) {
+      Utility.invalidateOrchestrationCache(null);
+    }
     log.debug("Removed " + deleteCount + " inactive entries from SR database at " + new Date().toString());
   }
 
-  //Removes Service Registry entries with offline/inactive providers
+  //Removes Service Registry entries with offline/inactive providers.
+  //The registry is read page by page, so no database connection is held during the pings, and every provider is pinged at the same time.
   private int pingAndRemoveServices() {
-    List<ServiceRegistryEntry> srEntries = ServiceRegistryResource.dm.getAll(ServiceRegistryEntry.class, null);
-    boolean connectionIsAlive;
+    List<ServiceRegistryEntry> allEntries = new ArrayList<>();
+    int lastId = 0;
+    List<ServiceRegistryEntry> srEntries;
+    do {
+      srEntries = ServiceRegistryResource.dm.getPage(ServiceRegistryEntry.class, null, lastId, PAGE_SIZE);
+      allEntries.addAll(srEntries);
+      if (!srEntries.isEmpty()) {
+        lastId = srEntries.get(srEntries.size() - 1).getId();
+      }
+    } while (srEntries.size() == PAGE_SIZE);
+
+    List<List<Object>> endpoints = new ArrayList<>();
+    for (ServiceRegistryEntry entry : allEntries) {
+      endpoints.add(ConnectivityProber.endpoint(entry.getProvider().getAddress(), entry.getProvider().getPort()));
+    }
+    Map<List<Object>, Boolean> reachable = RegistryUtils.pingHosts(endpoints);
+
     int deleteCount = 0;
-    for (ServiceRegistryEntry entry : srEntries) {
-      connectionIsAlive = RegistryUtils.pingHost(entry.getProvider().getAddress(), entry.getProvider().getPort(), 10);
-      if (!connectionIsAlive) {
+    for (ServiceRegistryEntry entry : allEntries) {
+      if (!reachable.get(ConnectivityProber.endpoint(entry.getProvider().getAddress(), entry.getProvider().getPort()))) {
         ServiceRegistryResource.dm.delete(entry);
         deleteCount++;
       }
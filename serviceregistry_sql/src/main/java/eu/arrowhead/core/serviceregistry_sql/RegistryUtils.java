@@ -1,23 +1,14 @@
 package eu.arrowhead.core.serviceregistry_sql;
 
+import eu.arrowhead.common.ConnectivityProber;
 import eu.arrowhead.common.database.ServiceRegistryEntry;
-import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 class RegistryUtils {
 
-  static boolean pingHost(String host, int port, int timeout) {
-    try (Socket socket = new Socket()) {
-      socket.connect(new InetSocketAddress(host, port), timeout);
-      return true;
-    } catch (Exception e) {
-      return false; // Either timeout or unreachable or failed DNS lookup.
-    }
-  }
-
   static void filterOnVersion(List<ServiceRegistryEntry> fetchedList, int targetVersion) {
     fetchedList.removeIf(current -> current.getVersion() != targetVersion);
   }
@@ -26,17 +17,29 @@ class RegistryUtils {
     fetchedList.removeIf(current -> !metadata.equals(current.getProvidedService().getServiceMetadata()));
   }
 
+  /**
+   * Pings every given <tt>[host, port]</tt> endpoint at the same time, see {@link ConnectivityProber#probe(java.util.Collection, int, int)}.
+   */
+  static Map<List<Object>, Boolean> pingHosts(List<List<Object>> endpoints) {
+    Map<List<Object>, Boolean> reachable = new HashMap<>();
+    Map<List<Object>, Long> latencies = ConnectivityProber.probe(endpoints, ServiceRegistryMain.pingTimeout, ServiceRegistryMain.pingMaxConnections);
+    for (Map.Entry<List<Object>, Long> entry : latencies.entrySet()) {
+      reachable.put(entry.getKey(), entry.getValue() != ConnectivityProber.UNREACHABLE);
+    }
+    return reachable;
+  }
+
   static void filterOnPing(List<ServiceRegistryEntry> fetchedList) {
-    Iterator<ServiceRegistryEntry> iterator = fetchedList.iterator();
-    while (iterator.hasNext()) {
-      ServiceRegistryEntry current = iterator.next();
-      if (current.getProvider().getAddress().equals("localhost") || current.getProvider().getAddress().equals("127.0.0.1") || current.getProvider()
-          .getAddress().equals("0.0.0.0")) {
-        iterator.remove();
-      } else if (!pingHost(current.getProvider().getAddress(), current.getProvider().getPort(), ServiceRegistryMain.pingTimeout)) {
-        iterator.remove();
-      }
+    fetchedList.removeIf(current -> current.getProvider().getAddress().equals("localhost") || current.getProvider().getAddress().equals("127.0.0.1")
+        || current.getProvider().getAddress().equals("0.0.0.0"));
+    List<List<Object>> endpoints = new ArrayList<>();
+    for (ServiceRegistryEntry entry : fetchedList) {
+      endpoints.add(ConnectivityProber.endpoint(entry.getProvider().getAddress(), entry.getProvider().getPort()));
     }
+    Map<List<Object>, Boolean> reachable = ServiceRegistryMain.healthTracker != null ? ServiceRegistryMain.healthTracker.areReachable(endpoints)
+                                                                                     : pingHosts(endpoints);
+    fetchedList.removeIf(
+        current -> !reachable.get(ConnectivityProber.endpoint(current.getProvider().getAddress(), current.getProvider().getPort())));
   }
 
 }
@@ -1,7 +1,10 @@
 package eu.arrowhead.core.serviceregistry_sql;
 
+import eu.arrowhead.common.ConnectivityProber;
 import eu.arrowhead.common.DatabaseManager;
+import eu.arrowhead.common.ProviderHealthTracker;
 import eu.arrowhead.common.Utility;
+import eu.arrowhead.common.database.ServiceRegistryEntry;
 import eu.arrowhead.common.exception.AuthenticationException;
 import eu.arrowhead.common.security.SecurityUtils;
 import java.io.BufferedReader;
@@ -12,7 +15,10 @@ import java.io.InputStreamReader;
 import java.net.URI;
 import java.security.KeyStore;
 import java.security.cert.X509Certificate;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import javax.net.ssl.SSLContext;
@@ -35,6 +41,10 @@ class ServiceRegistryMain {
   private static final String BASE_URI = getProp().getProperty("base_uri", "http://0.0.0.0:8442/");
   private static final String BASE_URI_SECURED = getProp().getProperty("base_uri_secured", "https://0.0.0.0:8443/");
   static int pingTimeout = new Integer(getProp().getProperty("ping.timeout", "10000"));
+  // The maximum number of connection attempts in progress at the same time while the providers are pinged
+  static int pingMaxConnections = new Integer(getProp().getProperty("ping.max_connections", "1024"));
+  // Answers the pingProviders queries from memory, null if ping.health_tracking is disabled
+  static final ProviderHealthTracker healthTracker = createHealthTracker();
 
   public static void main(String[] args) throws IOException {
     System.out.println("Working directory: " + System.getProperty("user.dir"));
@@ -88,6 +98,14 @@ class ServiceRegistryMain {
 
     //This is here to initialize the database connection before the REST resources are initiated
     DatabaseManager dm = DatabaseManager.getInstance();
+    if (healthTracker != null) {
+      // Seeding the health table with the registered providers, they are probed in one round instead of one round per provider
+      Set<List<Object>> endpoints = new LinkedHashSet<>();
+      dm.scroll(ServiceRegistryEntry.class, null,
+                entry -> endpoints.add(ConnectivityProber.endpoint(entry.getProvider().getAddress(), entry.getProvider().getPort())));
+      healthTracker.trackAll(endpoints);
+      healthTracker.start();
+    }
     if (daemon) {
       System.out.println("In daemon mode, process will terminate for TERM signal...");
       Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -173,7 +191,20 @@ class ServiceRegistryMain {
     return server;
   }
 
+  private static ProviderHealthTracker createHealthTracker() {
+    if (!Boolean.valueOf(getProp().getProperty("ping.health_tracking", "true"))) {
+      return null;
+    }
+    long interval = Long.valueOf(getProp().getProperty("ping.health_interval", "30000"));
+    long maxBackoff = Long.valueOf(getProp().getProperty("ping.health_max_backoff", "600000"));
+    long idleTimeout = Long.valueOf(getProp().getProperty("ping.health_idle_timeout", "3600000"));
+    return new ProviderHealthTracker(pingTimeout, interval, maxBackoff, idleTimeout, pingMaxConnections);
+  }
+
   private static void shutdown() {
+    if (healthTracker != null) {
+      healthTracker.shutdown();
+    }
     if (server != null) {
       log.info("Stopping server at: " + BASE_URI);
       server.shutdownNow();
@@ -1,6 +1,8 @@
 package eu.arrowhead.core.serviceregistry_sql;
 
 import eu.arrowhead.common.DatabaseManager;
+import eu.arrowhead.common.JsonArrayStreamingOutput;
+import eu.arrowhead.common.Utility;
 import eu.arrowhead.common.database.ArrowheadService;
 import eu.arrowhead.common.database.ArrowheadSystem;
 import eu.arrowhead.common.database.ServiceRegistryEntry;
@@ -9,20 +11,22 @@ import eu.arrowhead.common.exception.BadPayloadException;
 import eu.arrowhead.common.messages.ServiceQueryForm;
 import eu.arrowhead.common.messages.ServiceQueryResult;
 import eu.arrowhead.common.security.SecurityUtils;
-import java.util.HashMap;
 import java.util.List;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.Providers;
 import org.apache.log4j.Logger;
 
 @Path("serviceregistry")
@@ -31,7 +35,6 @@ import org.apache.log4j.Logger;
 public class ServiceRegistryResource {
 
   private static Logger log = Logger.getLogger(ServiceRegistryResource.class.getName());
-  private HashMap<String, Object> restrictionMap = new HashMap<>();
   static DatabaseManager dm = DatabaseManager.getInstance();
 
   @GET
@@ -60,9 +63,8 @@ public class ServiceRegistryResource {
       }
     }
 
-    restrictionMap.put("serviceGroup", entry.getProvidedService().getServiceGroup());
-    restrictionMap.put("serviceDefinition", entry.getProvidedService().getServiceDefinition());
-    ArrowheadService service = dm.get(ArrowheadService.class, restrictionMap);
+    ArrowheadService service = dm.getNamed(ArrowheadService.class, ArrowheadService.FIND_BY_GROUP_AND_DEFINITION,
+                                           entry.getProvidedService().getServiceGroup(), entry.getProvidedService().getServiceDefinition());
     if (service == null) {
       service = dm.save(entry.getProvidedService());
     } else {
@@ -72,12 +74,14 @@ public class ServiceRegistryResource {
     }
     entry.setProvidedService(service);
 
-    restrictionMap.clear();
-    restrictionMap.put("systemGroup", entry.getProvider().getSystemGroup());
-    restrictionMap.put("systemName", entry.getProvider().getSystemName());
-    ArrowheadSystem provider = dm.get(ArrowheadSystem.class, restrictionMap);
+    ArrowheadSystem provider = dm.getNamed(ArrowheadSystem.class, ArrowheadSystem.FIND_BY_GROUP_AND_NAME, entry.getProvider().getSystemGroup(),
+                                           entry.getProvider().getSystemName());
     if (provider == null) {
       provider = dm.save(entry.getProvider());
+      // A System with the same name might have been registered (and deleted) before, with a different public key
+      if (provider.getAuthenticationInfo() != null) {
+        Utility.invalidatePublicKey(provider);
+      }
     } else {
       provider.setAddress(entry.getProvider().getAddress());
       provider.setPort(entry.getProvider().getPort());
@@ -87,6 +91,10 @@ public class ServiceRegistryResource {
 
     ServiceRegistryEntry savedEntry = dm.save(entry);
     log.info("New ServiceRegistryEntry " + entry.toString() + " is saved.");
+    if (ServiceRegistryMain.healthTracker != null) {
+      ServiceRegistryMain.healthTracker.track(provider.getAddress(), provider.getPort());
+    }
+    Utility.invalidateOrchestrationCache(service);
     return Response.status(Status.CREATED).entity(savedEntry).build();
   }
 
@@ -98,17 +106,14 @@ public class ServiceRegistryResource {
       throw new BadPayloadException("Bad payload: ServiceQueryForm has missing/incomplete mandatory field(s).");
     }
 
-    restrictionMap.put("serviceGroup", queryForm.getService().getServiceGroup());
-    restrictionMap.put("serviceDefinition", queryForm.getService().getServiceDefinition());
-    ArrowheadService service = dm.get(ArrowheadService.class, restrictionMap);
+    ArrowheadService service = dm.getNamed(ArrowheadService.class, ArrowheadService.FIND_BY_GROUP_AND_DEFINITION,
+                                           queryForm.getService().getServiceGroup(), queryForm.getService().getServiceDefinition());
     if (service == null) {
       log.info("Service " + queryForm.getService().toString() + " is not in the registry.");
       return Response.status(Status.NO_CONTENT).entity(new ServiceQueryResult()).build();
     }
 
-    restrictionMap.clear();
-    restrictionMap.put("providedService", service);
-    List<ServiceRegistryEntry> providedServices = dm.getAll(ServiceRegistryEntry.class, restrictionMap);
+    List<ServiceRegistryEntry> providedServices = dm.getAllNamed(ServiceRegistryEntry.class, ServiceRegistryEntry.FIND_BY_SERVICE, service);
 
     //TODO add version filter too later, if deemed needed
 
@@ -144,22 +149,20 @@ public class ServiceRegistryResource {
       }
     }
 
-    restrictionMap.put("serviceGroup", entry.getProvidedService().getServiceGroup());
-    restrictionMap.put("serviceDefinition", entry.getProvidedService().getServiceDefinition());
-    ArrowheadService service = dm.get(ArrowheadService.class, restrictionMap);
+    ArrowheadService service = dm.getNamed(ArrowheadService.class, ArrowheadService.FIND_BY_GROUP_AND_DEFINITION,
+                                           entry.getProvidedService().getServiceGroup(), entry.getProvidedService().getServiceDefinition());
 
-    restrictionMap.clear();
-    restrictionMap.put("systemGroup", entry.getProvider().getSystemGroup());
-    restrictionMap.put("systemName", entry.getProvider().getSystemName());
-    ArrowheadSystem provider = dm.get(ArrowheadSystem.class, restrictionMap);
+    ArrowheadSystem provider = dm.getNamed(ArrowheadSystem.class, ArrowheadSystem.FIND_BY_GROUP_AND_NAME, entry.getProvider().getSystemGroup(),
+                                           entry.getProvider().getSystemName());
 
-    restrictionMap.clear();
-    restrictionMap.put("providedService", service);
-    restrictionMap.put("provider", provider);
-    ServiceRegistryEntry retrievedEntry = dm.get(ServiceRegistryEntry.class, restrictionMap);
+    ServiceRegistryEntry retrievedEntry = null;
+    if (service != null && provider != null) {
+      retrievedEntry = dm.getNamed(ServiceRegistryEntry.class, ServiceRegistryEntry.FIND_BY_SERVICE_AND_PROVIDER, service, provider);
+    }
     if (retrievedEntry != null) {
       dm.delete(retrievedEntry);
       log.info("ServiceRegistryEntry " + retrievedEntry.toString() + " deleted.");
+      Utility.invalidateOrchestrationCache(service);
       return Response.status(Status.OK).entity(retrievedEntry).build();
     } else {
       log.info("ServiceRegistryEntry " + entry.toString() + " was not found in the SR to delete.");
@@ -167,9 +170,34 @@ public class ServiceRegistryResource {
     }
   }
 
+  /**
+   * Returns all the Service Registry entries. Big registries can be listed with bounded memory use either page by page
+   * (<tt>?limit=N&amp;after=token</tt>, the token of the next page is in the <i>X-Next-Page-Token</i> response header) or streamed
+   * (<tt>?stream=true</tt>). Both of these are ordered by id.
+   */
   @GET
   @Path("all")
-  public Response getAllServices() {
+  public Response getAllServices(@QueryParam("limit") Integer limit, @QueryParam("after") @DefaultValue("0") int after,
+                                 @QueryParam("stream") boolean stream, @Context Providers providers) {
+    if (stream) {
+      log.info("getAllServices streams the entries");
+      return Response.ok(new JsonArrayStreamingOutput<>(ServiceRegistryEntry.class, providers,
+                                                        consumer -> dm.scroll(ServiceRegistryEntry.class, null, consumer),
+                                                        "{\"serviceQueryData\":", "}")).build();
+    }
+    if (limit != null) {
+      if (limit <= 0) {
+        throw new BadPayloadException("Bad request: the limit query parameter has to be positive.");
+      }
+      List<ServiceRegistryEntry> page = dm.getPage(ServiceRegistryEntry.class, null, after, limit);
+      Response.ResponseBuilder builder = Response.ok(new ServiceQueryResult(page));
+      if (page.size() == limit) {
+        builder.header(Utility.NEXT_PAGE_TOKEN_HEADER, page.get(page.size() - 1).getId());
+      }
+      log.info("getAllServices returns a page of " + page.size() + " entries");
+      return builder.build();
+    }
+
     List<ServiceRegistryEntry> serviceRegistry = dm.getAll(ServiceRegistryEntry.class, null);
     ServiceQueryResult result = new ServiceQueryResult(serviceRegistry);
     log.info("getAllServices returns " + result.getServiceQueryData().size() + " entries");
@@ -185,8 +213,21 @@ public class ServiceRegistryResource {
   public Response removeAllServices() {
     dm.deleteAll(ServiceRegistryEntry.class.getName());
     log.info("removeAllServices returns successfully");
+    Utility.invalidateOrchestrationCache(null);
     return Response.status(Status.OK).build();
   }
 
   //TODO add more convenience methods here
+
+  /**
+   * Drops the cached Core System, Neighbor Cloud and Own Cloud entries of this Core System. Called by the management API after it changed these
+   * tables.
+   */
+  @DELETE
+  @Path("endpoints")
+  public Response invalidateEndpointCache() {
+    Utility.invalidateEndpointCache();
+    return Response.status(Status.OK).build();
+  }
+
 }